@@ -0,0 +1,140 @@
+package org.apache.commons.digester3.annotations.processor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor that generates, for each class carrying Digester rules annotations, a
+ * {@link org.apache.commons.digester3.binder.AbstractRulesModule} binding the same rules
+ * {@link org.apache.commons.digester3.annotations.FromAnnotationsRuleModule#bindRulesFrom(Class)} binds at runtime, so
+ * that no reflection is needed when the rules are loaded.
+ *
+ * The generated module of the class <code>com.acme.Channel</code> is <code>com.acme.ChannelRulesModule</code>;
+ * nested classes are named after all their enclosing classes, like <code>com.acme.Channel_ItemRulesModule</code>.
+ *
+ * Only the annotations in the <code>org.apache.commons.digester3.annotations.rules</code> package are supported:
+ * classes using custom annotations, handled by custom
+ * {@link org.apache.commons.digester3.annotations.AnnotationHandler}s, still have to be bound at runtime.
+ *
+ * @since 3.3
+ */
+@SupportedAnnotationTypes( "org.apache.commons.digester3.annotations.rules.*" )
+public class DigesterAnnotationProcessor
+    extends AbstractProcessor
+{
+
+    /**
+     * The suffix of the generated modules name.
+     */
+    public static final String MODULE_SUFFIX = "RulesModule";
+
+    /**
+     * The modules generated so far, by name.
+     */
+    private final Set<String> generatedModules = new HashSet<String>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv )
+    {
+        Set<TypeElement> annotatedTypes = new LinkedHashSet<TypeElement>();
+        for ( TypeElement annotation : annotations )
+        {
+            for ( Element element : roundEnv.getElementsAnnotatedWith( annotation ) )
+            {
+                // parameters, constructors, fields and methods are enclosed by their type
+                while ( element != null && !( element instanceof TypeElement ) )
+                {
+                    element = element.getEnclosingElement();
+                }
+                if ( element != null )
+                {
+                    annotatedTypes.add( (TypeElement) element );
+                }
+            }
+        }
+
+        for ( TypeElement annotatedType : annotatedTypes )
+        {
+            RulesModuleGenerator generator = new RulesModuleGenerator( processingEnv, annotatedType );
+            if ( generatedModules.add( generator.getModuleName() ) && generator.generate() )
+            {
+                write( generator, annotatedType );
+            }
+        }
+
+        // other processors could be interested in the Digester annotations too
+        return false;
+    }
+
+    /**
+     * Writes the source of the generated module.
+     */
+    private void write( RulesModuleGenerator generator, TypeElement annotatedType )
+    {
+        try
+        {
+            JavaFileObject sourceFile =
+                processingEnv.getFiler().createSourceFile( generator.getModuleName(), annotatedType );
+            Writer writer = sourceFile.openWriter();
+            try
+            {
+                writer.write( generator.getSource() );
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            processingEnv.getMessager().printMessage( Kind.ERROR, String.format( "Impossible to generate %s: %s",
+                                                                                 generator.getModuleName(),
+                                                                                 e.getMessage() ),
+                                                      annotatedType );
+        }
+    }
+
+}
@@ -0,0 +1,686 @@
+package org.apache.commons.digester3.annotations.processor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.String.format;
+import static javax.lang.model.util.ElementFilter.constructorsIn;
+import static javax.lang.model.util.ElementFilter.fieldsIn;
+import static javax.lang.model.util.ElementFilter.methodsIn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+import org.apache.commons.digester3.SetNextRule;
+import org.apache.commons.digester3.SetRootRule;
+import org.apache.commons.digester3.SetTopRule;
+import org.apache.commons.digester3.annotations.DigesterRule;
+import org.apache.commons.digester3.annotations.DigesterRuleList;
+import org.apache.commons.digester3.annotations.rules.BeanPropertySetter;
+import org.apache.commons.digester3.annotations.rules.CallMethod;
+import org.apache.commons.digester3.annotations.rules.CallParam;
+import org.apache.commons.digester3.annotations.rules.CreationRule;
+import org.apache.commons.digester3.annotations.rules.FactoryCreate;
+import org.apache.commons.digester3.annotations.rules.ObjectCreate;
+import org.apache.commons.digester3.annotations.rules.PathCallParam;
+import org.apache.commons.digester3.annotations.rules.SetNext;
+import org.apache.commons.digester3.annotations.rules.SetProperty;
+import org.apache.commons.digester3.annotations.rules.SetRoot;
+import org.apache.commons.digester3.annotations.rules.SetTop;
+
+/**
+ * Generates the source of the {@link org.apache.commons.digester3.binder.AbstractRulesModule} binding the rules of an
+ * annotated class, following the same steps of
+ * {@link org.apache.commons.digester3.annotations.FromAnnotationsRuleModule#bindRulesFrom(Class)} and of the default
+ * {@link org.apache.commons.digester3.annotations.AnnotationHandler}s.
+ *
+ * All the classes reached from the annotated class, its superclasses and the classes created for the
+ * {@link SetNext} and {@link SetRoot} methods, are bound by the same module, each one just once.
+ *
+ * @since 3.3
+ */
+final class RulesModuleGenerator
+{
+
+    private static final String JAVA_PACKAGE = "java";
+
+    private static final String INDENT = "        ";
+
+    private static final String CHAIN_INDENT = "\n            .";
+
+    private final ProcessingEnvironment processingEnv;
+
+    private final Elements elements;
+
+    private final Types types;
+
+    /**
+     * The class the module is generated for.
+     */
+    private final TypeElement annotatedType;
+
+    private final String packageName;
+
+    private final String moduleSimpleName;
+
+    /**
+     * The classes bound so far, by qualified name.
+     */
+    private final Set<String> boundTypes = new HashSet<String>();
+
+    /**
+     * The statements of the generated <code>configure</code> method.
+     */
+    private final StringBuilder statements = new StringBuilder();
+
+    private boolean failed = false;
+
+    /**
+     * Creates a new generator of the module binding the rules of the given annotated class.
+     *
+     * @param processingEnv the annotation processing environment
+     * @param annotatedType the annotated class
+     */
+    public RulesModuleGenerator( ProcessingEnvironment processingEnv, TypeElement annotatedType )
+    {
+        this.processingEnv = processingEnv;
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.annotatedType = annotatedType;
+        this.packageName = elements.getPackageOf( annotatedType ).getQualifiedName().toString();
+
+        StringBuilder simpleName = new StringBuilder( annotatedType.getSimpleName() );
+        for ( Element enclosing = annotatedType.getEnclosingElement(); enclosing instanceof TypeElement;
+              enclosing = enclosing.getEnclosingElement() )
+        {
+            simpleName.insert( 0, '_' ).insert( 0, enclosing.getSimpleName() );
+        }
+        this.moduleSimpleName = simpleName.append( DigesterAnnotationProcessor.MODULE_SUFFIX ).toString();
+    }
+
+    /**
+     * Returns the qualified name of the generated module.
+     *
+     * @return the qualified name of the generated module
+     */
+    public String getModuleName()
+    {
+        return packageName.length() > 0 ? packageName + '.' + moduleSimpleName : moduleSimpleName;
+    }
+
+    /**
+     * Binds the rules of the annotated class, reporting the errors found.
+     *
+     * @return true if the module can be generated, false otherwise
+     */
+    public boolean generate()
+    {
+        bindRulesFrom( annotatedType );
+        return !failed;
+    }
+
+    /**
+     * Returns the source of the generated module.
+     *
+     * @return the source of the generated module
+     */
+    public String getSource()
+    {
+        StringBuilder source = new StringBuilder();
+        if ( packageName.length() > 0 )
+        {
+            source.append( "package " ).append( packageName ).append( ";\n\n" );
+        }
+        source.append( "/**\n" )
+              .append( " * Digester rules bound from the annotations of {@link " )
+              .append( annotatedType.getQualifiedName() ).append( "}.\n" )
+              .append( " *\n" )
+              .append( " * Generated by the Digester annotation processor, do not edit.\n" )
+              .append( " */\n" )
+              .append( "public final class " ).append( moduleSimpleName ).append( '\n' )
+              .append( "    extends org.apache.commons.digester3.binder.AbstractRulesModule\n" )
+              .append( "{\n\n" )
+              .append( "    /**\n" )
+              .append( "     * {@inheritDoc}\n" )
+              .append( "     */\n" )
+              .append( "    @Override\n" )
+              .append( "    protected void configure()\n" )
+              .append( "    {\n" )
+              .append( statements )
+              .append( "    }\n\n" )
+              .append( "}\n" );
+        return source.toString();
+    }
+
+    // -------------------------------------------------------- Class visiting
+
+    private void bindRulesFrom( TypeElement type )
+    {
+        if ( type == null || elements.getPackageOf( type ).getQualifiedName().toString().startsWith( JAVA_PACKAGE )
+            || !boundTypes.add( type.getQualifiedName().toString() ) )
+        {
+            return;
+        }
+
+        // TYPE
+        visitElement( type, type );
+
+        if ( type.getKind() != ElementKind.INTERFACE && type.getKind() != ElementKind.ANNOTATION_TYPE )
+        {
+            // CONSTRUCTOR
+            for ( ExecutableElement constructor : constructorsIn( type.getEnclosedElements() ) )
+            {
+                visitElement( constructor, type );
+            }
+
+            // FIELD
+            for ( VariableElement field : fieldsIn( type.getEnclosedElements() ) )
+            {
+                visitElement( field, type );
+            }
+        }
+
+        // METHOD
+        for ( ExecutableElement method : methodsIn( type.getEnclosedElements() ) )
+        {
+            visitElement( method, type );
+        }
+
+        TypeMirror superclass = type.getSuperclass();
+        if ( superclass.getKind() == TypeKind.DECLARED )
+        {
+            bindRulesFrom( (TypeElement) types.asElement( superclass ) );
+        }
+    }
+
+    private void visitElement( Element element, TypeElement type )
+    {
+        for ( AnnotationMirror annotation : element.getAnnotationMirrors() )
+        {
+            handle( annotation, element, -1, type );
+        }
+
+        if ( element instanceof ExecutableElement )
+        {
+            List<? extends VariableElement> parameters = ( (ExecutableElement) element ).getParameters();
+            for ( int i = 0; i < parameters.size(); i++ )
+            {
+                for ( AnnotationMirror annotation : parameters.get( i ).getAnnotationMirrors() )
+                {
+                    handle( annotation, parameters.get( i ), i, type );
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles the annotation of the given element, the parameter index is meaningful for parameters only.
+     */
+    private void handle( AnnotationMirror annotation, Element element, int index, TypeElement type )
+    {
+        TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+
+        // check if it is one of the @*.List annotation
+        if ( isAnnotationPresent( annotationType, DigesterRuleList.class ) )
+        {
+            for ( AnnotationMirror ptr : annotationsValue( annotation ) )
+            {
+                handle( ptr, element, index, type );
+            }
+            return;
+        }
+        if ( !isAnnotationPresent( annotationType, DigesterRule.class ) )
+        {
+            return;
+        }
+
+        String name = annotationType.getQualifiedName().toString();
+        if ( name.equals( ObjectCreate.class.getCanonicalName() ) )
+        {
+            handleObjectCreate( annotation, element, type );
+        }
+        else if ( name.equals( FactoryCreate.class.getCanonicalName() ) )
+        {
+            handleFactoryCreate( annotation );
+        }
+        else if ( name.equals( BeanPropertySetter.class.getCanonicalName() ) )
+        {
+            bind( annotation, "setBeanProperty()", "withName( " + literal( element.getSimpleName() ) + " )" );
+        }
+        else if ( name.equals( SetProperty.class.getCanonicalName() ) )
+        {
+            handleSetProperty( annotation, element );
+        }
+        else if ( name.equals( CallMethod.class.getCanonicalName() ) )
+        {
+            handleCallMethod( annotation, (ExecutableElement) element );
+        }
+        else if ( name.equals( CallParam.class.getCanonicalName() ) )
+        {
+            handleCallParam( annotation, index );
+        }
+        else if ( name.equals( PathCallParam.class.getCanonicalName() ) )
+        {
+            bind( annotation, "callParamPath()", "ofIndex( " + index + " )" );
+        }
+        else if ( name.equals( SetTop.class.getCanonicalName() ) )
+        {
+            handleSetTop( annotation, (ExecutableElement) element );
+        }
+        else if ( name.equals( SetNext.class.getCanonicalName() ) )
+        {
+            handleParentMethod( annotation, (ExecutableElement) element, "setNext", SetNextRule.class );
+        }
+        else if ( name.equals( SetRoot.class.getCanonicalName() ) )
+        {
+            handleParentMethod( annotation, (ExecutableElement) element, "setRoot", SetRootRule.class );
+        }
+        else
+        {
+            failed = true;
+            processingEnv.getMessager().printMessage( Kind.WARNING,
+                                                      format( "@%s is handled at runtime only, %s has to be bound"
+                                                          + " through a FromAnnotationsRuleModule", name,
+                                                              annotatedType.getQualifiedName() ), element );
+        }
+    }
+
+    // -------------------------------------------------------- Annotation handlers
+
+    private void handleObjectCreate( AnnotationMirror annotation, Element element, TypeElement type )
+    {
+        if ( element.getKind() != ElementKind.CONSTRUCTOR && !( element instanceof TypeElement ) )
+        {
+            error( element, "Misplaced @ObjectCreate annotation to %s, Class and Constructor only supported",
+                   element );
+            return;
+        }
+
+        List<String> calls = new ArrayList<String>();
+        calls.add( "createObject()" );
+        calls.add( "ofType( " + classLiteral( type.asType(), element ) + " )" );
+        calls.add( "ofTypeSpecifiedByAttribute( " + literal( stringValue( annotation, "attributeName" ) ) + " )" );
+        if ( element.getKind() == ElementKind.CONSTRUCTOR )
+        {
+            calls.add( "usingConstructor( " + classArray( (ExecutableElement) element ) + " )" );
+        }
+        bind( annotation, calls.toArray( new String[calls.size()] ) );
+    }
+
+    private void handleFactoryCreate( AnnotationMirror annotation )
+    {
+        List<String> calls = new ArrayList<String>();
+        calls.add( "factoryCreate()" );
+        calls.add( "overriddenByAttribute( " + nonEmptyLiteral( stringValue( annotation, "attributeName" ) ) + " )" );
+        calls.add( "ignoreCreateExceptions( " + value( annotation, "ignoreCreateExceptions" ).getValue() + " )" );
+
+        TypeMirror factoryClass = (TypeMirror) value( annotation, "factoryClass" ).getValue();
+        TypeElement factoryType = (TypeElement) types.asElement( factoryClass );
+        if ( !factoryType.getQualifiedName()
+                .contentEquals( FactoryCreate.DefaultObjectCreationFactory.class.getCanonicalName() ) )
+        {
+            calls.add( "ofType( " + classLiteral( factoryClass, factoryType ) + " )" );
+        }
+        bind( annotation, calls.toArray( new String[calls.size()] ) );
+    }
+
+    private void handleSetProperty( AnnotationMirror annotation, Element field )
+    {
+        String attributeName = stringValue( annotation, "attributeName" );
+        if ( attributeName.length() > 0 && !field.getSimpleName().contentEquals( attributeName ) )
+        {
+            bind( annotation, "setProperties()", "addAlias( " + literal( attributeName ) + " )",
+                  "forProperty( " + literal( field.getSimpleName() ) + " )" );
+        }
+        else
+        {
+            bind( annotation, "setProperties()" );
+        }
+    }
+
+    private void handleCallMethod( AnnotationMirror annotation, ExecutableElement method )
+    {
+        String callMethod = "callMethod( " + literal( method.getSimpleName() ) + " )";
+        String withParamTypes = "withParamTypes( " + classArray( method ) + " )";
+        if ( (Boolean) value( annotation, "usingElementBodyAsArgument" ).getValue() )
+        {
+            bind( annotation, callMethod, withParamTypes, "usingElementBodyAsArgument()" );
+        }
+        else
+        {
+            bind( annotation, callMethod, withParamTypes );
+        }
+    }
+
+    private void handleCallParam( AnnotationMirror annotation, int index )
+    {
+        String callParam = "callParam()";
+        String ofIndex = "ofIndex( " + index + " )";
+        String fromAttribute = "fromAttribute( " + nonEmptyLiteral( stringValue( annotation, "attributeName" ) ) + " )";
+        if ( (Boolean) value( annotation, "fromStack" ).getValue() )
+        {
+            bind( annotation, callParam, ofIndex, fromAttribute,
+                  "withStackIndex( " + value( annotation, "stackIndex" ).getValue() + " )" );
+        }
+        else
+        {
+            bind( annotation, callParam, ofIndex, fromAttribute );
+        }
+    }
+
+    private void handleSetTop( AnnotationMirror annotation, ExecutableElement method )
+    {
+        if ( method.getParameters().size() != 1 )
+        {
+            error( method, "Methods annotated with digester annotation rule @%s must have just one argument",
+                   SetTopRule.class.getName() );
+            return;
+        }
+
+        bind( annotation, "setTop( " + literal( method.getSimpleName() ) + " )",
+              "withParameterType( " + classLiteral( method.getParameters().get( 0 ).asType(), method ) + " )",
+              "fireOnBegin( " + value( annotation, "fireOnBegin" ).getValue() + " )" );
+    }
+
+    /**
+     * Handles the {@link SetNext} and {@link SetRoot} annotations, binding the rules of the created classes too.
+     */
+    private void handleParentMethod( AnnotationMirror annotation, ExecutableElement method, String ruleMethod,
+                                     Class<?> ruleType )
+    {
+        if ( method.getParameters().size() != 1 )
+        {
+            error( method, "Methods annotated with digester annotation rule @%s must have just one argument",
+                   ruleType.getName() );
+            return;
+        }
+
+        TypeMirror paramType = types.erasure( method.getParameters().get( 0 ).asType() );
+        boolean fireOnBegin = (Boolean) value( annotation, "fireOnBegin" ).getValue();
+
+        @SuppressWarnings( "unchecked" )
+        List<? extends AnnotationValue> explicitTypes =
+            (List<? extends AnnotationValue>) value( annotation, "value" ).getValue();
+        if ( explicitTypes.isEmpty() )
+        {
+            bindParentMethod( method, ruleMethod, paramType, fireOnBegin );
+            return;
+        }
+
+        for ( AnnotationValue explicitTypeValue : explicitTypes )
+        {
+            TypeMirror explicitType = (TypeMirror) explicitTypeValue.getValue();
+            if ( !types.isAssignable( explicitType, paramType ) )
+            {
+                error( method, "Impossible to handle annotation %s on method, %s has to be a %s", annotation,
+                       explicitType, paramType );
+                return;
+            }
+
+            bindParentMethod( method, ruleMethod, explicitType, fireOnBegin );
+        }
+    }
+
+    private void bindParentMethod( ExecutableElement method, String ruleMethod, TypeMirror type,
+                                   boolean fireOnBegin )
+    {
+        if ( type.getKind() != TypeKind.DECLARED )
+        {
+            // no creation rule can be bound to primitives and arrays
+            return;
+        }
+
+        TypeElement typeElement = (TypeElement) types.asElement( type );
+        if ( typeElement.getKind() == ElementKind.INTERFACE || typeElement.getKind() == ElementKind.ANNOTATION_TYPE )
+        {
+            error( method, "Impossible to proceed analyzing %s, specified type '%s' is an interface/abstract",
+                   method, typeElement.getQualifiedName() );
+            return;
+        }
+
+        for ( AnnotationMirror annotation : typeElement.getAnnotationMirrors() )
+        {
+            bindParentMethod( method, ruleMethod, typeElement, annotation, fireOnBegin );
+        }
+
+        for ( ExecutableElement constructor : constructorsIn( typeElement.getEnclosedElements() ) )
+        {
+            if ( constructor.getModifiers().contains( Modifier.PUBLIC ) )
+            {
+                for ( AnnotationMirror annotation : constructor.getAnnotationMirrors() )
+                {
+                    bindParentMethod( method, ruleMethod, typeElement, annotation, fireOnBegin );
+                }
+            }
+        }
+    }
+
+    private void bindParentMethod( ExecutableElement method, String ruleMethod, TypeElement type,
+                                   AnnotationMirror annotation, boolean fireOnBegin )
+    {
+        TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+        if ( isAnnotationPresent( annotationType, DigesterRule.class )
+            && isAnnotationPresent( annotationType, CreationRule.class ) )
+        {
+            bindRulesFrom( type );
+
+            bind( annotation, ruleMethod + "( " + literal( method.getSimpleName() ) + " )",
+                  "withParameterType( " + classLiteral( type.asType(), method ) + " )",
+                  "fireOnBegin( " + fireOnBegin + " )" );
+        }
+        else if ( isAnnotationPresent( annotationType, DigesterRuleList.class ) )
+        {
+            for ( AnnotationMirror ptr : annotationsValue( annotation ) )
+            {
+                bindParentMethod( method, ruleMethod, type, ptr, fireOnBegin );
+            }
+        }
+    }
+
+    // -------------------------------------------------------- Code generation
+
+    /**
+     * Appends the statement binding the given builder calls to the pattern, and namespace URI, of the annotation.
+     */
+    private void bind( AnnotationMirror annotation, String... calls )
+    {
+        statements.append( INDENT ).append( "forPattern( " )
+                  .append( literal( stringValue( annotation, "pattern" ) ) ).append( " )" );
+
+        String namespaceURI = stringValue( annotation, "namespaceURI" );
+        if ( namespaceURI.length() > 0 )
+        {
+            statements.append( CHAIN_INDENT ).append( "withNamespaceURI( " ).append( literal( namespaceURI ) )
+                      .append( " )" );
+        }
+
+        for ( String call : calls )
+        {
+            statements.append( CHAIN_INDENT ).append( call );
+        }
+        statements.append( ";\n" );
+    }
+
+    /**
+     * Returns the class literal of the given type, reporting an error on the given element if not accessible from the
+     * generated module.
+     */
+    private String classLiteral( TypeMirror type, Element element )
+    {
+        TypeMirror erasure = types.erasure( type );
+
+        TypeMirror componentType = erasure;
+        while ( componentType.getKind() == TypeKind.ARRAY )
+        {
+            componentType = ( (ArrayType) componentType ).getComponentType();
+        }
+        if ( componentType.getKind() == TypeKind.DECLARED )
+        {
+            for ( Element ptr = ( (DeclaredType) componentType ).asElement(); ptr instanceof TypeElement;
+                  ptr = ptr.getEnclosingElement() )
+            {
+                Set<Modifier> modifiers = ptr.getModifiers();
+                if ( modifiers.contains( Modifier.PRIVATE ) || ( !modifiers.contains( Modifier.PUBLIC )
+                    && !elements.getPackageOf( ptr ).getQualifiedName().contentEquals( packageName ) ) )
+                {
+                    error( element, "%s is not accessible from the generated %s", erasure, getModuleName() );
+                    break;
+                }
+            }
+        }
+
+        return erasure + ".class";
+    }
+
+    private String classArray( ExecutableElement executable )
+    {
+        StringBuilder classArray = new StringBuilder( "new Class<?>[] {" );
+        String separator = " ";
+        for ( VariableElement parameter : executable.getParameters() )
+        {
+            classArray.append( separator ).append( classLiteral( parameter.asType(), executable ) );
+            separator = ", ";
+        }
+        return classArray.append( " }" ).toString();
+    }
+
+    private static String nonEmptyLiteral( String value )
+    {
+        return value.length() > 0 ? literal( value ) : "null";
+    }
+
+    private static String literal( CharSequence value )
+    {
+        StringBuilder literal = new StringBuilder( "\"" );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '"':
+                    literal.append( "\\\"" );
+                    break;
+                case '\\':
+                    literal.append( "\\\\" );
+                    break;
+                case '\n':
+                    literal.append( "\\n" );
+                    break;
+                case '\r':
+                    literal.append( "\\r" );
+                    break;
+                case '\t':
+                    literal.append( "\\t" );
+                    break;
+                default:
+                    if ( c < ' ' || c > '~' )
+                    {
+                        literal.append( format( "\\u%04x", (int) c ) );
+                    }
+                    else
+                    {
+                        literal.append( c );
+                    }
+            }
+        }
+        return literal.append( '"' ).toString();
+    }
+
+    // -------------------------------------------------------- Annotation values
+
+    private boolean isAnnotationPresent( TypeElement annotationType, Class<?> metaAnnotation )
+    {
+        for ( AnnotationMirror annotation : annotationType.getAnnotationMirrors() )
+        {
+            if ( ( (TypeElement) annotation.getAnnotationType().asElement() ).getQualifiedName()
+                    .contentEquals( metaAnnotation.getCanonicalName() ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private AnnotationValue value( AnnotationMirror annotation, String name )
+    {
+        for ( Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+              : elements.getElementValuesWithDefaults( annotation ).entrySet() )
+        {
+            if ( entry.getKey().getSimpleName().contentEquals( name ) )
+            {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private String stringValue( AnnotationMirror annotation, String name )
+    {
+        AnnotationValue value = value( annotation, name );
+        return value != null ? (String) value.getValue() : "";
+    }
+
+    private List<AnnotationMirror> annotationsValue( AnnotationMirror annotation )
+    {
+        AnnotationValue value = value( annotation, "value" );
+        if ( value == null || !( value.getValue() instanceof List ) )
+        {
+            return Collections.emptyList();
+        }
+
+        List<AnnotationMirror> annotations = new ArrayList<AnnotationMirror>();
+        for ( Object element : (List<?>) value.getValue() )
+        {
+            Object annotationValue = ( (AnnotationValue) element ).getValue();
+            if ( annotationValue instanceof AnnotationMirror )
+            {
+                annotations.add( (AnnotationMirror) annotationValue );
+            }
+        }
+        return annotations;
+    }
+
+    private void error( Element element, String messagePattern, Object... arguments )
+    {
+        failed = true;
+        processingEnv.getMessager().printMessage( Kind.ERROR, format( messagePattern, arguments ), element );
+    }
+
+}
@@ -0,0 +1,196 @@
+package org.apache.commons.digester3.annotations.processor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.digester3.Digester;
+import org.apache.commons.digester3.binder.RulesModule;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case for {@link DigesterAnnotationProcessor}.
+ */
+public class DigesterAnnotationProcessorTestCase
+{
+
+    private static final String CATALOG = "package sample;\n"
+        + "import java.util.ArrayList;\n"
+        + "import java.util.List;\n"
+        + "import org.apache.commons.digester3.annotations.rules.ObjectCreate;\n"
+        + "import org.apache.commons.digester3.annotations.rules.SetNext;\n"
+        + "@ObjectCreate( pattern = \"catalog\" )\n"
+        + "public class Catalog {\n"
+        + "    private final List<Book> books = new ArrayList<Book>();\n"
+        + "    @SetNext\n"
+        + "    public void addBook( Book book ) { books.add( book ); }\n"
+        + "    public String toString() { return books.toString(); }\n"
+        + "}\n";
+
+    private static final String BOOK = "package sample;\n"
+        + "import org.apache.commons.digester3.annotations.rules.BeanPropertySetter;\n"
+        + "import org.apache.commons.digester3.annotations.rules.CallMethod;\n"
+        + "import org.apache.commons.digester3.annotations.rules.CallParam;\n"
+        + "import org.apache.commons.digester3.annotations.rules.ObjectCreate;\n"
+        + "import org.apache.commons.digester3.annotations.rules.SetProperty;\n"
+        + "@ObjectCreate( pattern = \"catalog/book\" )\n"
+        + "public class Book {\n"
+        + "    @SetProperty( pattern = \"catalog/book\", attributeName = \"id\" )\n"
+        + "    private String isbn;\n"
+        + "    @BeanPropertySetter( pattern = \"catalog/book/title\" )\n"
+        + "    private String title;\n"
+        + "    private String author;\n"
+        + "    public void setIsbn( String isbn ) { this.isbn = isbn; }\n"
+        + "    public void setTitle( String title ) { this.title = title; }\n"
+        + "    @CallMethod( pattern = \"catalog/book/author\" )\n"
+        + "    public void setAuthor( @CallParam( pattern = \"catalog/book/author\", attributeName = \"name\" )"
+        + " String author ) { this.author = author; }\n"
+        + "    public String toString() { return isbn + \":\" + title + \":\" + author; }\n"
+        + "}\n";
+
+    private File outputDirectory;
+
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        outputDirectory = File.createTempFile( "digester-ap", "" );
+        outputDirectory.delete();
+        outputDirectory.mkdirs();
+    }
+
+    @After
+    public void tearDown()
+    {
+        delete( outputDirectory );
+    }
+
+    @Test
+    public void generatedModuleBindsAnnotatedRules()
+        throws Exception
+    {
+        assertTrue( diagnostics.getDiagnostics().toString(), compile( source( "sample.Catalog", CATALOG ),
+                                                                      source( "sample.Book", BOOK ) ) );
+        assertTrue( new File( outputDirectory, "sample/CatalogRulesModule.java" ).isFile() );
+        assertTrue( new File( outputDirectory, "sample/BookRulesModule.java" ).isFile() );
+
+        ClassLoader classLoader = new URLClassLoader( new URL[] { outputDirectory.toURI().toURL() },
+                                                      getClass().getClassLoader() );
+        RulesModule module = (RulesModule) classLoader.loadClass( "sample.CatalogRulesModule" ).newInstance();
+        Digester digester = newLoader( module ).setClassLoader( classLoader ).newDigester();
+
+        Object catalog = digester.parse( new StringReader( "<catalog>"
+            + "<book id='1'><title>Digester</title><author name='Apache'/></book>"
+            + "<book id='2'><title>Commons</title></book>"
+            + "</catalog>" ) );
+        assertEquals( "[1:Digester:Apache, 2:Commons:null]", catalog.toString() );
+    }
+
+    @Test
+    public void reportsMisplacedAnnotations()
+        throws Exception
+    {
+        String invalid = "package sample;\n"
+            + "import org.apache.commons.digester3.annotations.rules.SetTop;\n"
+            + "public class Invalid {\n"
+            + "    @SetTop( pattern = \"root\" )\n"
+            + "    public void setParent( Object parent, Object other ) { }\n"
+            + "}\n";
+
+        assertFalse( compile( source( "sample.Invalid", invalid ) ) );
+        assertFalse( new File( outputDirectory, "sample/InvalidRulesModule.java" ).exists() );
+
+        boolean reported = false;
+        for ( Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics() )
+        {
+            reported |= diagnostic.getKind() == Diagnostic.Kind.ERROR
+                && diagnostic.getMessage( null ).contains( "must have just one argument" );
+        }
+        assertTrue( diagnostics.getDiagnostics().toString(), reported );
+    }
+
+    private boolean compile( JavaFileObject... sources )
+    {
+        // surefire could run the tests with a manifest only jar in the class path
+        String classPath = System.getProperty( "surefire.test.class.path", System.getProperty( "java.class.path" ) );
+        List<String> options = new ArrayList<String>( Arrays.asList( "-classpath", classPath, "-d",
+                                                                     outputDirectory.getPath(), "-s",
+                                                                     outputDirectory.getPath() ) );
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        CompilationTask task = compiler.getTask( null, null, diagnostics, options, null, Arrays.asList( sources ) );
+        task.setProcessors( Arrays.asList( new DigesterAnnotationProcessor() ) );
+        return task.call();
+    }
+
+    private static JavaFileObject source( String className, final String code )
+    {
+        return new SimpleJavaFileObject( URI.create( "string:///" + className.replace( '.', '/' ) + ".java" ),
+                                         JavaFileObject.Kind.SOURCE )
+        {
+
+            @Override
+            public CharSequence getCharContent( boolean ignoreEncodingErrors )
+            {
+                return code;
+            }
+
+        };
+    }
+
+    private static void delete( File file )
+    {
+        File[] children = file.listFiles();
+        if ( children != null )
+        {
+            for ( File child : children )
+            {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+
+}
@@ -20,8 +20,6 @@ package org.apache.commons.digester3;
  */
 
 import static java.lang.String.format;
-import static org.apache.commons.beanutils.MethodUtils.invokeExactMethod;
-import static org.apache.commons.beanutils.MethodUtils.invokeMethod;
 
 import org.xml.sax.Attributes;
 
@@ -61,6 +59,31 @@ public abstract class AbstractMethodRule
      */
     protected boolean fireOnBegin = false;
 
+    /**
+     * The parameter type loaded from {@link #paramTypeName}, by {@link #loadedParamTypeLoader}.
+     */
+    private Class<?> loadedParamType;
+
+    /**
+     * The class loader {@link #loadedParamType} has been loaded from.
+     */
+    private ClassLoader loadedParamTypeLoader;
+
+    /**
+     * The methods resolved so far, by parent class.
+     */
+    private MethodInvocationCache methodInvocations;
+
+    /**
+     * The parameter types of the invoked method, reused across invocations.
+     */
+    private final Class<?>[] invocationParamTypes = new Class<?>[1];
+
+    /**
+     * The arguments of the invoked method, reused across invocations.
+     */
+    private final Object[] invocationArgs = new Object[1];
+
     /**
      * Construct a "set next" rule with the specified method name. The method's argument type is assumed to be the class
      * of the child object.
@@ -198,7 +221,7 @@ public abstract class AbstractMethodRule
      *
      * @throws Exception if any error occurs.
      */
-    private void invoke()
+    void invoke()
         throws Exception
     {
         // Identify the objects to be used
@@ -225,25 +248,96 @@ public abstract class AbstractMethodRule
             }
         }
 
+        invoke( parent, child );
+    }
+
+    /**
+     * Invokes the method on the given parent object, the invocation is recorded if any of the objects is still to be
+     * created.
+     */
+    private void invoke( final Object parent, Object child )
+        throws Exception
+    {
+        if ( child instanceof DeferredInstance )
+        {
+            ( (DeferredInstance) child ).record( new DeferredInstance.Invocation()
+            {
+
+                public void invoke( Object instance )
+                    throws Exception
+                {
+                    AbstractMethodRule.this.invoke( parent, instance );
+                }
+
+            } );
+            return;
+        }
+
         // Call the specified method
-        Class<?> paramTypes[] = new Class<?>[1];
+        Class<?> paramTypes[] = invocationParamTypes;
         if ( paramType != null )
         {
-            paramTypes[0] = getDigester().getClassLoader().loadClass( paramTypeName );
+            paramTypes[0] = loadParamType();
         }
         else
         {
             paramTypes[0] = child.getClass();
         }
 
-        if ( useExactMatch )
+        if ( parent instanceof DeferredInstance )
         {
-            invokeExactMethod( parent, methodName, new Object[] { child }, paramTypes );
+            DeferredInstance deferred = (DeferredInstance) parent;
+            deferred.record( getMethodInvocations().resolve( deferred.getType(), paramTypes ), child );
+            return;
         }
-        else
+
+        // the resolved methods are cached by parent and parameter classes; the cache copies the parameter types
+        // before handing them to MethodUtils, and the reflective invocation doesn't keep the arguments, so the arrays
+        // can be reused
+        Object[] args = invocationArgs;
+        args[0] = child;
+        try
+        {
+            getMethodInvocations().invoke( parent, args, paramTypes );
+        }
+        finally
+        {
+            args[0] = null;
+        }
+    }
+
+    /**
+     * Loads the parameter type with the Digester class loader, just the first time or if the class loader changed.
+     *
+     * @return the parameter type
+     * @throws ClassNotFoundException if the parameter type can't be loaded
+     */
+    private Class<?> loadParamType()
+        throws ClassNotFoundException
+    {
+        ClassLoader classLoader = getDigester().getClassLoader();
+        if ( loadedParamType == null || loadedParamTypeLoader != classLoader
+            || !loadedParamType.getName().equals( paramTypeName ) )
+        {
+            loadedParamType = classLoader.loadClass( paramTypeName );
+            loadedParamTypeLoader = classLoader;
+        }
+        return loadedParamType;
+    }
+
+    /**
+     * Return the cache of the methods to be invoked, creating a new one if the method name or the matching strategy
+     * changed.
+     *
+     * @return the cache of the methods to be invoked
+     */
+    private MethodInvocationCache getMethodInvocations()
+    {
+        if ( methodInvocations == null || !methodInvocations.isFor( methodName, useExactMatch ) )
         {
-            invokeMethod( parent, methodName, new Object[] { child }, paramTypes );
+            methodInvocations = new MethodInvocationCache( methodName, useExactMatch );
         }
+        return methodInvocations;
     }
 
     /**
@@ -19,6 +19,9 @@ package org.apache.commons.digester3;
  * under the License.
  */
 
+import java.util.List;
+
+import org.xml.sax.Attributes;
 
 /**
  * <p>
@@ -101,6 +104,26 @@ public abstract class AbstractRulesImpl
         registerRule( pattern, rule );
     }
 
+    /**
+     * Return a List of all registered Rule instances that match the given element path, or a zero-length List if
+     * there are no matches. This is the variant invoked by the <code>Digester</code> while parsing; the default
+     * implementation builds the <code>'/'</code> separated pattern and delegates to
+     * {@link #match(String, String, String, Attributes)}, implementations able to match on path segments can override
+     * it to avoid building the pattern at all.
+     *
+     * @param namespaceURI Namespace URI for which to select matching rules, or <code>null</code> to match regardless of
+     *            namespace URI
+     * @param path the path of the current element
+     * @param name the local name if the parser is namespace aware, or just the element name otherwise
+     * @param attributes The attribute list of the current matching element
+     * @return a List of all registered Rule instances that match the given element path
+     * @since 3.3
+     */
+    public List<Rule> match( String namespaceURI, ElementPath path, String name, Attributes attributes )
+    {
+        return match( namespaceURI, path.toString(), name, attributes );
+    }
+
     /**
      * Register rule at given pattern. The the Digester and namespaceURI properties of the given <code>Rule</code> can
      * be assumed to have been set properly before this method is called.
@@ -0,0 +1,238 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.System.arraycopy;
+
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+/**
+ * <p>
+ * A growable, array based, <strong>not synchronized</strong> LIFO stack, used by the {@link Digester} in place of
+ * {@link Stack} (which is a synchronized <code>Vector</code>) for all the stacks manipulated while parsing.
+ * </p>
+ * <p>
+ * The semantic of the stack operations is the same as the <code>java.util.Stack</code> ones: {@link #pop()} and
+ * {@link #peek()} throw an {@link EmptyStackException} when there are no elements, and elements can also be accessed
+ * by position through {@link #get(int)}, where 0 is the bottom of the stack.
+ * </p>
+ *
+ * @param <E> the type of the elements in the stack
+ * @since 3.3
+ */
+public class ArrayStack<E>
+{
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The stack elements, index 0 being the bottom of the stack.
+     */
+    private Object[] elements;
+
+    /**
+     * The number of elements in the stack.
+     */
+    private int size = 0;
+
+    /**
+     * Creates an empty stack with the default initial capacity.
+     */
+    public ArrayStack()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+    /**
+     * Creates an empty stack with the given initial capacity.
+     *
+     * @param initialCapacity the initial capacity, it will grow as needed
+     */
+    public ArrayStack( int initialCapacity )
+    {
+        if ( initialCapacity < 0 )
+        {
+            throw new IllegalArgumentException( "Illegal capacity: " + initialCapacity );
+        }
+        elements = new Object[initialCapacity];
+    }
+
+    /**
+     * Pushes an item onto the top of this stack.
+     *
+     * @param item the item to be pushed onto this stack
+     * @return the <code>item</code> argument
+     */
+    public E push( E item )
+    {
+        if ( size == elements.length )
+        {
+            Object[] newElements = new Object[( size << 1 ) + 1];
+            arraycopy( elements, 0, newElements, 0, size );
+            elements = newElements;
+        }
+        elements[size++] = item;
+        return item;
+    }
+
+    /**
+     * Removes the object at the top of this stack and returns it.
+     *
+     * @return the object at the top of this stack
+     * @throws EmptyStackException if this stack is empty
+     */
+    public E pop()
+    {
+        if ( size == 0 )
+        {
+            throw new EmptyStackException();
+        }
+        E item = elementAt( --size );
+        elements[size] = null;
+        return item;
+    }
+
+    /**
+     * Looks at the object at the top of this stack without removing it.
+     *
+     * @return the object at the top of this stack
+     * @throws EmptyStackException if this stack is empty
+     */
+    public E peek()
+    {
+        if ( size == 0 )
+        {
+            throw new EmptyStackException();
+        }
+        return elementAt( size - 1 );
+    }
+
+    /**
+     * Looks at the n'th object down the stack without removing it, where 0 is the top element and
+     * <code>size() - 1</code> the bottom one.
+     *
+     * @param n Index of the desired element, where 0 is the top of the stack, 1 is the next element down, and so on.
+     * @return the n'th object down the stack
+     * @throws EmptyStackException if there are not enough elements in this stack
+     */
+    public E peek( int n )
+    {
+        if ( n < 0 )
+        {
+            throw new IndexOutOfBoundsException( "Negative stack index: " + n );
+        }
+        int index = size - 1 - n;
+        if ( index < 0 )
+        {
+            throw new EmptyStackException();
+        }
+        return elementAt( index );
+    }
+
+    /**
+     * Returns the element at the given position, where 0 is the bottom of the stack and <code>size() - 1</code> the
+     * top.
+     *
+     * @param index the element position
+     * @return the element at the given position
+     */
+    public E get( int index )
+    {
+        if ( index < 0 || index >= size )
+        {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+        }
+        return elementAt( index );
+    }
+
+    /**
+     * Returns the number of elements in this stack.
+     *
+     * @return the number of elements in this stack
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Tests if this stack is empty.
+     *
+     * @return true, if this stack contains no elements, false otherwise
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Removes all of the elements from this stack.
+     */
+    public void clear()
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            elements[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Copies the elements of this stack into a new <code>java.util.Stack</code>, preserving their order.
+     *
+     * @return a new <code>java.util.Stack</code> containing the elements of this stack
+     */
+    public Stack<E> toStack()
+    {
+        Stack<E> stack = new Stack<E>();
+        stack.ensureCapacity( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            stack.push( elementAt( i ) );
+        }
+        return stack;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder str = new StringBuilder( "[" );
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( i > 0 )
+            {
+                str.append( ", " );
+            }
+            str.append( elements[i] );
+        }
+        return str.append( ']' ).toString();
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private E elementAt( int index )
+    {
+        return (E) elements[index];
+    }
+
+}
@@ -44,6 +44,11 @@ import org.xml.sax.Attributes;
  * Using the second method and the {@link ExtendedBaseRules} child match pattern, all the child elements can be
  * automatically mapped to properties on the parent object.
  * </p>
+ * <p>
+ * The first time a property is set on an object of a given class, the rule binds the property write method, that is
+ * then invoked directly (after the body text conversion) for all the following elements. <code>DynaBean</code>
+ * targets, as well as nested, indexed, mapped and array properties, are still handled by <code>BeanUtils</code>.
+ * </p>
  */
 public class BeanPropertySetterRule
     extends Rule
@@ -91,6 +96,11 @@ public class BeanPropertySetterRule
      */
     private String bodyText = null;
 
+    /**
+     * The bound property setters, by target class and property name.
+     */
+    private final PropertyBindings bindings = new PropertyBindings();
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -187,28 +197,11 @@ public class BeanPropertySetterRule
                                                      bodyText ) );
         }
 
-        // Force an exception if the property does not exist
-        // (BeanUtils.setProperty() silently returns in this case)
-        if ( top instanceof DynaBean )
+        // Set the property (with conversion as necessary), forcing an exception if it does not exist
+        if ( !bindings.setProperty( getDigester(), top, property, bodyText ) )
         {
-            DynaProperty desc = ( (DynaBean) top ).getDynaClass().getDynaProperty( property );
-            if ( desc == null )
-            {
-                throw new NoSuchMethodException( "Bean has no property named " + property );
-            }
+            checkAndSetProperty( top, property, bodyText );
         }
-        else
-        /* this is a standard JavaBean */
-        {
-            PropertyDescriptor desc = getPropertyDescriptor( top, property );
-            if ( desc == null )
-            {
-                throw new NoSuchMethodException( "Bean has no property named " + property );
-            }
-        }
-
-        // Set the property (with conversion as necessary)
-        setProperty( top, property, bodyText );
     }
 
     /**
@@ -230,4 +223,50 @@ public class BeanPropertySetterRule
         return format( "BeanPropertySetterRule[propertyName=%s]", propertyName );
     }
 
+    /**
+     * Sets the property on the given object, after having checked it exists; the operation is recorded if the object
+     * is still to be created.
+     */
+    private static void checkAndSetProperty( Object top, final String property, final String value )
+        throws Exception
+    {
+        if ( top instanceof DeferredInstance )
+        {
+            ( (DeferredInstance) top ).record( new DeferredInstance.Invocation()
+            {
+
+                public void invoke( Object instance )
+                    throws Exception
+                {
+                    checkAndSetProperty( instance, property, value );
+                }
+
+            } );
+            return;
+        }
+
+        // Force an exception if the property does not exist
+        // (BeanUtils.setProperty() silently returns in this case)
+        if ( top instanceof DynaBean )
+        {
+            DynaProperty desc = ( (DynaBean) top ).getDynaClass().getDynaProperty( property );
+            if ( desc == null )
+            {
+                throw new NoSuchMethodException( "Bean has no property named " + property );
+            }
+        }
+        else
+        /* this is a standard JavaBean */
+        {
+            PropertyDescriptor desc = getPropertyDescriptor( top, property );
+            if ( desc == null )
+            {
+                throw new NoSuchMethodException( "Bean has no property named " + property );
+            }
+        }
+
+        // Set the property (with conversion as necessary)
+        setProperty( top, property, value );
+    }
+
 }
@@ -0,0 +1,330 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+
+/**
+ * <p>
+ * <code>Rules</code> <em>Decorator</em> that caches the rules matching the most recently seen element paths.
+ * </p>
+ * <p>
+ * Documents usually repeat the same few element paths many times, so caching the matches avoids computing them again
+ * and again, which can be expensive for implementations like {@link ExtendedBaseRules} or {@link RegexRules}. Matches
+ * are cached by namespace URI and pattern, up to the configured maximum number of entries; the least recently used
+ * entries are evicted first. The cached lists are immutable copies of the ones returned by the wrapped implementation.
+ * </p>
+ * <p>
+ * For example,
+ * 
+ * <pre>
+ *   CachingRulesWrapper rules = new CachingRulesWrapper( new ExtendedBaseRules(), 500 );
+ *   ...
+ *   digester.setRules( rules );
+ *   ...
+ * </pre>
+ * </p>
+ * <p>
+ * The cache is emptied whenever a rule is added or the rules are cleared through this wrapper; rules must not be added
+ * directly to the wrapped implementation once it has been decorated. The wrapped implementation is expected to select
+ * the matching rules by namespace URI and pattern only, as all the <code>Rules</code> implementations provided by
+ * Digester do, since the element name and attributes are not part of the cache key.
+ * </p>
+ * <p>
+ * When using plugins, decorate the <code>Rules</code> the
+ * {@link org.apache.commons.digester3.plugins.PluginRules PluginRules} delegates to, like
+ * <code>new PluginRules( new CachingRulesWrapper( new RulesBase() ) )</code>, since plugin rules expect to find the
+ * <code>PluginRules</code> instance itself set on the <code>Digester</code>.
+ * </p>
+ * <p>
+ * <code>CachingRulesWrapper</code> follows the <em>Decorator</em> pattern.
+ * </p>
+ * 
+ * @since 3.3
+ */
+public class CachingRulesWrapper
+    implements Rules
+{
+
+    /** The default maximum number of cached matches. */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    // --------------------------------------------------------- Fields
+
+    /** The Rules implementation that this class wraps. */
+    private final Rules wrappedRules;
+
+    /** The maximum number of cached matches. */
+    private final int maxSize;
+
+    /** The cached matches, least recently used first. */
+    private final Map<MatchKey, List<Rule>> cache;
+
+    /** The number of matches served from the cache. */
+    private long hitCount = 0;
+
+    /** The number of matches delegated to the wrapped implementation. */
+    private long missCount = 0;
+
+    // --------------------------------------------------------- Constructor
+
+    /**
+     * Builds a wrapper caching up to {@link #DEFAULT_MAX_SIZE} matches.
+     *
+     * @param wrappedRules the wrapped <code>Rules</code> implementation, not null
+     */
+    public CachingRulesWrapper( Rules wrappedRules )
+    {
+        this( wrappedRules, DEFAULT_MAX_SIZE );
+    }
+
+    /**
+     * Builds a wrapper caching up to the given number of matches.
+     *
+     * @param wrappedRules the wrapped <code>Rules</code> implementation, not null
+     * @param maxSize the maximum number of cached matches, greater than zero
+     */
+    public CachingRulesWrapper( Rules wrappedRules, int maxSize )
+    {
+        if ( wrappedRules == null )
+        {
+            throw new IllegalArgumentException( "Wrapped rules must not be null" );
+        }
+        if ( maxSize < 1 )
+        {
+            throw new IllegalArgumentException( "Max cache size must be greater than zero, was " + maxSize );
+        }
+        this.wrappedRules = wrappedRules;
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<MatchKey, List<Rule>>( 16, 0.75f, true )
+        {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<MatchKey, List<Rule>> eldest )
+            {
+                return size() > CachingRulesWrapper.this.maxSize;
+            }
+
+        };
+    }
+
+    // --------------------------------------------------------- Properties
+
+    /**
+     * {@inheritDoc}
+     */
+    public Digester getDigester()
+    {
+        return wrappedRules.getDigester();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setDigester( Digester digester )
+    {
+        wrappedRules.setDigester( digester );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getNamespaceURI()
+    {
+        return wrappedRules.getNamespaceURI();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setNamespaceURI( String namespaceURI )
+    {
+        wrappedRules.setNamespaceURI( namespaceURI );
+    }
+
+    /**
+     * Gets the wrapped <code>Rules</code> implementation.
+     *
+     * @return the wrapped <code>Rules</code> implementation
+     */
+    public Rules getWrappedRules()
+    {
+        return wrappedRules;
+    }
+
+    /**
+     * Gets the maximum number of cached matches.
+     *
+     * @return the maximum number of cached matches
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of currently cached matches.
+     *
+     * @return the number of currently cached matches
+     */
+    public int getSize()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Gets the number of matches served from the cache.
+     *
+     * @return the number of matches served from the cache
+     */
+    public long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of matches that were not cached, so they were delegated to the wrapped implementation.
+     *
+     * @return the number of matches delegated to the wrapped implementation
+     */
+    public long getMissCount()
+    {
+        return missCount;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Rule> match( String namespaceURI, String pattern, String name, Attributes attributes )
+    {
+        MatchKey key = new MatchKey( namespaceURI, pattern );
+        List<Rule> matches = cache.get( key );
+        if ( matches != null )
+        {
+            hitCount++;
+            return matches;
+        }
+
+        missCount++;
+        matches = wrappedRules.match( namespaceURI, pattern, name, attributes );
+        if ( matches == null || matches.isEmpty() )
+        {
+            matches = new ArrayList<Rule>( 0 );
+        }
+        else
+        {
+            matches = new ArrayList<Rule>( matches );
+        }
+        matches = unmodifiableList( matches );
+        cache.put( key, matches );
+        return matches;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Rule> rules()
+    {
+        return wrappedRules.rules();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear()
+    {
+        wrappedRules.clear();
+        cache.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void add( String pattern, Rule rule )
+    {
+        wrappedRules.add( pattern, rule );
+        cache.clear();
+    }
+
+    /**
+     * Discards all the cached matches and resets the hit and miss counters.
+     */
+    public void reset()
+    {
+        cache.clear();
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /** The cache key, namespace URI and pattern */
+    private static final class MatchKey
+    {
+
+        private final String namespaceURI;
+
+        private final String pattern;
+
+        MatchKey( String namespaceURI, String pattern )
+        {
+            this.namespaceURI = namespaceURI;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int result = pattern == null ? 0 : pattern.hashCode();
+            return 31 * result + ( namespaceURI == null ? 0 : namespaceURI.hashCode() );
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !( obj instanceof MatchKey ) )
+            {
+                return false;
+            }
+            MatchKey other = (MatchKey) obj;
+            return equal( pattern, other.pattern ) && equal( namespaceURI, other.namespaceURI );
+        }
+
+        private static boolean equal( String a, String b )
+        {
+            return a == null ? b == null : a.equals( b );
+        }
+
+    }
+
+}
@@ -22,10 +22,8 @@ package org.apache.commons.digester3;
 import static java.lang.System.arraycopy;
 import static java.lang.String.format;
 import static java.util.Arrays.fill;
-import static org.apache.commons.beanutils.ConvertUtils.convert;
-import static org.apache.commons.beanutils.MethodUtils.invokeExactMethod;
-import static org.apache.commons.beanutils.MethodUtils.invokeMethod;
 
+import java.lang.reflect.Method;
 import java.util.Formatter;
 
 import org.xml.sax.Attributes;
@@ -250,6 +248,16 @@ public class CallMethodRule
 
     // ----------------------------------------------------- Instance Variables
 
+    /**
+     * The parameters of the methods without parameters.
+     */
+    private static final Object[] EMPTY_PARAMETERS = new Object[0];
+
+    /**
+     * The parameter types of the methods without parameters.
+     */
+    private static final Class<?>[] EMPTY_CLASS_ARRAY = new Class<?>[0];
+
     /**
      * The body text collected from this element.
      */
@@ -288,6 +296,22 @@ public class CallMethodRule
      */
     private boolean useExactMatch = false;
 
+    /**
+     * The methods resolved so far, by target class.
+     */
+    private MethodInvocationCache methodInvocations;
+
+    /**
+     * The parameter frames released once the method has been invoked, reused by the following elements.
+     */
+    private final ArrayStack<Object[]> freeParamFrames = new ArrayStack<Object[]>();
+
+    /**
+     * The array holding the converted parameter values, reused by the following invocations; <code>null</code> while
+     * in use.
+     */
+    private Object[] freeParamValues;
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -348,8 +372,7 @@ public class CallMethodRule
         // Push an array to capture the parameter values if necessary
         if ( paramCount > 0 )
         {
-            Object parameters[] = new Object[paramCount];
-            fill( parameters, null );
+            Object parameters[] = freeParamFrames.isEmpty() ? new Object[paramCount] : freeParamFrames.pop();
             getDigester().pushParams( parameters );
         }
     }
@@ -403,6 +426,7 @@ public class CallMethodRule
             // parameter, but it always has been so we can't change it now.
             if ( paramCount == 1 && parameters[0] == null )
             {
+                releaseParamFrame( parameters );
                 return;
             }
 
@@ -420,39 +444,43 @@ public class CallMethodRule
                 return;
             }
 
-            parameters = new Object[] { bodyText };
-            if ( paramTypes.length == 0 )
-            {
-                paramTypes = new Class[] { String.class };
-            }
+            // the body text is the only parameter, no need to wrap it in an array
+            parameters = null;
         }
         else
         {
             // When paramCount is zero and paramTypes.length is zero it
             // means that we truly are calling a method with no parameters.
             // Nothing special needs to be done here.
-            parameters = new Object[0];
-            paramTypes = new Class<?>[0];
+            parameters = EMPTY_PARAMETERS;
+            paramTypes = EMPTY_CLASS_ARRAY;
         }
 
         // Construct the parameter values array we will need
         // We only do the conversion if the param value is a String and
         // the specified paramType is not String.
-        Object[] paramValues = new Object[paramTypes.length];
+        Object[] paramValues = acquireParamValues( paramTypes.length );
         for ( int i = 0; i < paramTypes.length; i++ )
         {
+            Object parameter = parameters != null ? parameters[i] : bodyText;
+
             // convert nulls and convert stringy parameters
             // for non-stringy param types
-            if ( parameters[i] == null
-                || ( parameters[i] instanceof String && !String.class.isAssignableFrom( paramTypes[i] ) ) )
+            if ( parameter == null
+                || ( parameter instanceof String && !String.class.isAssignableFrom( paramTypes[i] ) ) )
             {
-                paramValues[i] = convert( (String) parameters[i], paramTypes[i] );
+                paramValues[i] = getDigester().convert( (String) parameter, paramTypes[i] );
             }
             else
             {
-                paramValues[i] = parameters[i];
+                paramValues[i] = parameter;
             }
         }
+        if ( paramCount > 0 )
+        {
+            // the values have been converted, the frame can be reused
+            releaseParamFrame( parameters );
+        }
 
         // Determine the target object for the method call
         Object target;
@@ -487,19 +515,29 @@ public class CallMethodRule
             getDigester().getLogger().debug( formatter.toString() );
         }
 
-        Object result = null;
-        if ( useExactMatch )
+        if ( target instanceof DeferredInstance )
         {
-            // invoke using exact match
-            result = invokeExactMethod( target, methodName, paramValues, paramTypes );
+            // the target is still to be created, the invocation is replayed once it is
+            DeferredInstance deferred = (DeferredInstance) target;
+            final Method method = getMethodInvocations().resolve( deferred.getType(), paramTypes );
+            final Object[] args = paramValues;
+            deferred.record( new DeferredInstance.Invocation()
+            {
 
-        }
-        else
-        {
-            // invoke using fuzzier match
-            result = invokeMethod( target, methodName, paramValues, paramTypes );
+                public void invoke( Object instance )
+                    throws Exception
+                {
+                    processMethodCallResult( method.invoke( instance, args ) );
+                }
+
+            } );
+            return;
         }
 
+        // invoke using either exact or fuzzier match, the method is resolved once per target class
+        Object result = getMethodInvocations().invoke( target, paramValues, paramTypes );
+        releaseParamValues( paramValues );
+
         processMethodCallResult( result );
     }
 
@@ -523,6 +561,57 @@ public class CallMethodRule
         // do nothing
     }
 
+    /**
+     * Makes the given parameter frame, popped from the digester parameters stack, available to the following elements.
+     */
+    private void releaseParamFrame( Object[] parameters )
+    {
+        if ( parameters != null && parameters.length == paramCount )
+        {
+            fill( parameters, null );
+            freeParamFrames.push( parameters );
+        }
+    }
+
+    /**
+     * Return an array to hold the given number of converted parameter values, reusing the released one if possible.
+     */
+    private Object[] acquireParamValues( int length )
+    {
+        Object[] paramValues = freeParamValues;
+        if ( paramValues == null || paramValues.length != length )
+        {
+            return new Object[length];
+        }
+        freeParamValues = null;
+        return paramValues;
+    }
+
+    /**
+     * Makes the given array of converted parameter values, no longer referenced, available to the following
+     * invocations.
+     */
+    private void releaseParamValues( Object[] paramValues )
+    {
+        fill( paramValues, null );
+        freeParamValues = paramValues;
+    }
+
+    /**
+     * Return the cache of the methods to be invoked, creating a new one if the method name or the matching strategy
+     * changed.
+     *
+     * @return the cache of the methods to be invoked
+     */
+    private MethodInvocationCache getMethodInvocations()
+    {
+        if ( methodInvocations == null || !methodInvocations.isFor( methodName, useExactMatch ) )
+        {
+            methodInvocations = new MethodInvocationCache( methodName, useExactMatch );
+        }
+        return methodInvocations;
+    }
+
     /**
      * {@inheritDoc}
      */
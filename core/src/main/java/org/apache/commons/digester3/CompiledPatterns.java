@@ -0,0 +1,346 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Immutable, compiled form of a sequence of rule registrations, each one made of a pattern and an optional namespace
+ * URI, that selects the registrations matching an element with the same policy implemented by {@link RulesBase}.
+ * </p>
+ * <p>
+ * All the matching structures are computed once, when the instance is created, and never modified later, so a single
+ * instance can be safely shared by any number of concurrently parsing <code>Digester</code>s; the rule instances are
+ * bound to the registrations by the per-<code>Digester</code> {@link CompiledRules}.
+ * </p>
+ * <p>
+ * The registrations selected for an element are identified by a <em>result</em> number, from 0 (inclusive) to
+ * {@link #getResultsCount()} (exclusive), so that per-<code>Digester</code> views can cache the corresponding rule
+ * lists in an array.
+ * </p>
+ *
+ * @since 3.3
+ */
+public final class CompiledPatterns
+{
+
+    /**
+     * The result number returned when no registration matches.
+     */
+    public static final int NO_MATCH = -1;
+
+    private static final int[] NO_REGISTRATIONS = new int[0];
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The patterns of the registrations, as registered.
+     */
+    private final String[] patterns;
+
+    /**
+     * The registration indexes of each result.
+     */
+    private final int[][] results;
+
+    /**
+     * The result selected by each distinct pattern when the element has no namespace URI.
+     */
+    private final int[] anyNamespaceResults;
+
+    /**
+     * The result selected by each distinct pattern when the element namespace URI is not bound to any of the pattern
+     * registrations.
+     */
+    private final int[] noNamespaceResults;
+
+    /**
+     * The result selected by each distinct pattern, keyed by the namespace URIs of the pattern registrations.
+     */
+    private final List<Map<String, Integer>> namespaceResults;
+
+    /**
+     * The distinct exact match patterns, by pattern.
+     */
+    private final Map<String, Integer> exactPatterns;
+
+    /**
+     * The distinct patterns, split in segments.
+     */
+    private final PatternsTree<Integer> patternsTree;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Compiles the given registrations.
+     *
+     * @param patterns the patterns of the registrations, in registration order
+     * @param namespaceURIs the namespace URIs of the registrations, <code>null</code> elements for registrations
+     *            not bound to any namespace
+     */
+    public CompiledPatterns( List<String> patterns, List<String> namespaceURIs )
+    {
+        if ( patterns == null || namespaceURIs == null )
+        {
+            throw new IllegalArgumentException( "Patterns and namespace URIs must not be null" );
+        }
+        if ( patterns.size() != namespaceURIs.size() )
+        {
+            throw new IllegalArgumentException( "Found " + patterns.size() + " patterns but " + namespaceURIs.size()
+                + " namespace URIs" );
+        }
+
+        this.patterns = patterns.toArray( new String[patterns.size()] );
+
+        // group the registrations by distinct pattern, preserving the registration order
+        Map<String, List<Integer>> registrationsByPattern = new LinkedHashMap<String, List<Integer>>();
+        for ( int i = 0; i < this.patterns.length; i++ )
+        {
+            String pattern = normalize( this.patterns[i] );
+            List<Integer> registrations = registrationsByPattern.get( pattern );
+            if ( registrations == null )
+            {
+                registrations = new ArrayList<Integer>();
+                registrationsByPattern.put( pattern, registrations );
+            }
+            registrations.add( i );
+        }
+
+        int patternsCount = registrationsByPattern.size();
+        List<int[]> resultsList = new ArrayList<int[]>();
+        anyNamespaceResults = new int[patternsCount];
+        noNamespaceResults = new int[patternsCount];
+        namespaceResults = new ArrayList<Map<String, Integer>>( patternsCount );
+        exactPatterns = new HashMap<String, Integer>();
+        patternsTree = new PatternsTree<Integer>();
+
+        int patternIndex = 0;
+        for ( Map.Entry<String, List<Integer>> entry : registrationsByPattern.entrySet() )
+        {
+            String pattern = entry.getKey();
+            List<Integer> registrations = entry.getValue();
+
+            anyNamespaceResults[patternIndex] = addResult( resultsList, registrations, namespaceURIs, null, true );
+
+            Map<String, Integer> byNamespace = new HashMap<String, Integer>();
+            for ( Integer registration : registrations )
+            {
+                String namespaceURI = namespaceURIs.get( registration );
+                if ( namespaceURI != null && !byNamespace.containsKey( namespaceURI ) )
+                {
+                    byNamespace.put( namespaceURI,
+                                     addResult( resultsList, registrations, namespaceURIs, namespaceURI, false ) );
+                }
+            }
+            if ( byNamespace.isEmpty() )
+            {
+                // all the registrations match any namespace
+                noNamespaceResults[patternIndex] = anyNamespaceResults[patternIndex];
+                namespaceResults.add( Collections.<String, Integer> emptyMap() );
+            }
+            else
+            {
+                noNamespaceResults[patternIndex] =
+                    addResult( resultsList, registrations, namespaceURIs, null, false );
+                namespaceResults.add( byNamespace );
+            }
+
+            if ( !pattern.startsWith( "*/" ) )
+            {
+                exactPatterns.put( pattern, patternIndex );
+            }
+            patternsTree.put( pattern, patternIndex );
+
+            patternIndex++;
+        }
+
+        results = resultsList.toArray( new int[resultsList.size()][] );
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return the number of registrations.
+     *
+     * @return the number of registrations
+     */
+    public int size()
+    {
+        return patterns.length;
+    }
+
+    /**
+     * Return the pattern of the given registration, as registered.
+     *
+     * @param registration the registration index
+     * @return the pattern of the given registration
+     */
+    public String getPattern( int registration )
+    {
+        return patterns[registration];
+    }
+
+    /**
+     * Return the number of distinct results {@link #match(String, ElementPath)} can return.
+     *
+     * @return the number of distinct results
+     */
+    public int getResultsCount()
+    {
+        return results.length;
+    }
+
+    /**
+     * Return the indexes of the registrations selected by the given result, in registration order.
+     *
+     * @param result the result number, or {@link #NO_MATCH}
+     * @return the indexes of the registrations selected by the given result
+     */
+    public int[] getRegistrations( int result )
+    {
+        if ( result == NO_MATCH )
+        {
+            return NO_REGISTRATIONS;
+        }
+        return results[result].clone();
+    }
+
+    /**
+     * Selects the registrations matching the given element path.
+     *
+     * @param namespaceURI Namespace URI for which to select matching registrations, or <code>null</code> to match
+     *            regardless of namespace URI
+     * @param path the element path
+     * @return the result number, or {@link #NO_MATCH}
+     */
+    public int match( String namespaceURI, ElementPath path )
+    {
+        int result = NO_MATCH;
+
+        Integer exactPattern = patternsTree.matchExact( path );
+        if ( exactPattern != null )
+        {
+            result = select( exactPattern, namespaceURI );
+        }
+
+        if ( result == NO_MATCH || results[result].length == 0 )
+        {
+            // Find the longest key, ie more discriminant
+            Integer longPattern = patternsTree.matchWildcard( path );
+            if ( longPattern != null )
+            {
+                result = select( longPattern, namespaceURI );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Selects the registrations matching the given <code>'/'</code> separated element path.
+     *
+     * @param namespaceURI Namespace URI for which to select matching registrations, or <code>null</code> to match
+     *            regardless of namespace URI
+     * @param path the <code>'/'</code> separated element path
+     * @return the result number, or {@link #NO_MATCH}
+     */
+    public int match( String namespaceURI, String path )
+    {
+        int result = NO_MATCH;
+
+        Integer exactPattern = exactPatterns.get( path );
+        if ( exactPattern != null )
+        {
+            result = select( exactPattern, namespaceURI );
+        }
+
+        if ( result == NO_MATCH || results[result].length == 0 )
+        {
+            // Find the longest key, ie more discriminant
+            Integer longPattern = patternsTree.matchWildcard( path );
+            if ( longPattern != null )
+            {
+                result = select( longPattern, namespaceURI );
+            }
+        }
+        return result;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private int select( int pattern, String namespaceURI )
+    {
+        if ( namespaceURI == null || namespaceURI.length() == 0 )
+        {
+            return anyNamespaceResults[pattern];
+        }
+        Integer result = namespaceResults.get( pattern ).get( namespaceURI );
+        if ( result == null )
+        {
+            return noNamespaceResults[pattern];
+        }
+        return result;
+    }
+
+    /**
+     * Adds a new result, made of the given registrations bound to the given namespace URI or to none.
+     */
+    private static int addResult( List<int[]> results, List<Integer> registrations, List<String> namespaceURIs,
+                                  String namespaceURI, boolean anyNamespace )
+    {
+        List<Integer> selected = new ArrayList<Integer>();
+        for ( Integer registration : registrations )
+        {
+            String registrationNamespaceURI = namespaceURIs.get( registration );
+            if ( anyNamespace || registrationNamespaceURI == null
+                || registrationNamespaceURI.equals( namespaceURI ) )
+            {
+                selected.add( registration );
+            }
+        }
+
+        int[] result = new int[selected.size()];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = selected.get( i );
+        }
+        results.add( result );
+        return results.size() - 1;
+    }
+
+    /**
+     * Removes the trailing <code>'/'</code>, as done by {@link RulesBase} when registering rules.
+     */
+    private static String normalize( String pattern )
+    {
+        int patternLength = pattern.length();
+        if ( patternLength > 1 && pattern.endsWith( "/" ) )
+        {
+            return pattern.substring( 0, patternLength - 1 );
+        }
+        return pattern;
+    }
+
+}
@@ -0,0 +1,238 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+
+/**
+ * <p>
+ * <code>Rules</code> implementation that binds a set of <code>Rule</code> instances, owned by a single
+ * <code>Digester</code>, to a shared {@link CompiledPatterns}, following the same matching policy of
+ * {@link RulesBase}.
+ * </p>
+ * <p>
+ * Creating an instance doesn't require any pattern parsing or matching structure to be built, since all of them are
+ * held by the immutable <code>CompiledPatterns</code>; the rule lists returned by the <code>match</code> methods are
+ * built once per distinct result and then reused. This makes it cheap to create a new <code>Digester</code> for each
+ * document to be parsed, while sharing one <code>CompiledPatterns</code> among all of them; see
+ * {@link org.apache.commons.digester3.binder.DigesterLoader#setCompileRules(boolean)}.
+ * </p>
+ * <p>
+ * If new rules are added (or all rules are cleared) after creation, the instance silently switches to a private
+ * {@link RulesBase}, initialized with the bound rules, and the shared <code>CompiledPatterns</code> is no longer used.
+ * </p>
+ *
+ * @since 3.3
+ */
+public class CompiledRules
+    extends AbstractRulesImpl
+{
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The shared compiled patterns.
+     */
+    private final CompiledPatterns compiledPatterns;
+
+    /**
+     * The bound rules, in registration order.
+     */
+    private final Rule[] boundRules;
+
+    /**
+     * The unmodifiable view of the bound rules.
+     */
+    private final List<Rule> boundRulesList;
+
+    /**
+     * The rule lists built so far, by result number.
+     */
+    private final List<List<Rule>> results;
+
+    /**
+     * The private rules used once the bound rules have been changed, <code>null</code> until then.
+     */
+    private RulesBase modifiedRules;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Binds the given rules to the given compiled patterns.
+     *
+     * @param compiledPatterns the shared compiled patterns
+     * @param rules the rules to be bound, one for each compiled pattern registration, in the same order
+     */
+    public CompiledRules( CompiledPatterns compiledPatterns, List<? extends Rule> rules )
+    {
+        if ( compiledPatterns == null || rules == null )
+        {
+            throw new IllegalArgumentException( "Compiled patterns and rules must not be null" );
+        }
+        if ( compiledPatterns.size() != rules.size() )
+        {
+            throw new IllegalArgumentException( "Found " + rules.size() + " rules for " + compiledPatterns.size()
+                + " compiled patterns" );
+        }
+
+        this.compiledPatterns = compiledPatterns;
+        this.boundRules = rules.toArray( new Rule[rules.size()] );
+        this.boundRulesList = unmodifiableList( asList( boundRules ) );
+
+        int resultsCount = compiledPatterns.getResultsCount();
+        this.results = new ArrayList<List<Rule>>( resultsCount );
+        for ( int i = 0; i < resultsCount; i++ )
+        {
+            results.add( null );
+        }
+    }
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setDigester( Digester digester )
+    {
+        super.setDigester( digester );
+        if ( modifiedRules != null )
+        {
+            modifiedRules.setDigester( digester );
+        }
+        else
+        {
+            for ( Rule rule : boundRules )
+            {
+                rule.setDigester( digester );
+            }
+        }
+    }
+
+    /**
+     * Return the shared compiled patterns the rules are bound to.
+     *
+     * @return the shared compiled patterns the rules are bound to
+     */
+    public CompiledPatterns getCompiledPatterns()
+    {
+        return compiledPatterns;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * {@inheritDoc}
+     */
+    public void clear()
+    {
+        modifiedRules = new RulesBase();
+        modifiedRules.setDigester( getDigester() );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Rule> match( String namespaceURI, String pattern, String name, Attributes attributes )
+    {
+        if ( modifiedRules != null )
+        {
+            return modifiedRules.match( namespaceURI, pattern, name, attributes );
+        }
+        return getResult( compiledPatterns.match( namespaceURI, pattern ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Rule> match( String namespaceURI, ElementPath path, String name, Attributes attributes )
+    {
+        if ( modifiedRules != null )
+        {
+            return modifiedRules.match( namespaceURI, path, name, attributes );
+        }
+        return getResult( compiledPatterns.match( namespaceURI, path ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<Rule> rules()
+    {
+        if ( modifiedRules != null )
+        {
+            return modifiedRules.rules();
+        }
+        return boundRulesList;
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void registerRule( String pattern, Rule rule )
+    {
+        if ( modifiedRules == null )
+        {
+            modifiedRules = new RulesBase();
+            modifiedRules.setDigester( getDigester() );
+            for ( int i = 0; i < boundRules.length; i++ )
+            {
+                modifiedRules.registerRule( compiledPatterns.getPattern( i ), boundRules[i] );
+            }
+        }
+        modifiedRules.registerRule( pattern, rule );
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private List<Rule> getResult( int result )
+    {
+        if ( result == CompiledPatterns.NO_MATCH )
+        {
+            return emptyList();
+        }
+
+        List<Rule> rules = results.get( result );
+        if ( rules == null )
+        {
+            int[] registrations = compiledPatterns.getRegistrations( result );
+            Rule[] selected = new Rule[registrations.length];
+            for ( int i = 0; i < registrations.length; i++ )
+            {
+                selected[i] = boundRules[registrations[i]];
+            }
+            rules = unmodifiableList( asList( selected ) );
+            results.set( result, rules );
+        }
+        return rules;
+    }
+
+}
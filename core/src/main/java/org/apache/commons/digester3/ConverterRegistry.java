@@ -0,0 +1,319 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.beanutils.ConvertUtils;
+import org.apache.commons.beanutils.Converter;
+
+/**
+ * <p>
+ * Registry of the converters used by a {@link Digester} to convert the text found in the parsed document to the types
+ * expected by the invoked constructors, methods and property setters.
+ * </p>
+ * <p>
+ * The conversions to primitive types, to their wrappers and to <code>String</code> are precompiled and behave like the
+ * <code>BeanUtils</code> default converters do: values are trimmed, <code>boolean</code> values can be expressed as
+ * <code>true/false</code>, <code>yes/no</code>, <code>y/n</code>, <code>on/off</code> or <code>1/0</code>, and
+ * missing or invalid values are converted to the default value of the type (zero, <code>false</code> or a space);
+ * integral numbers are parsed straight from the given <code>CharSequence</code>. They don't go through the global,
+ * synchronized, <code>ConvertUtils</code> registry; all the other conversions are still delegated to it, unless a
+ * converter for the target type has been registered in this registry.
+ * </p>
+ * <p>
+ * Converters should be registered before the registry is set on a {@link Digester}; registries can then be safely
+ * shared among digesters, even if used by different threads.
+ * </p>
+ *
+ * @since 3.3
+ */
+public final class ConverterRegistry
+{
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The registered converters, copied on write.
+     */
+    private volatile Map<Class<?>, Converter> converters = new HashMap<Class<?>, Converter>();
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Registers a converter for the given type, it will be used in place of the precompiled or global one.
+     *
+     * @param type the target type
+     * @param converter the converter, or <code>null</code> to remove a previously registered one
+     * @return this registry instance, useful to chain methods
+     */
+    public synchronized ConverterRegistry register( Class<?> type, Converter converter )
+    {
+        if ( type == null )
+        {
+            throw new IllegalArgumentException( "Type must not be null" );
+        }
+
+        Map<Class<?>, Converter> newConverters = new HashMap<Class<?>, Converter>( converters );
+        if ( converter == null )
+        {
+            newConverters.remove( type );
+        }
+        else
+        {
+            newConverters.put( type, converter );
+        }
+        converters = newConverters;
+        return this;
+    }
+
+    /**
+     * Return the converter registered for the given type, if any.
+     *
+     * @param type the target type
+     * @return the converter registered for the given type, <code>null</code> if none
+     */
+    public Converter lookup( Class<?> type )
+    {
+        return converters.get( type );
+    }
+
+    /**
+     * Converts the given value to the given type.
+     *
+     * @param value the value to be converted, may be <code>null</code>
+     * @param type the target type
+     * @return the converted value
+     */
+    public Object convert( CharSequence value, Class<?> type )
+    {
+        Converter converter = converters.get( type );
+        if ( converter != null )
+        {
+            return converter.convert( type, value != null ? value.toString() : null );
+        }
+
+        if ( type == String.class )
+        {
+            return value != null ? value.toString() : null;
+        }
+        if ( type == int.class || type == Integer.class )
+        {
+            return Integer.valueOf( toInt( value ) );
+        }
+        if ( type == long.class || type == Long.class )
+        {
+            return Long.valueOf( toLong( value ) );
+        }
+        if ( type == boolean.class || type == Boolean.class )
+        {
+            return Boolean.valueOf( toBoolean( value ) );
+        }
+        if ( type == double.class || type == Double.class )
+        {
+            return Double.valueOf( toDouble( value ) );
+        }
+        if ( type == float.class || type == Float.class )
+        {
+            String trimmed = trim( value );
+            try
+            {
+                return Float.valueOf( trimmed != null ? Float.parseFloat( trimmed ) : 0F );
+            }
+            catch ( NumberFormatException e )
+            {
+                return Float.valueOf( 0F );
+            }
+        }
+        if ( type == short.class || type == Short.class )
+        {
+            int i = toInt( value );
+            return Short.valueOf( i == (short) i ? (short) i : 0 );
+        }
+        if ( type == byte.class || type == Byte.class )
+        {
+            int i = toInt( value );
+            return Byte.valueOf( i == (byte) i ? (byte) i : 0 );
+        }
+        if ( type == char.class || type == Character.class )
+        {
+            return Character.valueOf( value != null && value.length() > 0 ? value.charAt( 0 ) : ' ' );
+        }
+
+        return ConvertUtils.convert( value != null ? value.toString() : null, type );
+    }
+
+    /**
+     * Converts the given value to <code>int</code>, without creating intermediate objects.
+     *
+     * @param value the value to be converted, may be <code>null</code>
+     * @return the converted value, 0 if missing or invalid
+     */
+    public int toInt( CharSequence value )
+    {
+        return (int) parseLong( value, Integer.MIN_VALUE, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Converts the given value to <code>long</code>, without creating intermediate objects.
+     *
+     * @param value the value to be converted, may be <code>null</code>
+     * @return the converted value, 0 if missing or invalid
+     */
+    public long toLong( CharSequence value )
+    {
+        return parseLong( value, Long.MIN_VALUE, Long.MAX_VALUE );
+    }
+
+    /**
+     * Converts the given value to <code>double</code>.
+     *
+     * @param value the value to be converted, may be <code>null</code>
+     * @return the converted value, 0 if missing or invalid
+     */
+    public double toDouble( CharSequence value )
+    {
+        String trimmed = trim( value );
+        if ( trimmed == null )
+        {
+            return 0D;
+        }
+        try
+        {
+            return Double.parseDouble( trimmed );
+        }
+        catch ( NumberFormatException e )
+        {
+            return 0D;
+        }
+    }
+
+    /**
+     * Converts the given value to <code>boolean</code>.
+     *
+     * @param value the value to be converted, may be <code>null</code>
+     * @return the converted value, false if missing or invalid
+     */
+    public boolean toBoolean( CharSequence value )
+    {
+        if ( value == null )
+        {
+            return false;
+        }
+        switch ( value.length() )
+        {
+            case 1:
+                char c = Character.toLowerCase( value.charAt( 0 ) );
+                return c == 'y' || c == '1';
+            case 2:
+                return equalsIgnoreCase( value, "on" );
+            case 3:
+                return equalsIgnoreCase( value, "yes" );
+            case 4:
+                return equalsIgnoreCase( value, "true" );
+            default:
+                return false;
+        }
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Parses a decimal integral number in the given range, like <code>Long.parseLong()</code> does after having
+     * trimmed the value, returning 0 if missing or invalid.
+     */
+    private static long parseLong( CharSequence value, long min, long max )
+    {
+        if ( value == null )
+        {
+            return 0L;
+        }
+
+        int start = 0;
+        int end = value.length();
+        while ( start < end && value.charAt( start ) <= ' ' )
+        {
+            start++;
+        }
+        while ( end > start && value.charAt( end - 1 ) <= ' ' )
+        {
+            end--;
+        }
+        if ( start == end )
+        {
+            return 0L;
+        }
+
+        boolean negative = false;
+        char first = value.charAt( start );
+        if ( first == '-' || first == '+' )
+        {
+            negative = first == '-';
+            if ( ++start == end )
+            {
+                return 0L;
+            }
+        }
+
+        // accumulate negatively, as Long.parseLong does, to handle the minimum value
+        long limit = negative ? min : -max;
+        long multiplicationLimit = limit / 10;
+        long result = 0;
+        for ( int i = start; i < end; i++ )
+        {
+            int digit = Character.digit( value.charAt( i ), 10 );
+            if ( digit < 0 || result < multiplicationLimit )
+            {
+                return 0L;
+            }
+            result *= 10;
+            if ( result < limit + digit )
+            {
+                return 0L;
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static String trim( CharSequence value )
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+        String trimmed = value.toString().trim();
+        return trimmed.length() > 0 ? trimmed : null;
+    }
+
+    private static boolean equalsIgnoreCase( CharSequence value, String lowerCase )
+    {
+        for ( int i = 0; i < lowerCase.length(); i++ )
+        {
+            if ( Character.toLowerCase( value.charAt( i ) ) != lowerCase.charAt( i ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
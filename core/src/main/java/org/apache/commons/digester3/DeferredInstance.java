@@ -0,0 +1,155 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+
+/**
+ * <p>
+ * Placeholder pushed on the object stack by an {@link ObjectCreateRule} that instantiates its objects through a
+ * constructor with arguments without using proxies, see {@link ObjectCreateRule#setUseProxy(boolean)}.
+ * </p>
+ * <p>
+ * The constructor arguments are collected while the element is being processed; meanwhile the rules targeting the
+ * placeholder record the method invocations they would have made on it, then {@link ObjectCreateRule} creates the
+ * actual object when the element ends and replays the recorded invocations, in the same order, on it.
+ * </p>
+ *
+ * @since 3.3
+ */
+final class DeferredInstance
+{
+
+    /**
+     * A deferred operation on the object being created.
+     */
+    interface Invocation
+    {
+
+        /**
+         * Performs the deferred operation.
+         *
+         * @param instance the object that has been created
+         * @throws Exception if any error occurs
+         */
+        void invoke( Object instance )
+            throws Exception;
+
+    }
+
+    // ----------------------------------------------------- Instance Variables
+
+    private final Constructor<?> constructor;
+
+    private final Object[] constructorArguments;
+
+    /**
+     * The recorded invocations, either {@link RecordedInvocation} or {@link Invocation}, in recording order.
+     */
+    private final ArrayList<Object> invocations = new ArrayList<Object>( 4 );
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Creates a new placeholder for an object to be created through the given constructor.
+     *
+     * @param constructor the constructor to be invoked
+     * @param constructorArguments the constructor arguments, filled while processing the element
+     */
+    public DeferredInstance( Constructor<?> constructor, Object[] constructorArguments )
+    {
+        this.constructor = constructor;
+        this.constructorArguments = constructorArguments;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return the class of the object to be created.
+     *
+     * @return the class of the object to be created
+     */
+    public Class<?> getType()
+    {
+        return constructor.getDeclaringClass();
+    }
+
+    /**
+     * Records the invocation of the given method, with the given arguments, on the object to be created.
+     *
+     * @param method the method to be invoked
+     * @param arguments the method arguments
+     */
+    public void record( Method method, Object... arguments )
+    {
+        invocations.add( new RecordedInvocation( method, arguments ) );
+    }
+
+    /**
+     * Records a generic operation on the object to be created.
+     *
+     * @param invocation the operation to be performed
+     */
+    public void record( Invocation invocation )
+    {
+        invocations.add( invocation );
+    }
+
+    /**
+     * Creates the object and replays on it all the recorded invocations.
+     *
+     * @param digester the Digester converting the constructor arguments
+     * @return the created object
+     * @throws Exception if any error occurs while creating the object or replaying the invocations
+     */
+    public Object construct( Digester digester )
+        throws Exception
+    {
+        ObjectCreateRule.convertTo( digester, constructor.getParameterTypes(), constructorArguments );
+        Object instance = constructor.newInstance( constructorArguments );
+
+        for ( Object invocation : invocations )
+        {
+            if ( invocation instanceof RecordedInvocation )
+            {
+                RecordedInvocation recorded = (RecordedInvocation) invocation;
+                recorded.getInvokedMethod().invoke( instance, recorded.getArguments() );
+            }
+            else
+            {
+                ( (Invocation) invocation ).invoke( instance );
+            }
+        }
+        invocations.clear();
+        return instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "DeferredInstance[type=" + getType().getName() + ", invocations=" + invocations.size() + "]";
+    }
+
+}
@@ -46,6 +46,7 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.validation.Schema;
 
+import org.apache.commons.beanutils.ConvertUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.xml.sax.Attributes;
@@ -135,14 +136,25 @@ public class Digester
     // --------------------------------------------------- Instance Variables
 
     /**
-     * The body text of the current element.
+     * The body text of the current element, <code>null</code> when none of the rules matching the current element need
+     * it.
      */
-    private StringBuilder bodyText = new StringBuilder();
+    private StringBuilder bodyText = null;
 
     /**
      * The stack of body text string buffers for surrounding elements.
      */
-    private final Stack<StringBuilder> bodyTexts = new Stack<StringBuilder>();
+    private final ArrayStack<StringBuilder> bodyTexts = new ArrayStack<StringBuilder>();
+
+    /**
+     * The maximum capacity of a body text buffer kept for reuse, larger ones are released after use.
+     */
+    private static final int MAX_POOLED_BODY_TEXT_CAPACITY = 64 * 1024;
+
+    /**
+     * The body text buffers reused across elements, indexed by element depth.
+     */
+    private StringBuilder[] bodyTextBuffers = new StringBuilder[16];
 
     /**
      * Stack whose elements are List objects, each containing a list of Rule objects as returned from Rules.getMatch().
@@ -152,7 +164,12 @@ public class Digester
      *
      * @since 1.6
      */
-    private final Stack<List<Rule>> matches = new Stack<List<Rule>>();
+    private ArrayStack<List<Rule>> matches = new ArrayStack<List<Rule>>();
+
+    /**
+     * The <code>java.util.Stack</code> holding the {@link #matches}, once requested via {@link #getMatches()}.
+     */
+    private Stack<List<Rule>> legacyMatches;
 
     /**
      * The class loader to use for instantiating application objects. If not specified, the context class loader, or the
@@ -161,6 +178,11 @@ public class Digester
      */
     private ClassLoader classLoader = null;
 
+    /**
+     * The cache of the classes instantiated by the creation rules, lazily created.
+     */
+    private InstantiatorCache instantiatorCache = null;
+
     /**
      * Has this Digester been configured yet.
      */
@@ -192,9 +214,34 @@ public class Digester
     private Locator locator = null;
 
     /**
-     * The current match pattern for nested element processing.
+     * The current match path for nested element processing.
+     */
+    private final ElementPath matchPath = new ElementPath();
+
+    /**
+     * The rules added to the matching rules of the direct children of the elements being processed, by element depth.
      */
-    private String match = "";
+    private List<Rule>[] childElementRules = newRuleLists( 16 );
+
+    /**
+     * The reusable lists holding the merge of the matching rules and the added child element rules, by element depth.
+     */
+    private List<Rule>[] mergedMatches = newRuleLists( 16 );
+
+    /**
+     * The rules to be ended with the elements being processed (or the document, at index 0), by element depth.
+     */
+    private List<Rule>[] elementEndRules = newRuleLists( 16 );
+
+    /**
+     * The number of documents whose parsing has been started, identifying the document being parsed.
+     */
+    private int documentCount = 0;
+
+    /**
+     * The qualified name of the element whose start is being processed, as reported by the parser.
+     */
+    private String currentElementQName;
 
     /**
      * Do we want a "namespace aware" parser.
@@ -213,7 +260,7 @@ public class Digester
      * the most current one. (This architecture is required because documents can declare nested uses of the same prefix
      * for different Namespace URIs).
      */
-    private final HashMap<String, Stack<String>> namespaces = new HashMap<String, Stack<String>>();
+    private final HashMap<String, ArrayStack<String>> namespaces = new HashMap<String, ArrayStack<String>>();
 
     /**
      * Do we want a "XInclude aware" parser.
@@ -225,7 +272,7 @@ public class Digester
      *
      * @since 2.0
      */
-    private final Stack<Object[]> params = new Stack<Object[]>();
+    private final ArrayStack<Object[]> params = new ArrayStack<Object[]>();
 
     /**
      * The SAXParser we will use to parse the input stream.
@@ -263,7 +310,7 @@ public class Digester
     /**
      * The object stack being constructed.
      */
-    private final Stack<Object> stack = new Stack<Object>();
+    private final ArrayStack<Object> stack = new ArrayStack<Object>();
 
     /**
      * Do we want to use the Context ClassLoader when loading classes for instantiating new objects. Default is
@@ -297,8 +344,13 @@ public class Digester
      */
     private Substitutor substitutor;
 
+    /**
+     * The optional registry of the converters used by the rules, <code>ConvertUtils</code> is used if null.
+     */
+    private ConverterRegistry converterRegistry;
+
     /** Stacks used for interrule communication, indexed by name String */
-    private final HashMap<String, Stack<Object>> stacksByName = new HashMap<String, Stack<Object>>();
+    private final HashMap<String, ArrayStack<Object>> stacksByName = new HashMap<String, ArrayStack<Object>>();
 
     /**
      * If not null, then calls by the parser to this object's characters, startElement, endElement and
@@ -325,7 +377,7 @@ public class Digester
      */
     public String findNamespaceURI( String prefix )
     {
-        Stack<String> nsStack = namespaces.get( prefix );
+        ArrayStack<String> nsStack = namespaces.get( prefix );
         if ( nsStack == null )
         {
             return null;
@@ -379,6 +431,22 @@ public class Digester
         this.classLoader = classLoader;
     }
 
+    /**
+     * Return the cache of the classes loaded and instantiated by the object creation rules, like
+     * {@link ObjectCreateRule} and {@link FactoryCreateRule}.
+     *
+     * @return the cache of the classes loaded and instantiated by the object creation rules
+     * @since 3.3
+     */
+    public InstantiatorCache getInstantiatorCache()
+    {
+        if ( instantiatorCache == null )
+        {
+            instantiatorCache = new InstantiatorCache();
+        }
+        return instantiatorCache;
+    }
+
     /**
      * Return the current depth of the element stack.
      *
@@ -396,13 +464,7 @@ public class Digester
      */
     public String getCurrentElementName()
     {
-        String elementName = match;
-        int lastSlash = elementName.lastIndexOf( '/' );
-        if ( lastSlash >= 0 )
-        {
-            elementName = elementName.substring( lastSlash + 1 );
-        }
-        return ( elementName );
+        return ( matchPath.getLastSegment() );
     }
 
     /**
@@ -529,7 +591,19 @@ public class Digester
      */
     public String getMatch()
     {
-        return match;
+        return matchPath.toString();
+    }
+
+    /**
+     * Return the current rule match path as a sequence of element names, which doesn't require the path
+     * <code>String</code> to be built. The returned instance is updated as the parse goes on and must not be modified.
+     *
+     * @return the current rule match path
+     * @since 3.3
+     */
+    public ElementPath getMatchPath()
+    {
+        return matchPath;
     }
 
     /**
@@ -539,8 +613,30 @@ public class Digester
      * @return a Stack whose elements are List objects, each containing a list of
      *         Rule objects as returned from Rules.getMatch().
      * @since 3.0
+     * @deprecated use {@link #getRuleMatches()} instead: the first time this method is called, the matches are moved
+     *             to the returned Stack, which then holds them for the rest of the Digester life, so a stack
+     *             previously returned by {@link #getRuleMatches()} is no longer updated.
      */
+    @Deprecated
     public Stack<List<Rule>> getMatches()
+    {
+        if ( legacyMatches == null )
+        {
+            legacyMatches = matches.toStack();
+            matches = new StackArrayStack<List<Rule>>( legacyMatches );
+        }
+        return legacyMatches;
+    }
+
+    /**
+     * Return the stack whose elements are List objects, each containing a list of
+     * Rule objects as returned from Rules.getMatch().
+     *
+     * @return the stack whose elements are List objects, each containing a list of
+     *         Rule objects as returned from Rules.getMatch().
+     * @since 3.3
+     */
+    public ArrayStack<List<Rule>> getRuleMatches()
     {
         return matches;
     }
@@ -850,6 +946,30 @@ public class Digester
         this.substitutor = substitutor;
     }
 
+    /**
+     * Gets the registry of the converters used by the rules to convert text to the required types.
+     *
+     * @return the registry of the converters used by the rules, null if the global <code>ConvertUtils</code> is used
+     * @since 3.3
+     */
+    public ConverterRegistry getConverterRegistry()
+    {
+        return converterRegistry;
+    }
+
+    /**
+     * Sets the registry of the converters used by the rules to convert text to the required types, in place of the
+     * global <code>ConvertUtils</code> registry.
+     *
+     * @param converterRegistry the registry of the converters used by the rules, or null to use the global
+     *            <code>ConvertUtils</code>
+     * @since 3.3
+     */
+    public void setConverterRegistry( ConverterRegistry converterRegistry )
+    {
+        this.converterRegistry = converterRegistry;
+    }
+
     /**
      * returns the custom SAX ContentHandler where events are redirected.
      *
@@ -939,7 +1059,7 @@ public class Digester
             log.warn( "Digester is not namespace aware" );
         }
         Map<String, String> currentNamespaces = new HashMap<String, String>();
-        for ( Map.Entry<String, Stack<String>> nsEntry : namespaces.entrySet() )
+        for ( Map.Entry<String, ArrayStack<String>> nsEntry : namespaces.entrySet() )
         {
             try
             {
@@ -998,7 +1118,10 @@ public class Digester
             saxLog.debug( "characters(" + new String( buffer, start, length ) + ")" );
         }
 
-        bodyText.append( buffer, start, length );
+        if ( bodyText != null )
+        {
+            bodyText.append( buffer, start, length );
+        }
     }
 
     /**
@@ -1020,9 +1143,15 @@ public class Digester
             }
         }
 
+        fireElementEndRules( 0, "", "" );
+
         // Fire "finish" events for all defined rules
         for ( Rule rule : getRules().rules() )
         {
+            if ( !rule.isCallbackOverridden( Rule.FINISH ) )
+            {
+                continue;
+            }
             try
             {
                 rule.finish();
@@ -1065,7 +1194,7 @@ public class Digester
             {
                 saxLog.debug( "endElement(" + namespaceURI + "," + localName + "," + qName + ")" );
             }
-            log.debug( "  match='" + match + "'" );
+            log.debug( "  match='" + matchPath + "'" );
             log.debug( "  bodyText='" + bodyText + "'" );
         }
 
@@ -1077,21 +1206,34 @@ public class Digester
             name = qName;
         }
 
+        // the rules added for the children of this element are not needed anymore
+        clearChildElementRules( matchPath.getDepth() );
+        fireElementEndRules( matchPath.getDepth(), namespaceURI, name );
+
         // Fire "body" events for all relevant rules
         List<Rule> rules = matches.pop();
         if ( ( rules != null ) && ( rules.size() > 0 ) )
         {
-            String bodyText = this.bodyText.toString();
-            Substitutor substitutor = getSubstitutor();
-            if ( substitutor != null )
+            String bodyText = "";
+            if ( this.bodyText != null )
             {
-                bodyText = substitutor.substitute( bodyText );
+                bodyText = this.bodyText.toString();
+                Substitutor substitutor = getSubstitutor();
+                if ( substitutor != null )
+                {
+                    bodyText = substitutor.substitute( bodyText );
+                }
+                releaseBodyTextBuffer( matchPath.getDepth() - 1 );
             }
             for ( int i = 0; i < rules.size(); i++ )
             {
                 try
                 {
                     Rule rule = rules.get( i );
+                    if ( !rule.isCallbackOverridden( Rule.BODY ) )
+                    {
+                        continue;
+                    }
                     if ( debug )
                     {
                         log.debug( "  Fire body() for " + rule );
@@ -1114,7 +1256,7 @@ public class Digester
         {
             if ( debug )
             {
-                log.debug( "  No rules found matching '" + match + "'." );
+                log.debug( "  No rules found matching '" + matchPath + "'." );
             }
         }
 
@@ -1122,7 +1264,7 @@ public class Digester
         bodyText = bodyTexts.pop();
         if ( debug )
         {
-            log.debug( "  Popping body text '" + bodyText.toString() + "'" );
+            log.debug( "  Popping body text '" + bodyText + "'" );
         }
 
         // Fire "end" events for all relevant rules in reverse order
@@ -1134,6 +1276,10 @@ public class Digester
                 try
                 {
                     Rule rule = rules.get( j );
+                    if ( !rule.isCallbackOverridden( Rule.END ) )
+                    {
+                        continue;
+                    }
                     if ( debug )
                     {
                         log.debug( "  Fire end() for " + rule );
@@ -1154,15 +1300,7 @@ public class Digester
         }
 
         // Recover the previous match expression
-        int slash = match.lastIndexOf( '/' );
-        if ( slash >= 0 )
-        {
-            match = match.substring( 0, slash );
-        }
-        else
-        {
-            match = "";
-        }
+        matchPath.pop();
     }
 
     /**
@@ -1178,7 +1316,7 @@ public class Digester
         }
 
         // Deregister this prefix mapping
-        Stack<String> stack = namespaces.get( prefix );
+        ArrayStack<String> stack = namespaces.get( prefix );
         if ( stack == null )
         {
             return;
@@ -1186,7 +1324,7 @@ public class Digester
         try
         {
             stack.pop();
-            if ( stack.empty() )
+            if ( stack.isEmpty() )
             {
                 namespaces.remove( prefix );
             }
@@ -1289,6 +1427,10 @@ public class Digester
         // the digester could be used as a SAX ContentHandler
         // rather than via the parse() methods.
         configure();
+
+        // the rules left to be ended by a failed parse do not belong to this document
+        clearElementEndRules();
+        documentCount++;
     }
 
     /**
@@ -1316,9 +1458,9 @@ public class Digester
         bodyTexts.push( bodyText );
         if ( debug )
         {
-            log.debug( "  Pushing body text '" + bodyText.toString() + "'" );
+            log.debug( "  Pushing body text '" + bodyText + "'" );
         }
-        bodyText = new StringBuilder();
+        bodyText = null;
 
         // the actual element name is either in localName or qName, depending
         // on whether the parser is namespace aware
@@ -1328,24 +1470,40 @@ public class Digester
             name = qName;
         }
 
+        currentElementQName = qName;
+
         // Compute the current matching rule
-        StringBuilder sb = new StringBuilder( match );
-        if ( match.length() > 0 )
-        {
-            sb.append( '/' );
-        }
-        sb.append( name );
-        match = sb.toString();
+        matchPath.push( name );
         if ( debug )
         {
-            log.debug( "  New match='" + match + "'" );
+            log.debug( "  New match='" + matchPath + "'" );
         }
 
         // Fire "begin" events for all relevant rules
-        List<Rule> rules = getRules().match( namespaceURI, match, localName, list );
+        List<Rule> rules;
+        Rules currentRules = getRules();
+        if ( currentRules instanceof AbstractRulesImpl )
+        {
+            rules = ( (AbstractRulesImpl) currentRules ).match( namespaceURI, matchPath, localName, list );
+        }
+        else
+        {
+            rules = currentRules.match( namespaceURI, matchPath.toString(), localName, list );
+        }
+        rules = addChildElementRules( rules );
         matches.push( rules );
         if ( ( rules != null ) && ( rules.size() > 0 ) )
         {
+            // collect the body text only if somebody is going to use it
+            for ( int i = 0; i < rules.size(); i++ )
+            {
+                if ( rules.get( i ).isBodyTextRequired() )
+                {
+                    bodyText = acquireBodyTextBuffer( matchPath.getDepth() - 1 );
+                    break;
+                }
+            }
+
             Substitutor substitutor = getSubstitutor();
             if ( substitutor != null )
             {
@@ -1356,6 +1514,10 @@ public class Digester
                 try
                 {
                     Rule rule = rules.get( i );
+                    if ( !rule.isCallbackOverridden( Rule.BEGIN ) )
+                    {
+                        continue;
+                    }
                     if ( debug )
                     {
                         log.debug( "  Fire begin() for " + rule );
@@ -1378,7 +1540,7 @@ public class Digester
         {
             if ( debug )
             {
-                log.debug( "  No rules found matching '" + match + "'." );
+                log.debug( "  No rules found matching '" + matchPath + "'." );
             }
         }
     }
@@ -1396,10 +1558,10 @@ public class Digester
         }
 
         // Register this prefix mapping
-        Stack<String> stack = namespaces.get( prefix );
+        ArrayStack<String> stack = namespaces.get( prefix );
         if ( stack == null )
         {
-            stack = new Stack<String>();
+            stack = new ArrayStack<String>();
             namespaces.put( prefix, stack );
         }
         stack.push( namespaceURI );
@@ -2598,13 +2760,19 @@ public class Digester
      */
     public void clear()
     {
-        match = "";
+        matchPath.clear();
+        bodyText = null;
         bodyTexts.clear();
         params.clear();
         publicId = null;
         stack.clear();
         stacksByName.clear();
         customContentHandler = null;
+        for ( int i = 0; i < childElementRules.length; i++ )
+        {
+            clearChildElementRules( i );
+        }
+        clearElementEndRules();
     }
 
     /**
@@ -2638,15 +2806,9 @@ public class Digester
      */
     public <T> T peek( int n )
     {
-        int index = ( stack.size() - 1 ) - n;
-        if ( index < 0 )
-        {
-            log.warn( "Empty stack (returning null)" );
-            return ( null );
-        }
         try
         {
-            return this.<T> npeSafeCast( stack.get( index ) );
+            return this.<T> npeSafeCast( stack.peek( n ) );
         }
         catch ( EmptyStackException e )
         {
@@ -2716,10 +2878,10 @@ public class Digester
             value = stackAction.onPush( this, stackName, value );
         }
 
-        Stack<Object> namedStack = stacksByName.get( stackName );
+        ArrayStack<Object> namedStack = stacksByName.get( stackName );
         if ( namedStack == null )
         {
-            namedStack = new Stack<Object>();
+            namedStack = new ArrayStack<Object>();
             stacksByName.put( stackName, namedStack );
         }
         namedStack.push( value );
@@ -2742,7 +2904,7 @@ public class Digester
     public <T> T pop( String stackName )
     {
         T result = null;
-        Stack<Object> namedStack = stacksByName.get( stackName );
+        ArrayStack<Object> namedStack = stacksByName.get( stackName );
         if ( namedStack == null )
         {
             if ( log.isDebugEnabled() )
@@ -2797,7 +2959,7 @@ public class Digester
     public <T> T peek( String stackName, int n )
     {
         T result = null;
-        Stack<Object> namedStack = stacksByName.get( stackName );
+        ArrayStack<Object> namedStack = stacksByName.get( stackName );
         if ( namedStack == null )
         {
             if ( log.isDebugEnabled() )
@@ -2807,12 +2969,7 @@ public class Digester
             throw new EmptyStackException();
         }
 
-        int index = ( namedStack.size() - 1 ) - n;
-        if ( index < 0 )
-        {
-            throw new EmptyStackException();
-        }
-        result = this.<T> npeSafeCast( namedStack.get( index ) );
+        result = this.<T> npeSafeCast( namedStack.peek( n ) );
 
         return result;
     }
@@ -2832,7 +2989,7 @@ public class Digester
     public boolean isEmpty( String stackName )
     {
         boolean result = true;
-        Stack<Object> namedStack = stacksByName.get( stackName );
+        ArrayStack<Object> namedStack = stacksByName.get( stackName );
         if ( namedStack != null )
         {
             result = namedStack.isEmpty();
@@ -2879,6 +3036,24 @@ public class Digester
         root = null;
     }
 
+    /**
+     * Brings this Digester back to the state it had before parsing any document, keeping its configuration, rules
+     * and XML reader, so it can be safely reused to parse another document even after a failed parse.
+     * <p>
+     * Besides calling both {@link #clear()} and {@link #resetRoot()}, this discards the namespace mappings and the
+     * matched rules of the elements left open, and closes the input streams created by this Digester.
+     *
+     * @since 3.3
+     */
+    public void reset()
+    {
+        clear();
+        resetRoot();
+        namespaces.clear();
+        matches.clear();
+        cleanup();
+    }
+
     // ------------------------------------------------ Parameter Stack Methods
 
     // ------------------------------------------------------ Protected Methods
@@ -2984,6 +3159,224 @@ public class Digester
         return Collections.unmodifiableMap( entityValidator );
     }
 
+    /**
+     * Converts the given value to the given type, using the converter registry if set, or the global
+     * <code>ConvertUtils</code> otherwise.
+     *
+     * @param value the value to be converted, may be null
+     * @param type the target type
+     * @return the converted value
+     * @since 3.3
+     */
+    Object convert( String value, Class<?> type )
+    {
+        if ( converterRegistry != null )
+        {
+            return converterRegistry.convert( value, type );
+        }
+        return ConvertUtils.convert( value, type );
+    }
+
+    /**
+     * Adds the given rule to the rules matching each direct child of the element being processed, after the ones
+     * returned by the <code>Rules</code>, until the end of the element.
+     *
+     * @param rule the rule to be fired for the direct children of the current element
+     * @since 3.3
+     */
+    void addChildElementRule( Rule rule )
+    {
+        int depth = matchPath.getDepth();
+        if ( depth >= childElementRules.length )
+        {
+            int newLength = Math.max( depth + 1, childElementRules.length << 1 );
+            childElementRules = copyOf( childElementRules, newLength );
+            mergedMatches = copyOf( mergedMatches, newLength );
+        }
+
+        List<Rule> childRules = childElementRules[depth];
+        if ( childRules == null )
+        {
+            childRules = new ArrayList<Rule>( 1 );
+            childElementRules[depth] = childRules;
+        }
+        childRules.add( rule );
+    }
+
+    /**
+     * Return the given rules matching the current element, plus the rules added for the children of its parent.
+     */
+    private List<Rule> addChildElementRules( List<Rule> rules )
+    {
+        int parentDepth = matchPath.getDepth() - 1;
+        if ( parentDepth >= childElementRules.length )
+        {
+            return rules;
+        }
+
+        List<Rule> childRules = childElementRules[parentDepth];
+        if ( childRules == null || childRules.isEmpty() )
+        {
+            return rules;
+        }
+        if ( rules == null || rules.isEmpty() )
+        {
+            return childRules;
+        }
+
+        // the returned rules might not be safe to modify, merge them in the list reserved to this depth
+        List<Rule> merged = mergedMatches[parentDepth];
+        if ( merged == null )
+        {
+            merged = new ArrayList<Rule>( rules.size() + childRules.size() );
+            mergedMatches[parentDepth] = merged;
+        }
+        else
+        {
+            merged.clear();
+        }
+        merged.addAll( rules );
+        merged.addAll( childRules );
+        return merged;
+    }
+
+    /**
+     * Removes the rules added for the children of the element at the given depth.
+     */
+    private void clearChildElementRules( int depth )
+    {
+        if ( depth < childElementRules.length )
+        {
+            if ( childElementRules[depth] != null )
+            {
+                childElementRules[depth].clear();
+            }
+            if ( mergedMatches[depth] != null )
+            {
+                mergedMatches[depth].clear();
+            }
+        }
+    }
+
+    /**
+     * Registers the given rule to have its {@link Rule#end(String, String)} method fired once, at the end of the
+     * element at the given depth, before any rule matching the element.
+     *
+     * @param depth the depth of the element, as returned by {@link ElementPath#getDepth()} while processing it, or 0
+     *            for the end of the document
+     * @param rule the rule to be ended with the element
+     * @since 3.3
+     */
+    void addElementEndRule( int depth, Rule rule )
+    {
+        if ( depth >= elementEndRules.length )
+        {
+            elementEndRules = copyOf( elementEndRules, Math.max( depth + 1, elementEndRules.length << 1 ) );
+        }
+
+        List<Rule> rules = elementEndRules[depth];
+        if ( rules == null )
+        {
+            rules = new ArrayList<Rule>( 1 );
+            elementEndRules[depth] = rules;
+        }
+        rules.add( rule );
+    }
+
+    /**
+     * Returns the qualified name, as reported by the parser, of the element whose start is being processed; meant to
+     * be called from {@link Rule#begin(String, String, Attributes)}, where the name passed is the local name when the
+     * parser is namespace aware.
+     *
+     * @return the qualified name of the element whose start is being processed, possibly empty
+     * @since 3.3
+     */
+    String getCurrentElementQName()
+    {
+        return currentElementQName;
+    }
+
+    /**
+     * Returns the number of documents whose parsing has been started by this Digester, which identifies the document
+     * being parsed, so that the rules keeping some state across elements can tell a new document from the current one.
+     *
+     * @return the number of documents whose parsing has been started by this Digester
+     * @since 3.3
+     */
+    int getDocumentCount()
+    {
+        return documentCount;
+    }
+
+    /**
+     * Discards the rules registered to be ended with the elements.
+     */
+    private void clearElementEndRules()
+    {
+        for ( List<Rule> rules : elementEndRules )
+        {
+            if ( rules != null )
+            {
+                rules.clear();
+            }
+        }
+    }
+
+    /**
+     * Fires the rules registered to be ended with the element at the given depth.
+     */
+    private void fireElementEndRules( int depth, String namespaceURI, String name )
+        throws SAXException
+    {
+        if ( depth >= elementEndRules.length || elementEndRules[depth] == null )
+        {
+            return;
+        }
+
+        List<Rule> rules = elementEndRules[depth];
+        while ( !rules.isEmpty() )
+        {
+            Rule rule = rules.remove( rules.size() - 1 );
+            try
+            {
+                rule.end( namespaceURI, name );
+            }
+            catch ( Exception e )
+            {
+                log.error( "End event threw exception", e );
+                throw createSAXException( e );
+            }
+        }
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private static List<Rule>[] newRuleLists( int length )
+    {
+        return new List[length];
+    }
+
+    private static List<Rule>[] copyOf( List<Rule>[] lists, int newLength )
+    {
+        List<Rule>[] newLists = newRuleLists( newLength );
+        System.arraycopy( lists, 0, newLists, 0, lists.length );
+        return newLists;
+    }
+
+    /**
+     * Replaces the root object, if it is the given one.
+     *
+     * @param placeholder the object that could have been pushed as root object
+     * @param root the new root object
+     * @since 3.3
+     */
+    void replaceRoot( Object placeholder, Object root )
+    {
+        if ( this.root == placeholder )
+        {
+            this.root = root;
+        }
+    }
+
     /**
      * <p>
      * Return the top object on the parameters stack without removing it. If there are no objects on the stack, return
@@ -3022,15 +3415,9 @@ public class Digester
      */
     public Object[] peekParams( int n )
     {
-        int index = ( params.size() - 1 ) - n;
-        if ( index < 0 )
-        {
-            log.warn( "Empty stack (returning null)" );
-            return ( null );
-        }
         try
         {
-            return ( params.get( index ) );
+            return ( params.peek( n ) );
         }
         catch ( EmptyStackException e )
         {
@@ -3171,4 +3558,48 @@ public class Digester
         return result;
     }
 
+    /**
+     * Returns the empty body text buffer to be used for the element at the given depth, reusing the one used by the
+     * previous element at the same depth if any.
+     *
+     * @param depth the element depth, 0 being the document root element
+     * @return the empty body text buffer
+     */
+    private StringBuilder acquireBodyTextBuffer( int depth )
+    {
+        if ( depth >= bodyTextBuffers.length )
+        {
+            StringBuilder[] newBuffers = new StringBuilder[Math.max( depth + 1, bodyTextBuffers.length << 1 )];
+            System.arraycopy( bodyTextBuffers, 0, newBuffers, 0, bodyTextBuffers.length );
+            bodyTextBuffers = newBuffers;
+        }
+
+        StringBuilder buffer = bodyTextBuffers[depth];
+        if ( buffer == null )
+        {
+            buffer = new StringBuilder();
+            bodyTextBuffers[depth] = buffer;
+        }
+        else
+        {
+            buffer.setLength( 0 );
+        }
+        return buffer;
+    }
+
+    /**
+     * Releases the body text buffer used by the element at the given depth, once its text has been consumed, dropping
+     * it if it grew too much to be worth keeping around.
+     *
+     * @param depth the element depth, 0 being the document root element
+     */
+    private void releaseBodyTextBuffer( int depth )
+    {
+        StringBuilder buffer = bodyTextBuffers[depth];
+        if ( buffer != null && buffer.capacity() > MAX_POOLED_BODY_TEXT_CAPACITY )
+        {
+            bodyTextBuffers[depth] = null;
+        }
+    }
+
 }
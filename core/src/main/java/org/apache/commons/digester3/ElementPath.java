@@ -0,0 +1,232 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.System.arraycopy;
+
+/**
+ * <p>
+ * Cursor over the path of nested elements currently being processed by a {@link Digester}.
+ * </p>
+ * <p>
+ * The path is kept as a stack of element name segments, so entering and leaving an element only stores or drops a
+ * reference; the <code>'/'</code> separated <code>String</code> form returned by {@link #toString()} (and by
+ * {@link Digester#getMatch()}) is only built when somebody asks for it, and is then cached for the current depth.
+ * Element names delivered by SAX parsers are usually interned, so segments can be compared and hashed cheaply by
+ * {@link Rules} implementations that match on segments rather than on the full path.
+ * </p>
+ * <p>
+ * Instances are not thread-safe and are meant to be owned by a single <code>Digester</code>.
+ * </p>
+ *
+ * @since 3.3
+ */
+public final class ElementPath
+{
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The element names, index 0 being the document root element.
+     */
+    private String[] segments = new String[DEFAULT_CAPACITY];
+
+    /**
+     * The lazily built <code>String</code> form of the path, per depth; <code>paths[i]</code> is the path of the
+     * element at index <code>i</code>.
+     */
+    private String[] paths = new String[DEFAULT_CAPACITY];
+
+    /**
+     * The number of segments currently in the path.
+     */
+    private int depth = 0;
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Enters the element with the given name.
+     *
+     * @param name the element name, either the local name or the qualified name
+     */
+    public void push( String name )
+    {
+        if ( depth == segments.length )
+        {
+            int newCapacity = segments.length << 1;
+
+            String[] newSegments = new String[newCapacity];
+            arraycopy( segments, 0, newSegments, 0, depth );
+            segments = newSegments;
+
+            String[] newPaths = new String[newCapacity];
+            arraycopy( paths, 0, newPaths, 0, depth );
+            paths = newPaths;
+        }
+        segments[depth] = name;
+        paths[depth] = null;
+        depth++;
+    }
+
+    /**
+     * Leaves the current element, making its parent the current one.
+     */
+    public void pop()
+    {
+        if ( depth == 0 )
+        {
+            throw new IllegalStateException( "Element path is already empty" );
+        }
+        depth--;
+        segments[depth] = null;
+        paths[depth] = null;
+    }
+
+    /**
+     * Removes all the segments.
+     */
+    public void clear()
+    {
+        while ( depth > 0 )
+        {
+            pop();
+        }
+    }
+
+    /**
+     * Return the number of segments in the current path, 0 if no element is being processed.
+     *
+     * @return the number of segments in the current path
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Return the element name at the given index, where 0 is the document root element and
+     * <code>getDepth() - 1</code> is the current element.
+     *
+     * @param index the segment index
+     * @return the element name at the given index
+     */
+    public String getSegment( int index )
+    {
+        if ( index < 0 || index >= depth )
+        {
+            throw new IndexOutOfBoundsException( "Segment index " + index + " out of path depth " + depth );
+        }
+        return segments[index];
+    }
+
+    /**
+     * Return the name of the current element, or an empty string if no element is being processed.
+     *
+     * @return the name of the current element
+     */
+    public String getLastSegment()
+    {
+        if ( depth == 0 )
+        {
+            return "";
+        }
+        return segments[depth - 1];
+    }
+
+    /**
+     * Checks whether the last <code>count</code> segments of this path are equal to the first <code>count</code>
+     * segments of the given array.
+     *
+     * @param suffix the expected trailing segments
+     * @param count how many elements of <code>suffix</code> have to be compared
+     * @return true, if the path ends with the given segments, false otherwise
+     */
+    public boolean endsWith( String[] suffix, int count )
+    {
+        if ( count > depth )
+        {
+            return false;
+        }
+        int offset = depth - count;
+        for ( int i = count - 1; i >= 0; i-- )
+        {
+            String segment = segments[offset + i];
+            if ( segment != suffix[i] && !segment.equals( suffix[i] ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the <code>'/'</code> separated path of the element at the given index.
+     *
+     * @param index the segment index
+     * @return the <code>'/'</code> separated path of the element at the given index
+     */
+    public String toString( int index )
+    {
+        if ( index < 0 || index >= depth )
+        {
+            throw new IndexOutOfBoundsException( "Segment index " + index + " out of path depth " + depth );
+        }
+
+        String path = paths[index];
+        if ( path == null )
+        {
+            if ( index == 0 )
+            {
+                path = segments[0];
+            }
+            else
+            {
+                String parent = toString( index - 1 );
+                String segment = segments[index];
+                path = new StringBuilder( parent.length() + 1 + segment.length() )
+                    .append( parent )
+                    .append( '/' )
+                    .append( segment )
+                    .toString();
+            }
+            paths[index] = path;
+        }
+        return path;
+    }
+
+    /**
+     * Return the <code>'/'</code> separated path of the current element, or an empty string if no element is being
+     * processed.
+     *
+     * @return the <code>'/'</code> separated path of the current element
+     */
+    @Override
+    public String toString()
+    {
+        if ( depth == 0 )
+        {
+            return "";
+        }
+        return toString( depth - 1 );
+    }
+
+}
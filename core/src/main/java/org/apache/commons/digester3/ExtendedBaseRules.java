@@ -19,6 +19,8 @@ package org.apache.commons.digester3;
  * under the License.
  */
 
+import static java.util.Collections.unmodifiableList;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -140,6 +142,13 @@ import org.xml.sax.Attributes;
  * using non-universal rules. But by using universal rules as your backbone, these additions should not break your
  * existing rules.
  * </p>
+ * <h4>Matching Performance</h4>
+ * <p>
+ * Resolving the rules of an element path with the algorithm described above is expensive, so the resolved rules are
+ * memoized per element path (and namespace): elements sharing the same path, like repeated siblings, are resolved only
+ * once. The memoized results are discarded as soon as a new rule is registered. As a consequence, instances of this
+ * class must not be shared among concurrently parsing <code>Digester</code>s.
+ * </p>
  */
 public class ExtendedBaseRules
     extends RulesBase
@@ -152,12 +161,78 @@ public class ExtendedBaseRules
      */
     private int counter = 0;
 
+    /**
+     * The maximum number of distinct element paths for which the matching rules are memoized.
+     */
+    static final int MAX_MATCHED_PATHS = 8192;
+
     /**
      * The decision algorithm used (unfortunately) doesn't preserve the entry order. This map is used by a comparator
      * which orders the list of matches before it's returned. This map stores the entry number keyed by the rule.
      */
     private final Map<Rule, Integer> order = new HashMap<Rule, Integer>();
 
+    /**
+     * Orders the matching rules by registration order.
+     */
+    private final Comparator<Rule> registrationOrder = new Comparator<Rule>()
+    {
+
+        public int compare( Rule r1, Rule r2 )
+        {
+            // Get the entry order from the map
+            Integer i1 = order.get( r1 );
+            Integer i2 = order.get( r2 );
+
+            // and use that to perform the comparison
+            if ( i1 == null )
+            {
+                if ( i2 == null )
+                {
+
+                    return 0;
+
+                }
+                return -1;
+            }
+            else if ( i2 == null )
+            {
+                return 1;
+            }
+
+            return ( i1.intValue() - i2.intValue() );
+        }
+
+    };
+
+    /**
+     * The root of the tree of the element paths already matched, holding the memoized matching rules.
+     */
+    private PathState matchedPaths = new PathState();
+
+    /**
+     * The number of element paths in the {@link #matchedPaths} tree.
+     */
+    private int matchedPathsCount = 0;
+
+    /**
+     * The states of the last element path matched via {@link #match(String, ElementPath, String, Attributes)}, by
+     * depth, so that descending to a child or moving to a sibling doesn't require walking the tree from its root.
+     */
+    private PathState[] currentStates = new PathState[16];
+
+    /**
+     * The segments of the last element path matched via {@link #match(String, ElementPath, String, Attributes)}, by
+     * depth.
+     */
+    private String[] currentSegments = new String[16];
+
+    /**
+     * Flag to disable memoized path matching if a subclass changed the <code>String</code> based matching policy.
+     */
+    private final boolean pathMatching = !isOverridden( ExtendedBaseRules.class, "match", String.class, String.class,
+                                                        String.class, Attributes.class );
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -169,6 +244,17 @@ public class ExtendedBaseRules
         super.registerRule( pattern, rule );
         counter++;
         order.put( rule, counter );
+        resetMatchedPaths();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        super.clear();
+        resetMatchedPaths();
     }
 
     /**
@@ -176,6 +262,176 @@ public class ExtendedBaseRules
      */
     @Override
     public List<Rule> match( String namespaceURI, String pattern, String name, Attributes attributes )
+    {
+        PathState state = getState( pattern, true );
+        if ( state == null )
+        {
+            // documents with too many distinct paths, restart memoizing from scratch
+            resetMatchedPaths();
+            state = getState( pattern, false );
+        }
+
+        return getMatches( state, namespaceURI, pattern );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Rule> match( String namespaceURI, ElementPath path, String name, Attributes attributes )
+    {
+        if ( !pathMatching )
+        {
+            return super.match( namespaceURI, path, name, attributes );
+        }
+
+        int depth = path.getDepth();
+        if ( depth == 0 )
+        {
+            return match( namespaceURI, "", name, attributes );
+        }
+        if ( depth > currentStates.length )
+        {
+            PathState[] newStates = new PathState[Math.max( depth, currentStates.length << 1 )];
+            System.arraycopy( currentStates, 0, newStates, 0, currentStates.length );
+            currentStates = newStates;
+
+            String[] newSegments = new String[newStates.length];
+            System.arraycopy( currentSegments, 0, newSegments, 0, currentSegments.length );
+            currentSegments = newSegments;
+        }
+
+        // skip the states shared with the previously matched path, usually all but the last one
+        int index = 0;
+        while ( index < depth && currentStates[index] != null
+            && isSameSegment( currentSegments[index], path.getSegment( index ) ) )
+        {
+            index++;
+        }
+
+        PathState state = index == 0 ? matchedPaths : currentStates[index - 1];
+        boolean bounded = true;
+        while ( index < depth )
+        {
+            String segment = path.getSegment( index );
+            state = getChildState( state, segment, bounded );
+            if ( state == null )
+            {
+                // documents with too many distinct paths, restart memoizing from scratch
+                resetMatchedPaths();
+                state = matchedPaths;
+                index = 0;
+                bounded = false;
+                continue;
+            }
+            currentStates[index] = state;
+            currentSegments[index] = segment;
+            index++;
+        }
+        if ( depth < currentStates.length )
+        {
+            currentStates[depth] = null;
+        }
+
+        return getMatches( state, namespaceURI, path.toString() );
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Return the memoized rules matching the given element path state in the given namespace, resolving them if not
+     * done yet.
+     *
+     * @param state the element path state
+     * @param namespaceURI Namespace URI for which to select matching rules, or <code>null</code> to match regardless of
+     *            namespace URI
+     * @param pattern the <code>'/'</code> separated element path
+     * @return the rules matching the given element path state
+     */
+    private List<Rule> getMatches( PathState state, String namespaceURI, String pattern )
+    {
+        List<Rule> matches = state.matches.get( namespaceURI );
+        if ( matches == null )
+        {
+            matches = unmodifiableList( resolveMatches( namespaceURI, pattern ) );
+            state.matches.put( namespaceURI, matches );
+        }
+        return matches;
+    }
+
+    /**
+     * Return the element path state of the given <code>'/'</code> separated element path, creating it if needed.
+     *
+     * @param pattern the <code>'/'</code> separated element path
+     * @param bounded true to give up rather than exceeding {@link #MAX_MATCHED_PATHS}
+     * @return the element path state of the given element path, null if it would exceed {@link #MAX_MATCHED_PATHS}
+     */
+    private PathState getState( String pattern, boolean bounded )
+    {
+        PathState state = matchedPaths;
+        int start = 0;
+        int slash;
+        while ( state != null && ( slash = pattern.indexOf( '/', start ) ) >= 0 )
+        {
+            state = getChildState( state, pattern.substring( start, slash ), bounded );
+            start = slash + 1;
+        }
+        return state != null ? getChildState( state, pattern.substring( start ), bounded ) : null;
+    }
+
+    /**
+     * Return the child of the given element path state for the given segment, creating it if needed.
+     *
+     * @param state the parent element path state
+     * @param segment the element name
+     * @param bounded true to give up rather than exceeding {@link #MAX_MATCHED_PATHS}
+     * @return the child of the given element path state for the given segment, null if it would exceed
+     *         {@link #MAX_MATCHED_PATHS}
+     */
+    private PathState getChildState( PathState state, String segment, boolean bounded )
+    {
+        PathState child = state.children.get( segment );
+        if ( child == null )
+        {
+            if ( bounded && matchedPathsCount >= MAX_MATCHED_PATHS )
+            {
+                return null;
+            }
+            child = new PathState();
+            state.children.put( segment, child );
+            matchedPathsCount++;
+        }
+        return child;
+    }
+
+    /**
+     * Discards all the memoized matching rules.
+     */
+    private void resetMatchedPaths()
+    {
+        matchedPaths = new PathState();
+        matchedPathsCount = 0;
+        for ( int i = 0; i < currentStates.length; i++ )
+        {
+            currentStates[i] = null;
+            currentSegments[i] = null;
+        }
+    }
+
+    private static boolean isSameSegment( String segment, String other )
+    {
+        return segment == other || ( segment != null && segment.equals( other ) );
+    }
+
+    /**
+     * Resolves the rules matching the given element path in the given namespace.
+     *
+     * @param namespaceURI Namespace URI for which to select matching rules, or <code>null</code> to match regardless of
+     *            namespace URI
+     * @param pattern the <code>'/'</code> separated element path
+     * @return the rules matching the given element path, in registration order
+     */
+    private List<Rule> resolveMatches( String namespaceURI, String pattern )
     {
         // calculate the pattern of the parent
         // (if the element has one)
@@ -444,34 +700,7 @@ public class ExtendedBaseRules
 
         // need to make sure that the collection is sort in the order
         // of addition. We use a custom comparator for this
-        Collections.sort( universalList, new Comparator<Rule>()
-        {
-
-            public int compare( Rule r1, Rule r2 )
-            {
-                // Get the entry order from the map
-                Integer i1 = order.get( r1 );
-                Integer i2 = order.get( r2 );
-
-                // and use that to perform the comparison
-                if ( i1 == null )
-                {
-                    if ( i2 == null )
-                    {
-
-                        return 0;
-
-                    }
-                    return -1;
-                }
-                else if ( i2 == null )
-                {
-                    return 1;
-                }
-
-                return ( i1.intValue() - i2.intValue() );
-            }
-        } );
+        Collections.sort( universalList, registrationOrder );
 
         return universalList;
     }
@@ -525,4 +754,19 @@ public class ExtendedBaseRules
         return null;
     }
 
+    /**
+     * A node of the tree of the element paths already matched, children are indexed by element name.
+     */
+    private static final class PathState
+    {
+
+        final HashMap<String, PathState> children = new HashMap<String, PathState>();
+
+        /**
+         * The memoized matching rules, keyed by namespace URI.
+         */
+        final HashMap<String, List<Rule>> matches = new HashMap<String, List<Rule>>( 2 );
+
+    }
+
 }
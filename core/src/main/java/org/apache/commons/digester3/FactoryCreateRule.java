@@ -22,7 +22,6 @@ package org.apache.commons.digester3;
 import static java.lang.String.format;
 
 import java.util.Formatter;
-import java.util.Stack;
 
 import org.xml.sax.Attributes;
 
@@ -46,7 +45,7 @@ public class FactoryCreateRule
     private final boolean ignoreCreateExceptions;
 
     /** Stock to manage */
-    private Stack<Boolean> exceptionIgnoredStack;
+    private ArrayStack<Boolean> exceptionIgnoredStack;
 
     // ----------------------------------------------------------- Constructors
 
@@ -235,7 +234,7 @@ public class FactoryCreateRule
         {
             if ( exceptionIgnoredStack == null )
             {
-                exceptionIgnoredStack = new Stack<Boolean>();
+                exceptionIgnoredStack = new ArrayStack<Boolean>();
             }
 
             try
@@ -297,7 +296,7 @@ public class FactoryCreateRule
         // this only happens if an exception was thrown and we're ignoring them
         if ( ignoreCreateExceptions
                         && exceptionIgnoredStack != null
-                        && !exceptionIgnoredStack.empty()
+                        && !exceptionIgnoredStack.isEmpty()
                         && exceptionIgnoredStack.pop().booleanValue() )
         {
             // creation exception was ignored
@@ -376,8 +375,9 @@ public class FactoryCreateRule
                 getDigester().getLogger().debug( format( "[FactoryCreateRule]{%s} New factory %s",
                                                          getDigester().getMatch(), realClassName ) );
             }
-            Class<?> clazz = getDigester().getClassLoader().loadClass( realClassName );
-            creationFactory = (ObjectCreationFactory<?>) clazz.newInstance();
+            InstantiatorCache instantiatorCache = getDigester().getInstantiatorCache();
+            Class<?> clazz = instantiatorCache.loadClass( getDigester().getClassLoader(), realClassName );
+            creationFactory = (ObjectCreationFactory<?>) instantiatorCache.newInstance( clazz );
             creationFactory.setDigester( getDigester() );
         }
         return ( creationFactory );
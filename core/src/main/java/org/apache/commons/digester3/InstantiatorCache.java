@@ -0,0 +1,272 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Bounded cache of the classes loaded by name and of their default constructors, used by {@link ObjectCreateRule}
+ * and {@link FactoryCreateRule} to instantiate objects.
+ * </p>
+ * <p>
+ * Classes are cached by name and class loader, so the class loader is consulted (often under a lock) only the first
+ * time a class name is seen, and the default constructor is looked up just once per class; this matters most for
+ * documents selecting the classes to be instantiated through an attribute. The least recently used entries are evicted
+ * first when the maximum size is reached.
+ * </p>
+ * <p>
+ * Instances are not thread-safe, each {@link Digester} owns its own; see {@link Digester#getInstantiatorCache()}.
+ * </p>
+ *
+ * @since 3.3
+ */
+public final class InstantiatorCache
+{
+
+    /**
+     * The default maximum number of cached classes.
+     */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    // --------------------------------------------------------- Fields
+
+    /** The cached classes, by name. */
+    private final Map<String, Instantiator> cache;
+
+    /** The maximum number of cached classes. */
+    private final int maxSize;
+
+    /** The number of lookups served from the cache. */
+    private long hitCount;
+
+    /** The number of lookups that were not cached. */
+    private long missCount;
+
+    // --------------------------------------------------------- Constructor
+
+    /**
+     * Builds a cache of up to {@link #DEFAULT_MAX_SIZE} classes.
+     */
+    public InstantiatorCache()
+    {
+        this( DEFAULT_MAX_SIZE );
+    }
+
+    /**
+     * Builds a cache of up to the given number of classes.
+     *
+     * @param maxSize the maximum number of cached classes, greater than zero
+     */
+    public InstantiatorCache( int maxSize )
+    {
+        if ( maxSize < 1 )
+        {
+            throw new IllegalArgumentException( "Max cache size must be greater than zero, was " + maxSize );
+        }
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<String, Instantiator>( 16, 0.75f, true )
+        {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Instantiator> eldest )
+            {
+                return size() > InstantiatorCache.this.maxSize;
+            }
+
+        };
+    }
+
+    // --------------------------------------------------------- Properties
+
+    /**
+     * Gets the maximum number of cached classes.
+     *
+     * @return the maximum number of cached classes
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of currently cached classes.
+     *
+     * @return the number of currently cached classes
+     */
+    public int getSize()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return the number of lookups served from the cache
+     */
+    public long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of lookups that were not cached.
+     *
+     * @return the number of lookups that were not cached
+     */
+    public long getMissCount()
+    {
+        return missCount;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Loads the class with the given name from the given class loader, unless already cached.
+     *
+     * @param classLoader the class loader the class has to be loaded from
+     * @param className the fully qualified class name
+     * @return the loaded class
+     * @throws ClassNotFoundException if the class can't be found
+     */
+    public Class<?> loadClass( ClassLoader classLoader, String className )
+        throws ClassNotFoundException
+    {
+        Instantiator instantiator = cache.get( className );
+        if ( instantiator != null && instantiator.classLoader == classLoader )
+        {
+            hitCount++;
+            return instantiator.type;
+        }
+
+        missCount++;
+        Class<?> type = classLoader.loadClass( className );
+        cache.put( className, new Instantiator( classLoader, type ) );
+        return type;
+    }
+
+    /**
+     * Creates a new instance of the given class through its default constructor, as <code>Class.newInstance()</code>
+     * would do.
+     *
+     * @param <T> the type of the new instance
+     * @param type the class to be instantiated
+     * @return a new instance of the given class
+     * @throws Exception if any error occurs while instantiating the class
+     */
+    public <T> T newInstance( Class<T> type )
+        throws Exception
+    {
+        Instantiator instantiator = cache.get( type.getName() );
+        if ( instantiator != null && instantiator.type == type )
+        {
+            hitCount++;
+        }
+        else
+        {
+            missCount++;
+            instantiator = new Instantiator( type.getClassLoader(), type );
+            cache.put( type.getName(), instantiator );
+        }
+        return type.cast( instantiator.newInstance() );
+    }
+
+    /**
+     * Discards all the cached classes and resets the hit and miss counters.
+     */
+    public void reset()
+    {
+        cache.clear();
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "InstantiatorCache[size=" + getSize() + ", maxSize=" + maxSize + ", hits=" + hitCount + ", misses="
+            + missCount + "]";
+    }
+
+    /**
+     * A cached class, with its lazily resolved default constructor.
+     */
+    private static final class Instantiator
+    {
+
+        private final ClassLoader classLoader;
+
+        private final Class<?> type;
+
+        private Constructor<?> constructor;
+
+        public Instantiator( ClassLoader classLoader, Class<?> type )
+        {
+            this.classLoader = classLoader;
+            this.type = type;
+        }
+
+        public Object newInstance()
+            throws Exception
+        {
+            if ( constructor == null )
+            {
+                try
+                {
+                    constructor = type.getDeclaredConstructor();
+                }
+                catch ( NoSuchMethodException e )
+                {
+                    // same as Class.newInstance()
+                    throw new InstantiationException( type.getName() );
+                }
+            }
+
+            try
+            {
+                return constructor.newInstance();
+            }
+            catch ( InvocationTargetException e )
+            {
+                // Class.newInstance() propagates the exceptions thrown by the constructor as they are
+                Throwable cause = e.getCause();
+                if ( cause instanceof Exception )
+                {
+                    throw (Exception) cause;
+                }
+                if ( cause instanceof Error )
+                {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+
+    }
+
+}
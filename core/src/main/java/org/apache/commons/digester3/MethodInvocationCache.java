@@ -0,0 +1,187 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.apache.commons.beanutils.MethodUtils.getAccessibleMethod;
+import static org.apache.commons.beanutils.MethodUtils.getMatchingAccessibleMethod;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per rule cache of the methods resolved by {@link CallMethodRule} and {@link AbstractMethodRule} implementations,
+ * by receiver class and parameter types, so that <code>MethodUtils</code> (which looks up its own cache under a
+ * global lock) is consulted only the first time a given receiver class is seen.
+ *
+ * Instances are not thread-safe, as the rules owning them.
+ *
+ * @since 3.3
+ */
+final class MethodInvocationCache
+{
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The name of the invoked method.
+     */
+    private final String methodName;
+
+    /**
+     * Flag to resolve the method with exact parameter types.
+     */
+    private final boolean exactMatch;
+
+    /**
+     * The resolved methods, by receiver class; usually there is just one entry per class.
+     */
+    private final Map<Class<?>, ResolvedMethod> resolvedMethods = new HashMap<Class<?>, ResolvedMethod>();
+
+    /**
+     * The most recently used method, usually the only one.
+     */
+    private ResolvedMethod lastResolvedMethod;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Creates a new cache of methods with the given name.
+     *
+     * @param methodName the name of the invoked method
+     * @param exactMatch true to resolve the method with exact parameter types, false to use the fuzzier
+     *            <code>MethodUtils</code> matching
+     */
+    public MethodInvocationCache( String methodName, boolean exactMatch )
+    {
+        this.methodName = methodName;
+        this.exactMatch = exactMatch;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Checks whether this cache resolves the given method.
+     *
+     * @param methodName the name of the invoked method
+     * @param exactMatch the method matching strategy
+     * @return true, if this cache resolves the given method, false otherwise
+     */
+    public boolean isFor( String methodName, boolean exactMatch )
+    {
+        return this.exactMatch == exactMatch
+            && ( this.methodName == methodName || ( this.methodName != null && this.methodName.equals( methodName ) ) );
+    }
+
+    /**
+     * Invokes the method on the given target, as <code>MethodUtils.invokeMethod</code> or
+     * <code>MethodUtils.invokeExactMethod</code> would do.
+     *
+     * @param target the object the method has to be invoked on
+     * @param args the method arguments
+     * @param paramTypes the method parameter types
+     * @return the value returned by the invoked method
+     * @throws Exception if the method can't be found or its invocation fails
+     */
+    public Object invoke( Object target, Object[] args, Class<?>[] paramTypes )
+        throws Exception
+    {
+        return resolve( target.getClass(), paramTypes ).invoke( target, args );
+    }
+
+    /**
+     * Return the method to be invoked on objects of the given class, as <code>MethodUtils</code> would resolve it.
+     *
+     * @param receiverClass the class of the objects the method has to be invoked on
+     * @param paramTypes the method parameter types
+     * @return the method to be invoked
+     * @throws NoSuchMethodException if the method can't be found
+     */
+    public Method resolve( Class<?> receiverClass, Class<?>[] paramTypes )
+        throws NoSuchMethodException
+    {
+        ResolvedMethod resolved = lastResolvedMethod;
+        if ( resolved == null || !resolved.matches( receiverClass, paramTypes ) )
+        {
+            resolved = resolvedMethods.get( receiverClass );
+            while ( resolved != null && !resolved.matches( receiverClass, paramTypes ) )
+            {
+                resolved = resolved.next;
+            }
+
+            if ( resolved == null )
+            {
+                // MethodUtils keeps the given array as key of its own cache, while callers can reuse theirs
+                Class<?>[] resolvedParamTypes = paramTypes.clone();
+                Method method;
+                if ( exactMatch )
+                {
+                    method = getAccessibleMethod( receiverClass, methodName, resolvedParamTypes );
+                }
+                else
+                {
+                    method = getMatchingAccessibleMethod( receiverClass, methodName, resolvedParamTypes );
+                }
+                if ( method == null )
+                {
+                    throw new NoSuchMethodException( "No such accessible method: " + methodName + "() on object: "
+                        + receiverClass.getName() );
+                }
+
+                resolved = new ResolvedMethod( receiverClass, resolvedParamTypes, method,
+                                               resolvedMethods.get( receiverClass ) );
+                resolvedMethods.put( receiverClass, resolved );
+            }
+            lastResolvedMethod = resolved;
+        }
+        return resolved.method;
+    }
+
+    /**
+     * A method resolved for a receiver class and parameter types, chained to the others of the same class.
+     */
+    private static final class ResolvedMethod
+    {
+
+        private final Class<?> receiverClass;
+
+        private final Class<?>[] paramTypes;
+
+        private final Method method;
+
+        private final ResolvedMethod next;
+
+        public ResolvedMethod( Class<?> receiverClass, Class<?>[] paramTypes, Method method, ResolvedMethod next )
+        {
+            this.receiverClass = receiverClass;
+            this.paramTypes = paramTypes;
+            this.method = method;
+            this.next = next;
+        }
+
+        public boolean matches( Class<?> receiverClass, Class<?>[] paramTypes )
+        {
+            return this.receiverClass == receiverClass && Arrays.equals( this.paramTypes, paramTypes );
+        }
+
+    }
+
+}
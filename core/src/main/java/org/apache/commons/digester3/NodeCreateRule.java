@@ -19,6 +19,8 @@ package org.apache.commons.digester3;
  * under the License.
  */
 
+import java.util.ArrayList;
+
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -58,6 +60,12 @@ import org.xml.sax.helpers.DefaultHandler;
  * <strong>Note</strong> that the current implementation does not set the namespace prefixes in the exported nodes. The
  * (usually more important) namespace URIs are set, of course.
  * </p>
+ * <p>
+ * When the content is only meant to be forwarded, the rule can be told to {@link #setCaptureXml(boolean) capture} it as
+ * XML text rather than building a DOM: a <code>String</code> holding the serialized element (or, for the
+ * <code>DocumentFragment</code> type, its content only) is then pushed in place of the node. The captured text is not
+ * normalized, and namespace declarations are written where the elements and attributes need them.
+ * </p>
  * 
  * @since Digester 1.4
  */
@@ -295,6 +303,258 @@ public class NodeCreateRule
         }
     }
 
+    /**
+     * The SAX content handler that serializes the SAX events to XML text, when the rule captures the XML of the
+     * matched content rather than building a DOM node tree.
+     */
+    private class XmlBuilder
+        extends DefaultHandler
+    {
+
+        /**
+         * The content handler used by Digester before it was set to this content handler.
+         */
+        private final ContentHandler oldContentHandler;
+
+        /**
+         * Flag to write the namespace declarations needed by the elements and the attributes.
+         */
+        private final boolean namespaceAware;
+
+        /**
+         * The XML text.
+         */
+        private final StringBuilder xml = new StringBuilder();
+
+        /**
+         * The names of the open elements, as written in their start tags.
+         */
+        private final ArrayStack<String> elementNames = new ArrayStack<String>();
+
+        /**
+         * The prefix and namespace URI pairs declared by the open elements.
+         */
+        private final ArrayList<String> namespaces = new ArrayList<String>();
+
+        /**
+         * The size of {@link #namespaces} before the start of each open element.
+         */
+        private final ArrayStack<Integer> namespaceMarks = new ArrayStack<Integer>();
+
+        /**
+         * Flag set while the start tag of the current element still has to be closed.
+         */
+        private boolean startTagOpen = false;
+
+        /**
+         * Flag set when the matched element itself is written, not only its content.
+         */
+        private final boolean elementWritten;
+
+        public XmlBuilder( boolean elementWritten )
+        {
+            this.elementWritten = elementWritten;
+            oldContentHandler = getDigester().getCustomContentHandler();
+            namespaceAware = getDigester().getNamespaceAware();
+        }
+
+        @Override
+        public void startElement( String namespaceURI, String localName, String qName, Attributes atts )
+            throws SAXException
+        {
+            closeStartTag();
+
+            String elementName = qName;
+            if ( elementName == null || elementName.length() == 0 )
+            {
+                elementName = localName;
+            }
+            elementNames.push( elementName );
+            namespaceMarks.push( namespaces.size() );
+
+            xml.append( '<' ).append( elementName );
+            if ( namespaceAware )
+            {
+                declareNamespace( prefixOf( elementName ), namespaceURI );
+                for ( int i = 0; i < atts.getLength(); i++ )
+                {
+                    String uri = atts.getURI( i );
+                    if ( uri != null && uri.length() > 0 )
+                    {
+                        declareNamespace( prefixOf( atts.getQName( i ) ), uri );
+                    }
+                }
+            }
+            for ( int i = 0; i < atts.getLength(); i++ )
+            {
+                String attributeName = atts.getQName( i );
+                if ( namespaceAware && ( "xmlns".equals( attributeName ) || attributeName.startsWith( "xmlns:" ) ) )
+                {
+                    // already declared where needed
+                    continue;
+                }
+                xml.append( ' ' ).append( attributeName ).append( "=\"" );
+                escape( atts.getValue( i ), true );
+                xml.append( '"' );
+            }
+            startTagOpen = true;
+        }
+
+        @Override
+        public void characters( char[] ch, int start, int length )
+            throws SAXException
+        {
+            closeStartTag();
+            for ( int i = start; i < start + length; i++ )
+            {
+                escape( ch[i], false );
+            }
+        }
+
+        @Override
+        public void processingInstruction( String target, String data )
+            throws SAXException
+        {
+            closeStartTag();
+            xml.append( "<?" ).append( target );
+            if ( data != null && data.length() > 0 )
+            {
+                xml.append( ' ' ).append( data );
+            }
+            xml.append( "?>" );
+        }
+
+        @Override
+        public void endElement( String namespaceURI, String localName, String qName )
+            throws SAXException
+        {
+            if ( elementNames.isEmpty() )
+            {
+                // end of the matched element, whose content only has been written
+                finish( namespaceURI, localName, qName );
+                return;
+            }
+
+            String elementName = elementNames.pop();
+            if ( startTagOpen )
+            {
+                xml.append( "/>" );
+                startTagOpen = false;
+            }
+            else
+            {
+                xml.append( "</" ).append( elementName ).append( '>' );
+            }
+            int mark = namespaceMarks.pop();
+            while ( namespaces.size() > mark )
+            {
+                namespaces.remove( namespaces.size() - 1 );
+            }
+
+            if ( elementNames.isEmpty() && elementWritten )
+            {
+                finish( namespaceURI, localName, qName );
+            }
+        }
+
+        /**
+         * Gives control back to Digester, pushing the captured XML text.
+         */
+        private void finish( String namespaceURI, String localName, String qName )
+            throws SAXException
+        {
+            getDigester().setCustomContentHandler( oldContentHandler );
+            getDigester().push( xml.toString() );
+            getDigester().endElement( namespaceURI, localName, qName );
+        }
+
+        private void closeStartTag()
+        {
+            if ( startTagOpen )
+            {
+                xml.append( '>' );
+                startTagOpen = false;
+            }
+        }
+
+        /**
+         * Writes the declaration of the given prefix, unless it is already bound to the given namespace URI.
+         */
+        private void declareNamespace( String prefix, String namespaceURI )
+        {
+            String uri = namespaceURI == null ? "" : namespaceURI;
+            String boundUri = "";
+            for ( int i = namespaces.size() - 2; i >= 0; i -= 2 )
+            {
+                if ( namespaces.get( i ).equals( prefix ) )
+                {
+                    boundUri = namespaces.get( i + 1 );
+                    break;
+                }
+            }
+            if ( boundUri.equals( uri ) )
+            {
+                return;
+            }
+
+            namespaces.add( prefix );
+            namespaces.add( uri );
+            xml.append( prefix.length() == 0 ? " xmlns" : " xmlns:" ).append( prefix ).append( "=\"" );
+            escape( uri, true );
+            xml.append( '"' );
+        }
+
+        private String prefixOf( String name )
+        {
+            int colon = name.indexOf( ':' );
+            return colon < 0 ? "" : name.substring( 0, colon );
+        }
+
+        private void escape( String value, boolean attribute )
+        {
+            for ( int i = 0; i < value.length(); i++ )
+            {
+                escape( value.charAt( i ), attribute );
+            }
+        }
+
+        private void escape( char c, boolean attribute )
+        {
+            switch ( c )
+            {
+                case '&':
+                    xml.append( "&amp;" );
+                    break;
+                case '<':
+                    xml.append( "&lt;" );
+                    break;
+                case '>':
+                    xml.append( "&gt;" );
+                    break;
+                case '"':
+                    xml.append( attribute ? "&quot;" : "\"" );
+                    break;
+                case '\r':
+                    xml.append( "&#13;" );
+                    break;
+                case '\n':
+                case '\t':
+                    if ( attribute )
+                    {
+                        xml.append( "&#" ).append( (int) c ).append( ';' );
+                    }
+                    else
+                    {
+                        xml.append( c );
+                    }
+                    break;
+                default:
+                    xml.append( c );
+            }
+        }
+
+    }
+
     // ----------------------------------------------------------- Constructors
 
     /**
@@ -335,7 +595,7 @@ public class NodeCreateRule
     public NodeCreateRule( int nodeType )
         throws ParserConfigurationException
     {
-        this( nodeType, DocumentBuilderFactory.newInstance().newDocumentBuilder() );
+        this( nodeType, newDocumentBuilder() );
     }
 
     /**
@@ -372,6 +632,81 @@ public class NodeCreateRule
      */
     private int nodeType = Node.ELEMENT_NODE;
 
+    /**
+     * Flag to create all the nodes from the same DOM <code>Document</code>.
+     */
+    private boolean reuseDocument = false;
+
+    /**
+     * The DOM <code>Document</code> the nodes are created from, when reused.
+     */
+    private Document document = null;
+
+    /**
+     * Flag to push the XML text of the matched content rather than a DOM node.
+     */
+    private boolean captureXml = false;
+
+    /**
+     * The <code>DocumentBuilderFactory</code> shared by the rules not given a <code>DocumentBuilder</code>, lazily
+     * created.
+     */
+    private static DocumentBuilderFactory documentBuilderFactory = null;
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * Sets whether all the nodes created by this rule have to be owned by the same DOM <code>Document</code>, rather
+     * than by a new one each. Reusing the document saves its creation for every matched element, but the created
+     * nodes will share their {@link Node#getOwnerDocument() owner document}, that must then not be modified. The
+     * default is false.
+     *
+     * @param reuseDocument true to create all the nodes from the same document
+     * @since 3.3
+     */
+    public void setReuseDocument( boolean reuseDocument )
+    {
+        this.reuseDocument = reuseDocument;
+        this.document = null;
+    }
+
+    /**
+     * Return true if all the nodes created by this rule are owned by the same DOM <code>Document</code>.
+     *
+     * @return true if all the nodes created by this rule are owned by the same DOM <code>Document</code>
+     * @see #setReuseDocument(boolean)
+     * @since 3.3
+     */
+    public boolean isReuseDocument()
+    {
+        return reuseDocument;
+    }
+
+    /**
+     * Sets whether this rule has to push the XML text of the matched element, as a <code>String</code>, rather than
+     * building a DOM node. The element itself is included in the text only when creating nodes of type
+     * {@link org.w3c.dom.Node#ELEMENT_NODE Node.ELEMENT_NODE}. The default is false.
+     *
+     * @param captureXml true to push the XML text of the matched element
+     * @since 3.3
+     */
+    public void setCaptureXml( boolean captureXml )
+    {
+        this.captureXml = captureXml;
+    }
+
+    /**
+     * Return true if this rule pushes the XML text of the matched element rather than a DOM node.
+     *
+     * @return true if this rule pushes the XML text of the matched element rather than a DOM node
+     * @see #setCaptureXml(boolean)
+     * @since 3.3
+     */
+    public boolean isCaptureXml()
+    {
+        return captureXml;
+    }
+
     // ----------------------------------------------------------- Rule Methods
 
     /**
@@ -390,7 +725,32 @@ public class NodeCreateRule
     public void begin( String namespaceURI, String name, Attributes attributes )
         throws Exception
     {
-        Document doc = documentBuilder.newDocument();
+        if ( captureXml )
+        {
+            XmlBuilder builder = new XmlBuilder( nodeType == Node.ELEMENT_NODE );
+            if ( nodeType == Node.ELEMENT_NODE )
+            {
+                // the prefix of the element is only known by its qualified name
+                String qName = getDigester().getCurrentElementQName();
+                if ( qName == null || qName.length() == 0 )
+                {
+                    qName = name;
+                }
+                builder.startElement( namespaceURI, getDigester().getNamespaceAware() ? name : "", qName, attributes );
+            }
+            getDigester().setCustomContentHandler( builder );
+            return;
+        }
+
+        Document doc = document;
+        if ( doc == null )
+        {
+            doc = documentBuilder.newDocument();
+            if ( reuseDocument )
+            {
+                document = doc;
+            }
+        }
         NodeBuilder builder = null;
         if ( nodeType == Node.ELEMENT_NODE )
         {
@@ -435,4 +795,17 @@ public class NodeCreateRule
         getDigester().pop();
     }
 
+    /**
+     * Return a new <code>DocumentBuilder</code> from the shared factory.
+     */
+    private static synchronized DocumentBuilder newDocumentBuilder()
+        throws ParserConfigurationException
+    {
+        if ( documentBuilderFactory == null )
+        {
+            documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        }
+        return documentBuilderFactory.newDocumentBuilder();
+    }
+
 }
@@ -22,7 +22,6 @@ package org.apache.commons.digester3;
 import static java.lang.System.arraycopy;
 import static java.lang.String.format;
 import static org.apache.commons.beanutils.ConstructorUtils.getAccessibleConstructor;
-import static org.apache.commons.beanutils.ConvertUtils.convert;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
@@ -51,11 +50,13 @@ public class ObjectCreateRule
         Object[] constructorArgs;
         ArrayList<RecordedInvocation> invocations = new ArrayList<RecordedInvocation>();
         Object delegate;
+        Digester digester;
 
-        DeferredConstructionCallback( Constructor<?> constructor, Object[] constructorArgs )
+        DeferredConstructionCallback( Constructor<?> constructor, Object[] constructorArgs, Digester digester )
         {
             this.constructor = constructor;
             this.constructorArgs = constructorArgs;
+            this.digester = digester;
         }
 
         public Object intercept( Object obj, Method method, Object[] args, MethodProxy proxy )
@@ -76,7 +77,7 @@ public class ObjectCreateRule
         void establishDelegate()
             throws Exception
         {
-            convertTo( constructor.getParameterTypes(), constructorArgs );
+            convertTo( digester, constructor.getParameterTypes(), constructorArgs );
             delegate = constructor.newInstance( constructorArgs );
             for ( RecordedInvocation invocation : invocations )
             {
@@ -85,6 +86,7 @@ public class ObjectCreateRule
             constructor = null;
             constructorArgs = null;
             invocations = null;
+            digester = null;
         }
     }
 
@@ -95,11 +97,14 @@ public class ObjectCreateRule
         private final Object[] templateConstructorArguments;
         private final Digester digester;
         private final boolean hasDefaultConstructor;
+        private final boolean useProxy;
         private Factory factory;
 
-        ProxyManager( Class<?> clazz, Constructor<?> constructor, Object[] constructorArguments, Digester digester )
+        ProxyManager( Class<?> clazz, Constructor<?> constructor, Object[] constructorArguments, Digester digester,
+                      boolean useProxy )
         {
             this.clazz = clazz;
+            this.useProxy = useProxy;
             hasDefaultConstructor = getAccessibleConstructor( clazz, new Class[0] ) != null;
             this.constructor = constructor;
             Class<?>[] argTypes = constructor.getParameterTypes();
@@ -115,7 +120,7 @@ public class ObjectCreateRule
                     }
                     if ( argTypes[i].isPrimitive() )
                     {
-                        templateConstructorArguments[i] = convert( "0", argTypes[i] );
+                        templateConstructorArguments[i] = digester.convert( "0", argTypes[i] );
                         continue;
                     }
                     templateConstructorArguments[i] = null;
@@ -131,7 +136,7 @@ public class ObjectCreateRule
                 }
                 arraycopy( constructorArguments, 0, templateConstructorArguments, 0, constructorArguments.length );
             }
-            convertTo( argTypes, templateConstructorArguments );
+            convertTo( digester, argTypes, templateConstructorArguments );
             this.digester = digester;
         }
 
@@ -141,8 +146,13 @@ public class ObjectCreateRule
             arraycopy( templateConstructorArguments, 0, constructorArguments, 0, constructorArguments.length );
             digester.pushParams( constructorArguments );
 
+            if ( !useProxy )
+            {
+                return new DeferredInstance( constructor, constructorArguments );
+            }
+
             DeferredConstructionCallback callback =
-                new DeferredConstructionCallback( constructor, constructorArguments );
+                new DeferredConstructionCallback( constructor, constructorArguments, digester );
 
             Object result;
 
@@ -177,11 +187,18 @@ public class ObjectCreateRule
             return result;
         }
 
-        void finalize( Object proxy )
+        Object finalize( Object proxy )
             throws Exception
         {
             digester.popParams();
+            if ( proxy instanceof DeferredInstance )
+            {
+                Object instance = ( (DeferredInstance) proxy ).construct( digester );
+                digester.replaceRoot( proxy, instance );
+                return instance;
+            }
             ( (DeferredConstructionCallback) ( (Factory) proxy ).getCallback( 0 ) ).establishDelegate();
+            return proxy;
         }
     }
 
@@ -271,6 +288,13 @@ public class ObjectCreateRule
      */
     private ProxyManager proxyManager;
 
+    /**
+     * Flag to create a proxy of the object while collecting the constructor arguments, true by default.
+     *
+     * @since 3.3
+     */
+    private boolean useProxy = true;
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -308,6 +332,41 @@ public class ObjectCreateRule
         this.defaultConstructorArguments = constructorArguments;
     }
 
+    /**
+     * <p>
+     * Specifies how objects are created when constructor argument types are specified.
+     * </p>
+     * <p>
+     * By default a proxy of the target class, generated by cglib, is pushed on the stack while the constructor
+     * arguments are collected, and all the method invocations on it are forwarded to the actual object once created.
+     * </p>
+     * <p>
+     * Without proxies, a lightweight placeholder is pushed on the stack instead and no class is generated, so also
+     * final classes can be created. The invocations made on the placeholder by the {@link CallMethodRule},
+     * {@link SetPropertiesRule}, {@link SetPropertyRule}, {@link BeanPropertySetterRule}, {@link SetNextRule},
+     * {@link SetTopRule} and {@link SetRootRule} rules are recorded and replayed on the actual object, created when the
+     * element ends; other rules must not rely on the object on top of the stack while the element is being processed.
+     * </p>
+     *
+     * @param useProxy true to push a proxy of the object on the stack, false to push a placeholder
+     * @since 3.3
+     */
+    public void setUseProxy( boolean useProxy )
+    {
+        this.useProxy = useProxy;
+    }
+
+    /**
+     * Return true if a proxy of the object is pushed on the stack while the constructor arguments are collected.
+     *
+     * @return true if a proxy of the object is pushed on the stack while the constructor arguments are collected
+     * @since 3.3
+     */
+    public boolean isUseProxy()
+    {
+        return useProxy;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -337,7 +396,7 @@ public class ObjectCreateRule
             }
 
             // Instantiate the new object and push it on the context stack
-            clazz = getDigester().getClassLoader().loadClass( realClassName );
+            clazz = getDigester().getInstantiatorCache().loadClass( getDigester().getClassLoader(), realClassName );
         }
         Object instance;
         if ( constructorArgumentTypes == null || constructorArgumentTypes.length == 0 )
@@ -351,7 +410,7 @@ public class ObjectCreateRule
                                     clazz.getName() ) );
             }
 
-            instance = clazz.newInstance();
+            instance = getDigester().getInstantiatorCache().newInstance( clazz );
         }
         else
         {
@@ -367,7 +426,8 @@ public class ObjectCreateRule
                                            clazz.getName(),
                                            Arrays.toString( constructorArgumentTypes ) ) );
                 }
-                proxyManager = new ProxyManager( clazz, constructor, defaultConstructorArguments, getDigester() );
+                proxyManager =
+                    new ProxyManager( clazz, constructor, defaultConstructorArguments, getDigester(), useProxy );
             }
             instance = proxyManager.createProxy();
         }
@@ -385,7 +445,7 @@ public class ObjectCreateRule
 
         if ( proxyManager != null )
         {
-            proxyManager.finalize( top );
+            top = proxyManager.finalize( top );
         }
 
         if ( getDigester().getLogger().isDebugEnabled() )
@@ -405,7 +465,7 @@ public class ObjectCreateRule
         return format( "ObjectCreateRule[className=%s, attributeName=%s]", className, attributeName );
     }
 
-    private static void convertTo( Class<?>[] types, Object[] array )
+    static void convertTo( Digester digester, Class<?>[] types, Object[] array )
     {
         if ( array.length != types.length )
         {
@@ -418,7 +478,7 @@ public class ObjectCreateRule
             if ( array[i] == null
                     || ( array[i] instanceof String && !String.class.isAssignableFrom( types[i] ) ) )
             {
-                array[i] = convert( (String) array[i], types[i] );
+                array[i] = digester.convert( (String) array[i], types[i] );
             }
         }
     }
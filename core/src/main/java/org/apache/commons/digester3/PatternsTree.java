@@ -0,0 +1,194 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The exact match and the wildcard patterns, split in segments, used by {@link RulesBase} and
+ * {@link CompiledPatterns} to match {@link ElementPath}s without building the corresponding <code>String</code>.
+ * Each pattern is bound to a value, returned when the pattern matches.
+ *
+ * @param <V> the type of the values bound to the patterns
+ * @since 3.3
+ */
+final class PatternsTree<V>
+{
+
+    /**
+     * The exact match patterns, indexed from the first segment to the last one.
+     */
+    private final Node<V> exactPatterns = new Node<V>();
+
+    /**
+     * The wildcard patterns, indexed from the last segment to the first one, to find the longest matching wildcard
+     * pattern walking the element path backward.
+     */
+    private final Node<V> wildcardPatterns = new Node<V>();
+
+    /**
+     * Binds the given value to the given pattern, that must not end with a <code>'/'</code>.
+     *
+     * @param pattern the exact match or wildcard pattern
+     * @param value the value returned when the pattern matches
+     */
+    void put( String pattern, V value )
+    {
+        Node<V> node;
+        if ( pattern.startsWith( "*/" ) )
+        {
+            String[] segments = split( pattern.substring( 2 ) );
+            node = wildcardPatterns;
+            for ( int i = segments.length - 1; i >= 0; i-- )
+            {
+                node = node.getOrCreateChild( segments[i] );
+            }
+        }
+        else
+        {
+            node = exactPatterns;
+            for ( String segment : split( pattern ) )
+            {
+                node = node.getOrCreateChild( segment );
+            }
+        }
+        node.value = value;
+    }
+
+    /**
+     * Removes all the patterns.
+     */
+    void clear()
+    {
+        exactPatterns.children.clear();
+        wildcardPatterns.children.clear();
+    }
+
+    /**
+     * Returns the value bound to the exact match pattern equal to the given element path.
+     *
+     * @param path the element path
+     * @return the value bound to the matching pattern, <code>null</code> if none matches
+     */
+    V matchExact( ElementPath path )
+    {
+        Node<V> node = exactPatterns;
+        for ( int i = 0; node != null && i < path.getDepth(); i++ )
+        {
+            node = node.children.get( path.getSegment( i ) );
+        }
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Returns the value bound to the longest wildcard pattern matching the given element path.
+     *
+     * @param path the element path
+     * @return the value bound to the longest matching pattern, <code>null</code> if none matches
+     */
+    V matchWildcard( ElementPath path )
+    {
+        V longest = null;
+        Node<V> node = wildcardPatterns;
+        for ( int i = path.getDepth() - 1; node != null && i >= 0; i-- )
+        {
+            node = node.children.get( path.getSegment( i ) );
+            if ( node != null && node.value != null )
+            {
+                longest = node.value;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Returns the value bound to the longest wildcard pattern matching the given <code>'/'</code> separated element
+     * path.
+     *
+     * @param path the <code>'/'</code> separated element path
+     * @return the value bound to the longest matching pattern, <code>null</code> if none matches
+     */
+    V matchWildcard( String path )
+    {
+        V longest = null;
+        Node<V> node = wildcardPatterns;
+        int end = path.length();
+        while ( node != null && end >= 0 )
+        {
+            int slash = path.lastIndexOf( '/', end - 1 );
+            node = node.children.get( path.substring( slash + 1, end ) );
+            if ( node != null && node.value != null )
+            {
+                longest = node.value;
+            }
+            end = slash;
+        }
+        return longest;
+    }
+
+    /**
+     * Splits the input pattern in segments, preserving empty ones.
+     *
+     * @param pattern the pattern to split
+     * @return the pattern segments
+     */
+    private static String[] split( String pattern )
+    {
+        List<String> segments = new ArrayList<String>();
+        int start = 0;
+        int slash;
+        while ( ( slash = pattern.indexOf( '/', start ) ) >= 0 )
+        {
+            segments.add( pattern.substring( start, slash ) );
+            start = slash + 1;
+        }
+        segments.add( pattern.substring( start ) );
+        return segments.toArray( new String[segments.size()] );
+    }
+
+    /**
+     * A node of the patterns trees, children are indexed by segment.
+     */
+    private static final class Node<V>
+    {
+
+        final HashMap<String, Node<V>> children = new HashMap<String, Node<V>>();
+
+        /**
+         * The value bound to the pattern ending at this node, if any.
+         */
+        V value;
+
+        Node<V> getOrCreateChild( String segment )
+        {
+            Node<V> child = children.get( segment );
+            if ( child == null )
+            {
+                child = new Node<V>();
+                children.put( segment, child );
+            }
+            return child;
+        }
+
+    }
+
+}
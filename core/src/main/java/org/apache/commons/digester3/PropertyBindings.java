@@ -0,0 +1,163 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.beanutils.BeanUtilsBean;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.MethodUtils;
+
+/**
+ * Binds the write methods of simple properties, by target class and property name, so they can be set from
+ * <code>String</code> values without going through <code>BeanUtils</code> for every element.
+ * <p>
+ * <code>DynaBean</code> targets, as well as missing, nested, indexed, mapped, array and not accessible properties, are
+ * not bound and have to be set through <code>BeanUtils</code>; so are all the properties when a custom
+ * <code>BeanUtilsBean</code> has been installed, since it could set them differently.
+ * </p>
+ * <p>
+ * Instances are not thread-safe, and are meant to be owned by a single rule.
+ * </p>
+ *
+ * @since 3.3
+ */
+final class PropertyBindings
+{
+
+    /**
+     * The bound properties, by target class and property name.
+     */
+    private final Map<Class<?>, Map<String, Binding>> bindings = new HashMap<Class<?>, Map<String, Binding>>();
+
+    /**
+     * Sets the given property on the given object, converting the value through the given <code>Digester</code>, if
+     * the property can be bound; the operation is recorded if the object is still to be created.
+     *
+     * @param digester the digester converting the value
+     * @param top the target object
+     * @param property the simple property name
+     * @param value the property value
+     * @return true, if the property has been set, false if it has to be set through <code>BeanUtils</code>
+     * @throws Exception if any error occurs while setting the property
+     */
+    public boolean setProperty( Digester digester, Object top, String property, String value )
+        throws Exception
+    {
+        if ( top == null || top instanceof DynaBean || BeanUtilsBean.getInstance().getClass() != BeanUtilsBean.class )
+        {
+            return false;
+        }
+
+        Binding binding = getBinding( top, property );
+        if ( binding.writeMethod == null )
+        {
+            return false;
+        }
+
+        Object newValue = digester.convert( value, binding.propertyType );
+        if ( top instanceof DeferredInstance )
+        {
+            ( (DeferredInstance) top ).record( binding.writeMethod, newValue );
+        }
+        else
+        {
+            binding.writeMethod.invoke( top, newValue );
+        }
+        return true;
+    }
+
+    /**
+     * Return the binding of the given property for the class of the given object, resolving it if not done yet.
+     */
+    private Binding getBinding( Object top, String property )
+    {
+        Class<?> targetClass = top instanceof DeferredInstance ? ( (DeferredInstance) top ).getType() : top.getClass();
+
+        Map<String, Binding> classBindings = bindings.get( targetClass );
+        if ( classBindings == null )
+        {
+            classBindings = new HashMap<String, Binding>();
+            bindings.put( targetClass, classBindings );
+        }
+
+        Binding binding = classBindings.get( property );
+        if ( binding == null )
+        {
+            binding = bind( targetClass, property );
+            classBindings.put( property, binding );
+        }
+        return binding;
+    }
+
+    /**
+     * Resolves the write method of the given property, when it can be invoked with the converted value without going
+     * through <code>BeanUtils</code>.
+     */
+    private static Binding bind( Class<?> targetClass, String property )
+    {
+        for ( PropertyDescriptor descriptor : BeanUtilsBean.getInstance().getPropertyUtils()
+                                                           .getPropertyDescriptors( targetClass ) )
+        {
+            if ( property.equals( descriptor.getName() ) )
+            {
+                if ( descriptor.getClass() == PropertyDescriptor.class && descriptor.getWriteMethod() != null
+                    && !descriptor.getPropertyType().isArray() )
+                {
+                    Method writeMethod = MethodUtils.getAccessibleMethod( targetClass, descriptor.getWriteMethod() );
+                    if ( writeMethod != null )
+                    {
+                        return new Binding( writeMethod, descriptor.getPropertyType() );
+                    }
+                }
+                break;
+            }
+        }
+        // missing, nested, indexed, mapped, array or not accessible property, let BeanUtils deal with it
+        return Binding.UNBOUND;
+    }
+
+    /**
+     * The write method bound to a property of a given class.
+     */
+    private static final class Binding
+    {
+
+        /**
+         * The binding of the properties that have to be set through <code>BeanUtils</code>.
+         */
+        static final Binding UNBOUND = new Binding( null, null );
+
+        final Method writeMethod;
+
+        final Class<?> propertyType;
+
+        Binding( Method writeMethod, Class<?> propertyType )
+        {
+            this.writeMethod = writeMethod;
+            this.propertyType = propertyType;
+        }
+
+    }
+
+}
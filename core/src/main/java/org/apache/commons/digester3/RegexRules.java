@@ -19,8 +19,13 @@ package org.apache.commons.digester3;
  * under the License.
  */
 
+import static java.util.Collections.unmodifiableList;
+
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.xml.sax.Attributes;
 
@@ -33,6 +38,11 @@ import org.xml.sax.Attributes;
  * does not vary. All patterns are tested to see if they match the path using the regex matcher. All those that do are
  * return in the order which the rules were added.
  * </p>
+ * <p>
+ * Since a regex matcher is expected to always give the same answer for the same path and pattern, the rules matching
+ * the most recently seen paths are memoized. Moreover, when the {@link SimpleRegexMatcher} is used, patterns whose last
+ * segment doesn't contain any wildcard are tested only against paths ending with that same segment.
+ * </p>
  * 
  * @since 1.5
  */
@@ -48,6 +58,35 @@ public class RegexRules
     /** The regex strategy used by this RegexRules */
     private RegexMatcher matcher;
 
+    /** The maximum number of paths for which the matching rules are memoized */
+    private static final int MAX_MEMOIZED_PATHS = 1024;
+
+    /**
+     * The registered <code>Rule</code>'s indexed by the literal last segment of their pattern, populated only when the
+     * {@link SimpleRegexMatcher} is used
+     */
+    private final Map<String, List<RegisteredRule>> rulesByLastSegment = new HashMap<String, List<RegisteredRule>>();
+
+    /**
+     * The registered <code>Rule</code>'s to be tested against any path, all of them unless the
+     * {@link SimpleRegexMatcher} is used
+     */
+    private final List<RegisteredRule> unindexedRules = new ArrayList<RegisteredRule>();
+
+    /** The rules matching the most recently seen paths, least recently used first */
+    private final Map<String, List<Rule>> memoizedMatches = new LinkedHashMap<String, List<Rule>>( 16, 0.75f, true )
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, List<Rule>> eldest )
+        {
+            return size() > MAX_MEMOIZED_PATHS;
+        }
+
+    };
+
     // --------------------------------------------------------- Constructor
 
     /**
@@ -84,6 +123,7 @@ public class RegexRules
             throw new IllegalArgumentException( "RegexMatcher must not be null." );
         }
         this.matcher = matcher;
+        reindex();
     }
 
     // --------------------------------------------------------- Public Methods
@@ -94,7 +134,10 @@ public class RegexRules
     @Override
     protected void registerRule( String pattern, Rule rule )
     {
-        registeredRules.add( new RegisteredRule( pattern, rule ) );
+        RegisteredRule registeredRule = new RegisteredRule( pattern, rule, registeredRules.size() );
+        registeredRules.add( registeredRule );
+        index( registeredRule );
+        memoizedMatches.clear();
     }
 
     /**
@@ -103,6 +146,7 @@ public class RegexRules
     public void clear()
     {
         registeredRules.clear();
+        reindex();
     }
 
     /**
@@ -110,21 +154,24 @@ public class RegexRules
      */
     public List<Rule> match( String namespaceURI, String pattern, String name, Attributes attributes )
     {
-        //
-        // not a particularly quick implementation
-        // regex is probably going to be slower than string equality
-        // so probably should have a set of strings
-        // and test each only once
-        //
-        // XXX FIX ME - Time And Optimize
-        //
-        ArrayList<Rule> rules = new ArrayList<Rule>( registeredRules.size() );
-        for ( RegisteredRule rr : registeredRules )
+        List<Rule> rules = memoizedMatches.get( pattern );
+        if ( rules == null )
         {
-            if ( matcher.match( pattern, rr.pattern ) )
+            List<RegisteredRule> indexedRules = null;
+            if ( pattern != null && !rulesByLastSegment.isEmpty() )
             {
-                rules.add( rr.rule );
+                indexedRules = rulesByLastSegment.get( pattern.substring( pattern.lastIndexOf( '/' ) + 1 ) );
+            }
+            if ( indexedRules == null )
+            {
+                rules = match( pattern, unindexedRules );
+            }
+            else
+            {
+                rules = match( pattern, unindexedRules, indexedRules );
             }
+            rules = unmodifiableList( rules );
+            memoizedMatches.put( pattern, rules );
         }
         return rules;
     }
@@ -142,6 +189,103 @@ public class RegexRules
         return rules;
     }
 
+    // --------------------------------------------------------- Private Methods
+
+    /**
+     * Tests the given path against the given candidates.
+     *
+     * @param pattern the path to be matched
+     * @param candidates the candidate rules, in registration order
+     * @return the matching rules, in registration order
+     */
+    private List<Rule> match( String pattern, List<RegisteredRule> candidates )
+    {
+        ArrayList<Rule> rules = new ArrayList<Rule>();
+        for ( RegisteredRule rr : candidates )
+        {
+            if ( matcher.match( pattern, rr.pattern ) )
+            {
+                rules.add( rr.rule );
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Tests the given path against the given two sets of candidates, merging them in registration order.
+     *
+     * @param pattern the path to be matched
+     * @param candidates the first candidate rules, in registration order
+     * @param otherCandidates the second candidate rules, in registration order
+     * @return the matching rules, in registration order
+     */
+    private List<Rule> match( String pattern, List<RegisteredRule> candidates, List<RegisteredRule> otherCandidates )
+    {
+        ArrayList<Rule> rules = new ArrayList<Rule>();
+        int i = 0;
+        int j = 0;
+        while ( i < candidates.size() || j < otherCandidates.size() )
+        {
+            RegisteredRule rr;
+            if ( j == otherCandidates.size()
+                || ( i < candidates.size() && candidates.get( i ).order < otherCandidates.get( j ).order ) )
+            {
+                rr = candidates.get( i++ );
+            }
+            else
+            {
+                rr = otherCandidates.get( j++ );
+            }
+
+            if ( matcher.match( pattern, rr.pattern ) )
+            {
+                rules.add( rr.rule );
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Rebuilds the candidates indexes from scratch, needed when the regex strategy changes.
+     */
+    private void reindex()
+    {
+        rulesByLastSegment.clear();
+        unindexedRules.clear();
+        memoizedMatches.clear();
+        for ( RegisteredRule rr : registeredRules )
+        {
+            index( rr );
+        }
+    }
+
+    /**
+     * Adds the given registered rule to the candidates indexes.
+     *
+     * @param registeredRule the registered rule
+     */
+    private void index( RegisteredRule registeredRule )
+    {
+        // the simple algorithm matches trailing literal characters one by one,
+        // so a literal last segment must be the last segment of any matching path
+        if ( matcher.getClass() == SimpleRegexMatcher.class )
+        {
+            String lastSegment = registeredRule.pattern.substring( registeredRule.pattern.lastIndexOf( '/' ) + 1 );
+            if ( lastSegment.indexOf( '*' ) == -1 && lastSegment.indexOf( '?' ) == -1 )
+            {
+                List<RegisteredRule> indexedRules = rulesByLastSegment.get( lastSegment );
+                if ( indexedRules == null )
+                {
+                    indexedRules = new ArrayList<RegisteredRule>();
+                    rulesByLastSegment.put( lastSegment, indexedRules );
+                }
+                indexedRules.add( registeredRule );
+                return;
+            }
+        }
+        unindexedRules.add( registeredRule );
+    }
+
     /** Used to associate rules with paths in the rules list */
     private static class RegisteredRule
     {
@@ -149,10 +293,14 @@ public class RegexRules
 
         Rule rule;
 
-        RegisteredRule( String pattern, Rule rule )
+        /** The registration order */
+        int order;
+
+        RegisteredRule( String pattern, Rule rule, int order )
         {
             this.pattern = pattern;
             this.rule = rule;
+            this.order = order;
         }
     }
 
@@ -19,6 +19,13 @@ package org.apache.commons.digester3;
  * under the License.
  */
 
+import static java.util.Collections.synchronizedMap;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 import org.xml.sax.Attributes;
 
 /**
@@ -52,6 +59,35 @@ import org.xml.sax.Attributes;
  */public abstract class Rule
 {
 
+    /**
+     * Flag of the {@link #begin(String, String, Attributes)} callback.
+     */
+    static final int BEGIN = 1;
+
+    /**
+     * Flag of the {@link #body(String, String, String)} callback.
+     */
+    static final int BODY = 1 << 1;
+
+    /**
+     * Flag of the {@link #end(String, String)} callback.
+     */
+    static final int END = 1 << 2;
+
+    /**
+     * Flag of the {@link #finish()} callback.
+     */
+    static final int FINISH = 1 << 3;
+
+    private static final int ALL_CALLBACKS = BEGIN | BODY | END | FINISH;
+
+    /**
+     * The flags of the callbacks overridden by the rule classes detected so far; classes are weakly referenced, so
+     * that their class loaders can be garbage collected.
+     */
+    private static final Map<Class<?>, Integer> CALLBACKS_BY_CLASS =
+        synchronizedMap( new WeakHashMap<Class<?>, Integer>() );
+
     // ----------------------------------------------------- Instance Variables
 
     /**
@@ -64,6 +100,11 @@ import org.xml.sax.Attributes;
      */
     private String namespaceURI = null;
 
+    /**
+     * The flags of the callbacks overridden by this rule, lazily detected, -1 when not detected yet.
+     */
+    private int callbacks = -1;
+
     // ------------------------------------------------------------- Properties
 
     /**
@@ -107,6 +148,40 @@ import org.xml.sax.Attributes;
         this.namespaceURI = namespaceURI;
     }
 
+    /**
+     * Return <code>true</code> if this rule needs the body text of the matched elements to be accumulated and passed to
+     * {@link #body(String, String, String)}. When none of the rules matching an element need it, the
+     * <code>Digester</code> doesn't collect the element body text at all and invokes
+     * {@link #body(String, String, String)} with an empty string.
+     * <p>
+     * The default implementation returns <code>true</code> if the concrete rule class overrides
+     * {@link #body(String, String, String)}, which is always safe; rules overriding the method just to receive the
+     * event, without looking at the text, can override this method to return <code>false</code>.
+     *
+     * @return <code>true</code> if this rule needs the body text of the matched elements, <code>false</code> otherwise
+     * @since 3.3
+     */
+    public boolean isBodyTextRequired()
+    {
+        return isCallbackOverridden( BODY );
+    }
+
+    /**
+     * Checks whether the given callback is overridden by the concrete rule class, so the <code>Digester</code> can
+     * avoid invoking the ones that would do nothing.
+     *
+     * @param callback one of {@link #BEGIN}, {@link #BODY}, {@link #END} or {@link #FINISH}
+     * @return true, if the given callback is overridden, false otherwise
+     */
+    final boolean isCallbackOverridden( int callback )
+    {
+        if ( callbacks < 0 )
+        {
+            callbacks = detectCallbacks();
+        }
+        return ( callbacks & callback ) != 0;
+    }
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -168,4 +243,84 @@ import org.xml.sax.Attributes;
         // The default implementation does nothing
     }
 
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Detects which callbacks have been overridden by any class in the hierarchy of this rule, once per rule class.
+     *
+     * @return the flags of the overridden callbacks
+     */
+    private int detectCallbacks()
+    {
+        Integer cached = CALLBACKS_BY_CLASS.get( getClass() );
+        if ( cached != null )
+        {
+            return cached.intValue();
+        }
+
+        int detected = scanCallbacks();
+        CALLBACKS_BY_CLASS.put( getClass(), Integer.valueOf( detected ) );
+        return detected;
+    }
+
+    /**
+     * Scans the hierarchy of this rule for the overridden callbacks.
+     *
+     * @return the flags of the overridden callbacks
+     */
+    private int scanCallbacks()
+    {
+        int detected = 0;
+        for ( Class<?> type = getClass(); type != Rule.class; type = type.getSuperclass() )
+        {
+            Method[] methods;
+            try
+            {
+                methods = type.getDeclaredMethods();
+            }
+            catch ( SecurityException e )
+            {
+                // can't tell, play safe
+                return ALL_CALLBACKS;
+            }
+
+            for ( Method method : methods )
+            {
+                detected |= toCallback( method );
+            }
+        }
+        return detected;
+    }
+
+    /**
+     * Returns the flag of the callback the given method overrides, if any.
+     *
+     * @param method the method to check
+     * @return the flag of the callback the given method overrides, 0 if it is not a callback
+     */
+    private static int toCallback( Method method )
+    {
+        String name = method.getName();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if ( "begin".equals( name )
+            && Arrays.equals( parameterTypes, new Class<?>[] { String.class, String.class, Attributes.class } ) )
+        {
+            return BEGIN;
+        }
+        if ( "body".equals( name )
+            && Arrays.equals( parameterTypes, new Class<?>[] { String.class, String.class, String.class } ) )
+        {
+            return BODY;
+        }
+        if ( "end".equals( name ) && Arrays.equals( parameterTypes, new Class<?>[] { String.class, String.class } ) )
+        {
+            return END;
+        }
+        if ( "finish".equals( name ) && parameterTypes.length == 0 )
+        {
+            return FINISH;
+        }
+        return 0;
+    }
+
 }
@@ -19,6 +19,8 @@ package org.apache.commons.digester3;
  * under the License.
  */
 
+import static java.util.Collections.unmodifiableList;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -71,6 +73,31 @@ public class RulesBase
      */
     protected ArrayList<Rule> rules = new ArrayList<Rule>();
 
+    /**
+     * The registered patterns, split in segments, used to match {@link ElementPath}s without building the
+     * corresponding <code>String</code>.
+     */
+    private final PatternsTree<String> patternsTree = new PatternsTree<String>();
+
+    /**
+     * The number of wildcard patterns in {@link #patternsTree}, used to detect subclasses that directly modified the
+     * {@link #wildcardCache}.
+     */
+    private int wildcardPatternsCount = 0;
+
+    /**
+     * The registered Rule instances for each pattern, partitioned by namespace URI.
+     */
+    private final HashMap<String, NamespacePartitions> namespacePartitions =
+        new HashMap<String, NamespacePartitions>();
+
+    /**
+     * Flag to disable segments matching if a subclass changed the <code>String</code> based matching policy.
+     */
+    private final boolean segmentsMatching = !isOverridden( RulesBase.class, "match", String.class, String.class,
+                                                            String.class, Attributes.class )
+        && !isOverridden( RulesBase.class, "lookup", String.class, String.class );
+
     // ------------------------------------------------------------- Properties
 
     /**
@@ -108,7 +135,9 @@ public class RulesBase
             if ( pattern.startsWith( "*/" ) )
             {
                 wildcardCache.add( pattern.substring( 1 ) );
+                wildcardPatternsCount++;
             }
+            patternsTree.put( pattern, pattern );
             cache.put( pattern, list );
         }
         list.add( rule );
@@ -121,6 +150,9 @@ public class RulesBase
     public void clear()
     {
         wildcardCache.clear();
+        patternsTree.clear();
+        wildcardPatternsCount = 0;
+        namespacePartitions.clear();
         cache.clear();
         rules.clear();
     }
@@ -135,18 +167,53 @@ public class RulesBase
         if ( ( rulesList == null ) || ( rulesList.size() < 1 ) )
         {
             // Find the longest key, ie more discriminant
-            String longKey = "";
-            for ( String key : wildcardCache )
+            String longKey;
+            if ( wildcardPatternsCount == wildcardCache.size() )
             {
-                if ( ( pattern.equals( key.substring( 1 ) ) || pattern.endsWith( key ) )
-                    && key.length() > longKey.length() )
-                {
-                    longKey = key;
-                }
+                longKey = patternsTree.matchWildcard( pattern );
+            }
+            else
+            {
+                longKey = scanWildcardCache( pattern );
+            }
+            if ( longKey != null )
+            {
+                rulesList = lookup( namespaceURI, longKey );
             }
-            if ( longKey.length() > 0 )
+        }
+        if ( rulesList == null )
+        {
+            rulesList = new ArrayList<Rule>();
+        }
+        return ( rulesList );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Rule> match( String namespaceURI, ElementPath path, String name, Attributes attributes )
+    {
+        if ( !segmentsMatching || wildcardPatternsCount != wildcardCache.size() )
+        {
+            return super.match( namespaceURI, path, name, attributes );
+        }
+
+        List<Rule> rulesList = null;
+
+        String exactKey = patternsTree.matchExact( path );
+        if ( exactKey != null )
+        {
+            rulesList = lookup( namespaceURI, exactKey );
+        }
+
+        if ( ( rulesList == null ) || ( rulesList.size() < 1 ) )
+        {
+            // Find the longest key, ie more discriminant
+            String longKey = patternsTree.matchWildcard( path );
+            if ( longKey != null )
             {
-                rulesList = lookup( namespaceURI, "*" + longKey );
+                rulesList = lookup( namespaceURI, longKey );
             }
         }
         if ( rulesList == null )
@@ -188,16 +255,144 @@ public class RulesBase
             return ( list );
         }
 
-        // Select only Rules that match on the specified namespace URI
-        ArrayList<Rule> results = new ArrayList<Rule>();
-        for ( Rule item : list )
+        // Select only Rules that match on the specified namespace URI,
+        // partitions are computed once and rebuilt only when the rules for the pattern change
+        NamespacePartitions partitions = namespacePartitions.get( pattern );
+        if ( partitions == null || !partitions.isPartitionOf( list ) )
         {
-            if ( ( namespaceURI.equals( item.getNamespaceURI() ) ) || ( item.getNamespaceURI() == null ) )
+            partitions = new NamespacePartitions( list );
+            namespacePartitions.put( pattern, partitions );
+        }
+        return partitions.get( namespaceURI );
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Finds the longest registered wildcard pattern matching the given path, scanning all the {@link #wildcardCache}
+     * keys; used only when a subclass modified the cache directly.
+     *
+     * @param path the <code>'/'</code> separated element path
+     * @return the longest matching wildcard pattern, <code>null</code> if none matches
+     */
+    private String scanWildcardCache( String path )
+    {
+        String longKey = "";
+        for ( String key : wildcardCache )
+        {
+            if ( ( path.equals( key.substring( 1 ) ) || path.endsWith( key ) ) && key.length() > longKey.length() )
+            {
+                longKey = key;
+            }
+        }
+        if ( longKey.length() > 0 )
+        {
+            return "*" + longKey;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the current class overrides the given method, declared in the given base class.
+     *
+     * @param baseClass the class declaring the method
+     * @param methodName the method name
+     * @param parameterTypes the method parameter types
+     * @return true, if a subclass of the base class declares the given method, false otherwise
+     */
+    boolean isOverridden( Class<?> baseClass, String methodName, Class<?>... parameterTypes )
+    {
+        for ( Class<?> type = getClass(); type != baseClass; type = type.getSuperclass() )
+        {
+            try
+            {
+                type.getDeclaredMethod( methodName, parameterTypes );
+                return true;
+            }
+            catch ( NoSuchMethodException e )
+            {
+                // go on with the superclass
+            }
+            catch ( SecurityException e )
             {
-                results.add( item );
+                // can't tell, play safe
+                return true;
             }
         }
-        return ( results );
+        return false;
+    }
+
+    /**
+     * The Rule instances registered for a pattern, partitioned by namespace URI. Each partition contains the rules
+     * for that namespace URI and the ones not bound to any namespace, in registration order.
+     */
+    private static final class NamespacePartitions
+    {
+
+        /**
+         * The partitioned rules.
+         */
+        private final List<Rule> source;
+
+        /**
+         * The size of the partitioned rules when partitions were computed.
+         */
+        private final int sourceSize;
+
+        /**
+         * The rules not bound to any namespace, for namespaces none of the rules are bound to.
+         */
+        private final List<Rule> withoutNamespace;
+
+        /**
+         * The partitions for the namespaces the rules are bound to.
+         */
+        private final HashMap<String, List<Rule>> byNamespace = new HashMap<String, List<Rule>>();
+
+        NamespacePartitions( List<Rule> source )
+        {
+            this.source = source;
+            this.sourceSize = source.size();
+
+            ArrayList<Rule> rulesWithoutNamespace = new ArrayList<Rule>();
+            for ( Rule rule : source )
+            {
+                String namespaceURI = rule.getNamespaceURI();
+                if ( namespaceURI == null )
+                {
+                    rulesWithoutNamespace.add( rule );
+                }
+                else if ( !byNamespace.containsKey( namespaceURI ) )
+                {
+                    ArrayList<Rule> partition = new ArrayList<Rule>();
+                    for ( Rule item : source )
+                    {
+                        if ( namespaceURI.equals( item.getNamespaceURI() ) || item.getNamespaceURI() == null )
+                        {
+                            partition.add( item );
+                        }
+                    }
+                    byNamespace.put( namespaceURI, unmodifiableList( partition ) );
+                }
+            }
+            this.withoutNamespace = unmodifiableList( rulesWithoutNamespace );
+        }
+
+        boolean isPartitionOf( List<Rule> list )
+        {
+            return source == list && sourceSize == list.size();
+        }
+
+        List<Rule> get( String namespaceURI )
+        {
+            List<Rule> partition = byNamespace.get( namespaceURI );
+            if ( partition == null )
+            {
+                return withoutNamespace;
+            }
+            return partition;
+        }
+
     }
 
 }
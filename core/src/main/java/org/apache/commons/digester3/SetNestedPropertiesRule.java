@@ -25,10 +25,7 @@ import static org.apache.commons.beanutils.PropertyUtils.getPropertyDescriptor;
 import static java.lang.String.format;
 
 import java.beans.PropertyDescriptor;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.beanutils.DynaBean;
@@ -78,22 +75,16 @@ import org.xml.sax.Attributes;
  * <b>Implementation Notes</b>
  * </p>
  * <p>
- * This class works by creating its own simple Rules implementation. When begin is invoked on this rule, the digester's
- * current rules object is replaced by a custom one. When end is invoked for this rule, the original rules object is
- * restored. The digester rules objects therefore behave in a stack-like manner.
+ * When begin is invoked on this rule, a child rule owned by this rule instance is added, through the digester, to the
+ * matches of each direct child of the current element, until the end of the element. It is this child rule that is
+ * responsible for setting the appropriate property on the target object (if such a property exists). The effect is
+ * therefore like a "trailing wildcard pattern". The rules matching the children in the digester's rules object are
+ * still fired, so other rules are not "disabled" during processing of a SetNestedPropertiesRule.
  * </p>
  * <p>
- * For each child element encountered, the custom Rules implementation ensures that a special AnyChildRule instance is
- * included in the matches returned to the digester, and it is this rule instance that is responsible for setting the
- * appropriate property on the target object (if such a property exists). The effect is therefore like a
- * "trailing wildcard pattern". The custom Rules implementation also returns the matches provided by the underlying
- * Rules implementation for the same pattern, so other rules are not "disabled" during processing of a
- * SetNestedPropertiesRule.
- * </p>
- * <p>
- * TODO: Optimise this class. Currently, each time begin is called, new AnyChildRules and AnyChildRule objects are
- * created. It should be possible to cache these in normal use (though watch out for when a rule instance is invoked
- * re-entrantly!).
+ * The child rule keeps no state between the events of a child element, so the same instance is safely fired
+ * re-entrantly when the rule matches nested elements. The write methods of the properties are bound the first time
+ * they are set on objects of a given class, and then invoked directly for the following child elements.
  * </p>
  * 
  * @since 1.6
@@ -110,6 +101,10 @@ public class SetNestedPropertiesRule
 
     private final HashMap<String, String> elementNames = new HashMap<String, String>();
 
+    private final AnyChildRule anyChildRule = new AnyChildRule();
+
+    private final PropertyBindings bindings = new PropertyBindings();
+
     // ----------------------------------------------------------- Constructors
 
     /**
@@ -216,6 +211,7 @@ public class SetNestedPropertiesRule
     public void setDigester( Digester digester )
     {
         super.setDigester( digester );
+        anyChildRule.setDigester( digester );
         log = digester.getLogger();
     }
 
@@ -278,23 +274,7 @@ public class SetNestedPropertiesRule
     public void begin( String namespace, String name, Attributes attributes )
         throws Exception
     {
-        Rules oldRules = getDigester().getRules();
-        AnyChildRule anyChildRule = new AnyChildRule();
-        anyChildRule.setDigester( getDigester() );
-        AnyChildRules newRules = new AnyChildRules( anyChildRule );
-        newRules.init( getDigester().getMatch() + "/", oldRules );
-        getDigester().setRules( newRules );
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void body( String namespace, String name, String text )
-        throws Exception
-    {
-        AnyChildRules newRules = (AnyChildRules) getDigester().getRules();
-        getDigester().setRules( newRules.getOldRules() );
+        getDigester().addChildElementRule( anyChildRule );
     }
 
     /**
@@ -326,137 +306,20 @@ public class SetNestedPropertiesRule
 
     // ----------------------------------------- local classes
 
-    /** Private Rules implementation */
-    private class AnyChildRules
-        implements Rules
-    {
-        private String matchPrefix = null;
-
-        private Rules decoratedRules = null;
-
-        private final ArrayList<Rule> rules = new ArrayList<Rule>( 1 );
-
-        private final AnyChildRule rule;
-
-        public AnyChildRules( AnyChildRule rule )
-        {
-            this.rule = rule;
-            rules.add( rule );
-        }
-
-        public Digester getDigester()
-        {
-            return null;
-        }
-
-        public void setDigester( Digester digester )
-        {
-        }
-
-        public String getNamespaceURI()
-        {
-            return null;
-        }
-
-        public void setNamespaceURI( String namespaceURI )
-        {
-        }
-
-        public void add( String pattern, Rule rule )
-        {
-        }
-
-        public void clear()
-        {
-        }
-
-        public List<Rule> match( String namespaceURI, String matchPath, String name, Attributes attributes )
-        {
-            List<Rule> match = decoratedRules.match( namespaceURI, matchPath, name, attributes );
-
-            if ( ( matchPath.startsWith( matchPrefix ) ) && ( matchPath.indexOf( '/', matchPrefix.length() ) == -1 ) )
-            {
-
-                // The current element is a direct child of the element
-                // specified in the init method, so we want to ensure that
-                // the rule passed to this object's constructor is included
-                // in the returned list of matching rules.
-
-                if ( ( match == null || match.size() == 0 ) )
-                {
-                    // The "real" rules class doesn't have any matches for
-                    // the specified path, so we return a list containing
-                    // just one rule: the one passed to this object's
-                    // constructor.
-                    return rules;
-                }
-                // The "real" rules class has rules that match the current
-                // node, so we return this list *plus* the rule passed to
-                // this object's constructor.
-                //
-                // It might not be safe to modify the returned list,
-                // so clone it first.
-                LinkedList<Rule> newMatch = new LinkedList<Rule>( match );
-                newMatch.addLast( rule );
-                return newMatch;
-            }
-            return match;
-        }
-
-        public List<Rule> rules()
-        {
-            // This is not actually expected to be called during normal
-            // processing.
-            //
-            // There is only one known case where this is called; when a rule
-            // returned from AnyChildRules.match is invoked and throws a
-            // SAXException then method Digester.endDocument will be called
-            // without having "uninstalled" the AnyChildRules ionstance. That
-            // method attempts to invoke the "finish" method for every Rule
-            // instance - and thus needs to call rules() on its Rules object,
-            // which is this one. Actually, java 1.5 and 1.6beta2 have a
-            // bug in their xml implementation such that endDocument is not
-            // called after a SAXException, but other parsers (eg Aelfred)
-            // do call endDocument. Here, we therefore need to return the
-            // rules registered with the underlying Rules object.
-            log.debug( "AnyChildRules.rules invoked." );
-            return decoratedRules.rules();
-        }
-
-        public void init( String prefix, Rules rules )
-        {
-            matchPrefix = prefix;
-            decoratedRules = rules;
-        }
-
-        public Rules getOldRules()
-        {
-            return decoratedRules;
-        }
-    }
-
+    /** Private Rule, fired for each direct child of the elements matched by this rule */
     private class AnyChildRule
         extends Rule
     {
 
-        private String currChildElementName = null;
-
-        @Override
-        public void begin( String namespaceURI, String name, Attributes attributes )
-            throws Exception
-        {
-            currChildElementName = name;
-        }
-
         @Override
         public void body( String namespace, String name, String text )
             throws Exception
         {
-            String propName = currChildElementName;
-            if ( elementNames.containsKey( currChildElementName ) )
+            String propName = name;
+            if ( elementNames.containsKey( name ) )
             {
                 // overide propName
-                propName = elementNames.get( currChildElementName );
+                propName = elementNames.get( name );
                 if ( propName == null )
                 {
                     // user wants us to ignore this element
@@ -492,6 +355,37 @@ public class SetNestedPropertiesRule
                 text = text.trim();
             }
 
+            if ( bindings.setProperty( getDigester(), top, propName, text ) )
+            {
+                return;
+            }
+
+            if ( top instanceof DeferredInstance )
+            {
+                final String property = propName;
+                final String value = text;
+                ( (DeferredInstance) top ).record( new DeferredInstance.Invocation()
+                {
+
+                    public void invoke( Object instance )
+                        throws Exception
+                    {
+                        setUnboundProperty( instance, property, value );
+                    }
+
+                } );
+                return;
+            }
+
+            setUnboundProperty( top, propName, text );
+        }
+
+        /**
+         * Sets a property that can't be bound, through <code>BeanUtils</code>.
+         */
+        private void setUnboundProperty( Object top, String propName, String text )
+            throws Exception
+        {
             if ( !allowUnknownChildElements )
             {
                 // Force an exception if the property does not exist
@@ -525,13 +419,6 @@ public class SetNestedPropertiesRule
                 throw e;
             }
         }
-
-        @Override
-        public void end( String namespace, String name )
-            throws Exception
-        {
-            currChildElementName = null;
-        }
     }
 
 }
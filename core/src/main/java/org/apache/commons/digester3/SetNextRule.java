@@ -19,6 +19,14 @@ package org.apache.commons.digester3;
  * under the License.
  */
 
+import static java.lang.String.format;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.xml.sax.Attributes;
 
 /**
  * <p>
@@ -35,11 +43,71 @@ package org.apache.commons.digester3;
  * ConvertUtils functionality when building parent-child relationships is expected to be very rare; however if you do
  * need this then instead of using this rule, create a CallMethodRule specifying targetOffset of 1 in the constructor.
  * </p>
+ * <p>
+ * When a {@link #setBulkMethodName(String) bulk method} is configured, consecutive children of the same parent are
+ * collected rather than passed one by one: they are passed all together, as a <code>java.util.List</code>, to the bulk
+ * method of the parent (for example <code>addAll</code>) at the end of the element enclosing them, or as soon as a
+ * child of another parent is found. This mode should only be used when nothing else relies on the children being
+ * linked to the parent before that.
+ * </p>
  */
 public class SetNextRule
     extends AbstractMethodRule
 {
 
+    /**
+     * The parameter types the bulk method is looked up with: the first one matches any bulk method unless the exact
+     * match is required, in which case the bulk method is looked up with the others too.
+     */
+    private static final Class<?>[][] BULK_PARAM_TYPES = { { ArrayList.class }, { List.class }, { Collection.class } };
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The name of the parent method children are passed to as a list, null to pass them one by one.
+     */
+    private String bulkMethodName = null;
+
+    /**
+     * The children collected so far, to be passed to {@link #batchParent}.
+     */
+    private final List<Object> batch = new ArrayList<Object>();
+
+    /**
+     * The parent the collected children have to be passed to.
+     */
+    private Object batchParent = null;
+
+    /**
+     * The document the collected children belong to, as returned by {@link Digester#getDocumentCount()}.
+     */
+    private int batchDocument = 0;
+
+    /**
+     * Passes the collected children to their parent, ended with the element enclosing them.
+     */
+    private final Rule batchFlusher = new Rule()
+    {
+
+        @Override
+        public void end( String namespace, String name )
+            throws Exception
+        {
+            flushBatch();
+        }
+
+    };
+
+    /**
+     * The bulk methods resolved so far, by parent class.
+     */
+    private MethodInvocationCache bulkMethodInvocations;
+
+    /**
+     * The parameter types the bulk method was last found with.
+     */
+    private Class<?>[] bulkParamTypes = BULK_PARAM_TYPES[0];
+
     // ----------------------------------------------------------- Constructors
 
     /**
@@ -97,4 +165,166 @@ public class SetNextRule
         return getDigester().peek( 1 );
     }
 
+    /**
+     * Sets the name of the parent method the children have to be passed to, all together as a
+     * <code>java.util.List</code>, rather than one by one to the method this rule was created with.
+     *
+     * @param bulkMethodName the name of the parent method taking a collection of children, null to disable batching
+     * @since 3.3
+     */
+    public void setBulkMethodName( String bulkMethodName )
+    {
+        this.bulkMethodName = bulkMethodName;
+    }
+
+    /**
+     * Return the name of the parent method the children are passed to all together, null if they are passed one by
+     * one.
+     *
+     * @return the name of the parent method the children are passed to all together
+     * @since 3.3
+     */
+    public String getBulkMethodName()
+    {
+        return bulkMethodName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void begin( String namespace, String name, Attributes attributes )
+        throws Exception
+    {
+        if ( bulkMethodName != null && fireOnBegin )
+        {
+            addToBatch();
+            return;
+        }
+        super.begin( namespace, name, attributes );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void end( String namespace, String name )
+        throws Exception
+    {
+        if ( bulkMethodName != null && !fireOnBegin )
+        {
+            addToBatch();
+            return;
+        }
+        super.end( namespace, name );
+    }
+
+    /**
+     * Collects the current child, passing the children collected so far to their parent if it is not the current one.
+     */
+    private void addToBatch()
+        throws Exception
+    {
+        Object child = getChild();
+        Object parent = getParent();
+        if ( batchDocument != getDigester().getDocumentCount() )
+        {
+            // left over by a failed parse of a previous document
+            batch.clear();
+            batchParent = null;
+            batchDocument = getDigester().getDocumentCount();
+        }
+        else if ( parent != batchParent )
+        {
+            flushBatch();
+        }
+
+        if ( child instanceof DeferredInstance || parent instanceof DeferredInstance )
+        {
+            // the invocation has to be recorded, after the children collected so far have been passed to the parent
+            flushBatch();
+            invoke();
+            return;
+        }
+
+        if ( batch.isEmpty() )
+        {
+            batchParent = parent;
+            ElementPath matchPath = getDigester().getMatchPath();
+            getDigester().addElementEndRule( matchPath.getDepth() - 1, batchFlusher );
+        }
+        batch.add( child );
+    }
+
+    /**
+     * Passes the collected children to their parent.
+     */
+    private void flushBatch()
+        throws Exception
+    {
+        if ( batch.isEmpty() )
+        {
+            return;
+        }
+
+        Object parent = batchParent;
+        // the parent could keep the list
+        List<Object> children = new ArrayList<Object>( batch );
+        batch.clear();
+        batchParent = null;
+
+        if ( getDigester().getLogger().isDebugEnabled() )
+        {
+            getDigester().getLogger().debug( format( "[SetNextRule]{%s} Call %s.%s(%s children)",
+                                                     getDigester().getMatch(),
+                                                     parent.getClass().getName(),
+                                                     bulkMethodName,
+                                                     children.size() ) );
+        }
+
+        if ( bulkMethodInvocations == null || !bulkMethodInvocations.isFor( bulkMethodName, useExactMatch ) )
+        {
+            bulkMethodInvocations = new MethodInvocationCache( bulkMethodName, useExactMatch );
+        }
+        resolveBulkMethod( parent.getClass() ).invoke( parent, children );
+    }
+
+    /**
+     * Return the bulk method of the given parent class.
+     */
+    private Method resolveBulkMethod( Class<?> parentClass )
+        throws NoSuchMethodException
+    {
+        try
+        {
+            return bulkMethodInvocations.resolve( parentClass, bulkParamTypes );
+        }
+        catch ( NoSuchMethodException e )
+        {
+            if ( !useExactMatch )
+            {
+                throw e;
+            }
+
+            // the exact match requires the parameter type the bulk method is declared with
+            for ( Class<?>[] paramTypes : BULK_PARAM_TYPES )
+            {
+                if ( paramTypes != bulkParamTypes )
+                {
+                    try
+                    {
+                        Method bulkMethod = bulkMethodInvocations.resolve( parentClass, paramTypes );
+                        bulkParamTypes = paramTypes;
+                        return bulkMethod;
+                    }
+                    catch ( NoSuchMethodException ignored )
+                    {
+                        // try the next one
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
 }
@@ -23,9 +23,18 @@ import static java.lang.String.format;
 import static org.apache.commons.beanutils.BeanUtils.populate;
 import static org.apache.commons.beanutils.PropertyUtils.isWriteable;
 
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.beanutils.BeanUtilsBean;
+import org.apache.commons.beanutils.ConvertUtilsBean;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.MethodUtils;
+import org.apache.commons.beanutils.PropertyUtilsBean;
 import org.xml.sax.Attributes;
 
 /**
@@ -38,6 +47,13 @@ import org.xml.sax.Attributes;
  * can be overridden by using {@link #SetPropertiesRule(String[] attributeNames, String[] propertyNames)}. This allows
  * attributes to be mapped to properties with different names. Certain attributes can also be marked to be ignored.
  * </p>
+ * <p>
+ * The first time a given set of attributes is applied to an object of a given class, the rule resolves once the write
+ * methods of the target properties in a <em>setter plan</em>, then reused for all the following elements with the
+ * same attributes, so the properties are set straight from the <code>Attributes</code> without any further
+ * introspection. Nested, indexed and mapped property names, as well as <code>DynaBean</code> and <code>Map</code>
+ * targets, are still handled by <code>BeanUtils</code>.
+ * </p>
  */
 public class SetPropertiesRule
     extends Rule
@@ -143,6 +159,16 @@ public class SetPropertiesRule
      */
     private boolean ignoreMissingProperty = true;
 
+    /**
+     * The maximum number of setter plans kept for each target class.
+     */
+    private static final int MAX_SETTER_PLANS = 16;
+
+    /**
+     * The setter plans compiled so far, by target class.
+     */
+    private final Map<Class<?>, List<SetterPlan>> setterPlans = new HashMap<Class<?>, List<SetterPlan>>();
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -151,6 +177,35 @@ public class SetPropertiesRule
     @Override
     public void begin( String namespace, String name, Attributes attributes )
         throws Exception
+    {
+        Object top = getDigester().peek();
+        BeanUtilsBean beanUtils = BeanUtilsBean.getInstance();
+        if ( !( top instanceof DeferredInstance ) && ( top == null || top instanceof DynaBean || top instanceof Map
+            || beanUtils.getClass() != BeanUtilsBean.class ) )
+        {
+            populateProperties( attributes );
+            return;
+        }
+
+        SetterPlan plan = getSetterPlan( beanUtils.getPropertyUtils(), top, attributes );
+
+        if ( getDigester().getLogger().isDebugEnabled() )
+        {
+            getDigester().getLogger().debug( format( "[SetPropertiesRule]{%s} Set '%s' properties",
+                                                     getDigester().getMatch(),
+                                                     getTargetClass( top ).getName() ) );
+        }
+        plan.setProperties( top, attributes, beanUtils );
+    }
+
+    /**
+     * Sets the properties of the top object through <code>BeanUtils</code>, used when setter plans can't be applied.
+     *
+     * @param attributes The attribute list of this element
+     * @throws Exception if any error occurs
+     */
+    private void populateProperties( Attributes attributes )
+        throws Exception
     {
         // Build a set of attribute names and corresponding values
         Map<String, String> values = new HashMap<String, String>();
@@ -241,6 +296,7 @@ public class SetPropertiesRule
     public void addAlias( String attributeName, String propertyName )
     {
         aliases.put( attributeName, propertyName );
+        setterPlans.clear();
     }
 
     /**
@@ -278,6 +334,337 @@ public class SetPropertiesRule
     public void setIgnoreMissingProperty( boolean ignoreMissingProperty )
     {
         this.ignoreMissingProperty = ignoreMissingProperty;
+        setterPlans.clear();
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Return the attribute name, the local name if the parser is namespace aware, the qualified name otherwise.
+     */
+    private static String getAttributeName( Attributes attributes, int index )
+    {
+        String attributeName = attributes.getLocalName( index );
+        if ( "".equals( attributeName ) )
+        {
+            attributeName = attributes.getQName( index );
+        }
+        return attributeName;
+    }
+
+    /**
+     * Return the setter plan of the given attributes for the class of the given object, compiling it if not done yet.
+     */
+    private SetterPlan getSetterPlan( PropertyUtilsBean propertyUtils, Object top, Attributes attributes )
+        throws Exception
+    {
+        Class<?> targetClass = getTargetClass( top );
+        List<SetterPlan> plans = setterPlans.get( targetClass );
+        if ( plans != null )
+        {
+            for ( SetterPlan plan : plans )
+            {
+                if ( plan.matches( attributes ) )
+                {
+                    return plan;
+                }
+            }
+        }
+
+        SetterPlan plan = compileSetterPlan( propertyUtils, top, attributes );
+        if ( plans == null )
+        {
+            plans = new ArrayList<SetterPlan>( 1 );
+            setterPlans.put( targetClass, plans );
+        }
+        if ( plans.size() < MAX_SETTER_PLANS )
+        {
+            plans.add( plan );
+        }
+        return plan;
+    }
+
+    /**
+     * Resolves how each of the given attributes has to be set on the given object.
+     */
+    private SetterPlan compileSetterPlan( PropertyUtilsBean propertyUtils, Object top, Attributes attributes )
+        throws Exception
+    {
+        int length = attributes.getLength();
+        String[] attributeNames = new String[length];
+        PropertySetter[] setters = new PropertySetter[length];
+
+        for ( int i = 0; i < length; i++ )
+        {
+            String attributeName = getAttributeName( attributes, i );
+            attributeNames[i] = attributeName;
+
+            String propertyName = attributeName;
+            if ( aliases.containsKey( attributeName ) )
+            {
+                propertyName = aliases.get( attributeName );
+            }
+            if ( propertyName == null )
+            {
+                // ignored attribute
+                continue;
+            }
+
+            if ( !isSimplePropertyName( propertyName ) )
+            {
+                // nested, indexed or mapped property, its writeability depends on the target instance
+                setters[i] = new PropertySetter( propertyName, null, null, !ignoreMissingProperty );
+                continue;
+            }
+
+            PropertyDescriptor descriptor;
+            try
+            {
+                descriptor = getPropertyDescriptor( propertyUtils, top, propertyName );
+            }
+            catch ( NoSuchMethodException e )
+            {
+                descriptor = null;
+            }
+
+            if ( descriptor == null || descriptor.getWriteMethod() == null )
+            {
+                if ( !ignoreMissingProperty )
+                {
+                    throw new NoSuchMethodException( "Property " + propertyName + " can't be set" );
+                }
+                // BeanUtils silently skips properties without setter as well
+                continue;
+            }
+
+            Method writeMethod = null;
+            if ( descriptor.getClass() == PropertyDescriptor.class )
+            {
+                writeMethod = MethodUtils.getAccessibleMethod( getTargetClass( top ), descriptor.getWriteMethod() );
+            }
+            if ( writeMethod != null )
+            {
+                setters[i] = new PropertySetter( propertyName, writeMethod, descriptor.getPropertyType(), false );
+            }
+            else
+            {
+                // indexed, mapped or not accessible property, let BeanUtils deal with it
+                setters[i] = new PropertySetter( propertyName, null, null, !ignoreMissingProperty );
+            }
+        }
+
+        return new SetterPlan( attributeNames, setters );
+    }
+
+    /**
+     * Return the class of the given object, or of the object to be created if it is a placeholder.
+     */
+    private static Class<?> getTargetClass( Object top )
+    {
+        if ( top instanceof DeferredInstance )
+        {
+            return ( (DeferredInstance) top ).getType();
+        }
+        return top.getClass();
+    }
+
+    /**
+     * Return the descriptor of the given simple property of the given object, or of the object to be created if it is a
+     * placeholder.
+     */
+    private static PropertyDescriptor getPropertyDescriptor( PropertyUtilsBean propertyUtils, Object top,
+                                                             String propertyName )
+        throws Exception
+    {
+        if ( top instanceof DeferredInstance )
+        {
+            for ( PropertyDescriptor descriptor : propertyUtils.getPropertyDescriptors( getTargetClass( top ) ) )
+            {
+                if ( propertyName.equals( descriptor.getName() ) )
+                {
+                    return descriptor;
+                }
+            }
+            return null;
+        }
+        return propertyUtils.getPropertyDescriptor( top, propertyName );
+    }
+
+    /**
+     * Checks whether the property name doesn't require the BeanUtils expression resolver.
+     */
+    private static boolean isSimplePropertyName( String propertyName )
+    {
+        for ( int i = 0; i < propertyName.length(); i++ )
+        {
+            switch ( propertyName.charAt( i ) )
+            {
+                case '.':
+                case '[':
+                case ']':
+                case '(':
+                case ')':
+                    return false;
+                default:
+                    // go on
+            }
+        }
+        return true;
+    }
+
+    /**
+     * How a single attribute value is set on the target object.
+     */
+    private static final class PropertySetter
+    {
+
+        private final String propertyName;
+
+        /**
+         * The resolved write method, <code>null</code> if the property has to be set through <code>BeanUtils</code>.
+         */
+        private final Method writeMethod;
+
+        private final Class<?> propertyType;
+
+        /**
+         * Flag to check the property is writeable before setting any property, only needed when the property is set
+         * through <code>BeanUtils</code>.
+         */
+        private final boolean checkWriteable;
+
+        public PropertySetter( String propertyName, Method writeMethod, Class<?> propertyType, boolean checkWriteable )
+        {
+            this.propertyName = propertyName;
+            this.writeMethod = writeMethod;
+            this.propertyType = propertyType;
+            this.checkWriteable = checkWriteable;
+        }
+
+        public void setProperty( Object top, final String value, final BeanUtilsBean beanUtils,
+                                 ConverterRegistry converterRegistry )
+            throws Exception
+        {
+            if ( writeMethod == null )
+            {
+                if ( top instanceof DeferredInstance )
+                {
+                    // writeability can be checked only once the object is created
+                    ( (DeferredInstance) top ).record( new DeferredInstance.Invocation()
+                    {
+
+                        public void invoke( Object instance )
+                            throws Exception
+                        {
+                            if ( checkWriteable && !beanUtils.getPropertyUtils().isWriteable( instance, propertyName ) )
+                            {
+                                throw new NoSuchMethodException( "Property " + propertyName + " can't be set" );
+                            }
+                            beanUtils.setProperty( instance, propertyName, value );
+                        }
+
+                    } );
+                    return;
+                }
+                beanUtils.setProperty( top, propertyName, value );
+                return;
+            }
+
+            // same conversion BeanUtils applies to String values, unless the Digester has its own converters
+            ConvertUtilsBean convertUtils = beanUtils.getConvertUtils();
+            Object newValue;
+            if ( propertyType.isArray() )
+            {
+                newValue = convertUtils.convert( (Object) value, propertyType );
+            }
+            else if ( converterRegistry != null )
+            {
+                newValue = converterRegistry.convert( value, propertyType );
+            }
+            else
+            {
+                newValue = convertUtils.convert( value, propertyType );
+            }
+            if ( top instanceof DeferredInstance )
+            {
+                ( (DeferredInstance) top ).record( writeMethod, newValue );
+                return;
+            }
+            writeMethod.invoke( top, newValue );
+        }
+
+    }
+
+    /**
+     * The setters to be applied for a given set of attributes to objects of a given class.
+     */
+    private final class SetterPlan
+    {
+
+        private final String[] attributeNames;
+
+        /**
+         * The setters, by attribute index, <code>null</code> for the ignored attributes.
+         */
+        private final PropertySetter[] setters;
+
+        public SetterPlan( String[] attributeNames, PropertySetter[] setters )
+        {
+            this.attributeNames = attributeNames;
+            this.setters = setters;
+        }
+
+        public boolean matches( Attributes attributes )
+        {
+            if ( attributes.getLength() != attributeNames.length )
+            {
+                return false;
+            }
+            for ( int i = 0; i < attributeNames.length; i++ )
+            {
+                String attributeName = getAttributeName( attributes, i );
+                if ( attributeName != attributeNames[i] && !attributeName.equals( attributeNames[i] ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public void setProperties( Object top, Attributes attributes, BeanUtilsBean beanUtils )
+            throws Exception
+        {
+            // as done by BeanUtils.populate, nothing is set if any property can't be set
+            for ( PropertySetter setter : setters )
+            {
+                if ( setter != null && setter.checkWriteable && !( top instanceof DeferredInstance )
+                    && !beanUtils.getPropertyUtils().isWriteable( top, setter.propertyName ) )
+                {
+                    throw new NoSuchMethodException( "Property " + setter.propertyName + " can't be set" );
+                }
+            }
+
+            ConverterRegistry converterRegistry = getDigester().getConverterRegistry();
+            for ( int i = 0; i < setters.length; i++ )
+            {
+                PropertySetter setter = setters[i];
+                if ( setter == null )
+                {
+                    continue;
+                }
+
+                String value = attributes.getValue( i );
+                if ( getDigester().getLogger().isDebugEnabled() )
+                {
+                    getDigester().getLogger().debug( format( "[SetPropertiesRule]{%s} Setting property '%s' to '%s'",
+                                                             getDigester().getMatch(),
+                                                             setter.propertyName,
+                                                             value ) );
+                }
+                setter.setProperty( top, value, beanUtils, converterRegistry );
+            }
+        }
+
     }
 
 }
@@ -111,6 +111,41 @@ public class SetPropertyRule
                                                      actualValue ) );
         }
 
+        // Set the property (with conversion as necessary), forcing an exception if it does not exist
+        checkAndSetProperty( top, actualName, actualValue );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return format( "SetPropertyRule[name=%s, value=%s]", name, value );
+    }
+
+    /**
+     * Sets the property on the given object, after having checked it exists; the operation is recorded if the object
+     * is still to be created.
+     */
+    private static void checkAndSetProperty( Object top, final String property, final String value )
+        throws Exception
+    {
+        if ( top instanceof DeferredInstance )
+        {
+            ( (DeferredInstance) top ).record( new DeferredInstance.Invocation()
+            {
+
+                public void invoke( Object instance )
+                    throws Exception
+                {
+                    checkAndSetProperty( instance, property, value );
+                }
+
+            } );
+            return;
+        }
+
         // Force an exception if the property does not exist
         // (BeanUtils.setProperty() silently returns in this case)
         //
@@ -118,33 +153,24 @@ public class SetPropertyRule
         // like SetPropertiesRule does.
         if ( top instanceof DynaBean )
         {
-            DynaProperty desc = ( (DynaBean) top ).getDynaClass().getDynaProperty( actualName );
+            DynaProperty desc = ( (DynaBean) top ).getDynaClass().getDynaProperty( property );
             if ( desc == null )
             {
-                throw new NoSuchMethodException( "Bean has no property named " + actualName );
+                throw new NoSuchMethodException( "Bean has no property named " + property );
             }
         }
         else
         /* this is a standard JavaBean */
         {
-            PropertyDescriptor desc = getPropertyDescriptor( top, actualName );
+            PropertyDescriptor desc = getPropertyDescriptor( top, property );
             if ( desc == null )
             {
-                throw new NoSuchMethodException( "Bean has no property named " + actualName );
+                throw new NoSuchMethodException( "Bean has no property named " + property );
             }
         }
 
         // Set the property (with conversion as necessary)
-        setProperty( top, actualName, actualValue );
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public String toString()
-    {
-        return format( "SetPropertyRule[name=%s, value=%s]", name, value );
+        setProperty( top, property, value );
     }
 
 }
@@ -19,6 +19,8 @@ package org.apache.commons.digester3;
  * under the License.
  */
 
+import static java.util.Arrays.copyOf;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -90,92 +92,143 @@ public class SimpleRegexMatcher
     // --------------------------------------------------------- Implementations Methods
 
     /**
-     * Implementation of regex matching algorithm. This calls itself recursively.
+     * Implementation of regex matching algorithm. Rather than calling itself recursively for each <code>*</code>
+     * wildcard, it keeps the positions to backtrack to in an explicit stack.
      *
      * @param basePattern the standard digester path representing the element
      * @param regexPattern the regex pattern the path will be tested against
-     * @param baseAt FIXME
-     * @param regexAt FIXME
+     * @param baseAt the position in the path where matching starts
+     * @param regexAt the position in the regex pattern where matching starts
      */
     private boolean match( String basePattern, String regexPattern, int baseAt, int regexAt )
     {
-        if ( log.isTraceEnabled() )
+        boolean trace = log.isTraceEnabled();
+        if ( trace )
         {
             log.trace( "Base: " + basePattern );
             log.trace( "Regex: " + regexPattern );
-            log.trace( "Base@" + baseAt );
-            log.trace( "Regex@" + regexAt );
         }
 
-        // check bounds
-        if ( regexAt >= regexPattern.length() )
+        int baseLength = basePattern.length();
+        int regexLength = regexPattern.length();
+
+        // for each '*' being tried: the position of the regex character following it, and the path position tried
+        int[] starRegexAt = null;
+        int[] starBaseAt = null;
+        int stars = 0;
+
+        while ( true )
         {
-            // maybe we've got a match
-            if ( baseAt >= basePattern.length() )
+            if ( trace )
             {
-                // ok!
-                return true;
+                log.trace( "Base@" + baseAt );
+                log.trace( "Regex@" + regexAt );
             }
-            // run out early
-            return false;
 
-        }
-        if ( baseAt >= basePattern.length() )
-        {
-            // run out early
-            return false;
-        }
-
-        // ok both within bounds
-        char regexCurrent = regexPattern.charAt( regexAt );
-        switch ( regexCurrent )
-        {
-            case '*':
-                // this is the tricky case
-                // check for terminal
-                if ( ++regexAt >= regexPattern.length() )
+            // check bounds
+            boolean failed = false;
+            if ( regexAt >= regexLength )
+            {
+                // maybe we've got a match
+                if ( baseAt >= baseLength )
                 {
-                    // this matches anything let - so return true
+                    // ok!
                     return true;
                 }
-                // go through every subsequent apperance of the next character
-                // and so if the rest of the regex matches
-                char nextRegex = regexPattern.charAt( regexAt );
-                if ( log.isTraceEnabled() )
+                // run out early
+                failed = true;
+            }
+            else if ( baseAt >= baseLength )
+            {
+                // run out early
+                failed = true;
+            }
+            else
+            {
+                // ok both within bounds
+                char regexCurrent = regexPattern.charAt( regexAt );
+                switch ( regexCurrent )
                 {
-                    log.trace( "Searching for next '" + nextRegex + "' char" );
+                    case '*':
+                        // this is the tricky case
+                        // check for terminal
+                        if ( regexAt + 1 >= regexLength )
+                        {
+                            // this matches anything let - so return true
+                            return true;
+                        }
+                        // go through every subsequent apperance of the next character
+                        // and so if the rest of the regex matches
+                        int nextMatch = basePattern.indexOf( regexPattern.charAt( regexAt + 1 ), baseAt );
+                        if ( nextMatch == -1 )
+                        {
+                            failed = true;
+                        }
+                        else
+                        {
+                            if ( starRegexAt == null )
+                            {
+                                starRegexAt = new int[4];
+                                starBaseAt = new int[4];
+                            }
+                            else if ( stars == starRegexAt.length )
+                            {
+                                starRegexAt = copyOf( starRegexAt, stars << 1 );
+                                starBaseAt = copyOf( starBaseAt, stars << 1 );
+                            }
+                            starRegexAt[stars] = ++regexAt;
+                            starBaseAt[stars] = nextMatch;
+                            stars++;
+                            baseAt = nextMatch;
+                        }
+                        break;
+
+                    case '?':
+                        // this matches anything
+                        baseAt++;
+                        regexAt++;
+                        break;
+
+                    default:
+                        if ( regexCurrent == basePattern.charAt( baseAt ) )
+                        {
+                            // still got more to go
+                            baseAt++;
+                            regexAt++;
+                        }
+                        else
+                        {
+                            failed = true;
+                        }
                 }
-                int nextMatch = basePattern.indexOf( nextRegex, baseAt );
-                while ( nextMatch != -1 )
+            }
+
+            // backtrack to the next appearance of the character following the innermost '*'
+            while ( failed )
+            {
+                if ( stars == 0 )
                 {
-                    if ( log.isTraceEnabled() )
-                    {
-                        log.trace( "Trying '*' match@" + nextMatch );
-                    }
-                    if ( match( basePattern, regexPattern, nextMatch, regexAt ) )
-                    {
-                        return true;
-                    }
-                    nextMatch = basePattern.indexOf( nextRegex, nextMatch + 1 );
+                    log.trace( "No matches found." );
+                    return false;
                 }
-                log.trace( "No matches found." );
-                return false;
-
-            case '?':
-                // this matches anything
-                return match( basePattern, regexPattern, ++baseAt, ++regexAt );
-
-            default:
-                if ( log.isTraceEnabled() )
+                int star = stars - 1;
+                int nextMatch = basePattern.indexOf( regexPattern.charAt( starRegexAt[star] ), starBaseAt[star] + 1 );
+                if ( nextMatch == -1 )
                 {
-                    log.trace( "Camparing " + regexCurrent + " to " + basePattern.charAt( baseAt ) );
+                    stars--;
                 }
-                if ( regexCurrent == basePattern.charAt( baseAt ) )
+                else
                 {
-                    // still got more to go
-                    return match( basePattern, regexPattern, ++baseAt, ++regexAt );
+                    if ( trace )
+                    {
+                        log.trace( "Trying '*' match@" + nextMatch );
+                    }
+                    starBaseAt[star] = nextMatch;
+                    baseAt = nextMatch;
+                    regexAt = starRegexAt[star];
+                    failed = false;
                 }
-                return false;
+            }
         }
     }
 
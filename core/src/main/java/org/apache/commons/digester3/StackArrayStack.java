@@ -0,0 +1,153 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+/**
+ * {@link ArrayStack} view of a <code>java.util.Stack</code>, holding the elements, used by the {@link Digester} to
+ * keep handing out a live <code>java.util.Stack</code> through its deprecated methods.
+ *
+ * @param <E> the type of the elements in the stack
+ * @since 3.3
+ */
+final class StackArrayStack<E>
+    extends ArrayStack<E>
+{
+
+    /**
+     * The stack holding the elements.
+     */
+    private final Stack<E> stack;
+
+    /**
+     * Creates a view of the given stack.
+     *
+     * @param stack the stack holding the elements
+     */
+    public StackArrayStack( Stack<E> stack )
+    {
+        super( 0 );
+        this.stack = stack;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E push( E item )
+    {
+        return stack.push( item );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E pop()
+    {
+        return stack.pop();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E peek()
+    {
+        return stack.peek();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E peek( int n )
+    {
+        if ( n < 0 )
+        {
+            throw new IndexOutOfBoundsException( "Negative stack index: " + n );
+        }
+        int index = stack.size() - 1 - n;
+        if ( index < 0 )
+        {
+            throw new EmptyStackException();
+        }
+        return stack.get( index );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public E get( int index )
+    {
+        return stack.get( index );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        return stack.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return stack.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        stack.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stack<E> toStack()
+    {
+        Stack<E> copy = new Stack<E>();
+        copy.addAll( stack );
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return stack.toString();
+    }
+
+}
@@ -0,0 +1,240 @@
+package org.apache.commons.digester3.annotations;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Collections.synchronizedMap;
+import static java.util.Collections.unmodifiableList;
+import static org.apache.commons.digester3.annotations.utils.AnnotationUtils.getAnnotationsArrayValue;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.digester3.annotations.reflect.MethodArgument;
+
+/**
+ * JVM wide cache of the Digester rules annotations found on the classes, shared by all the
+ * {@link FromAnnotationsRuleModule} instances, so that each class is scanned just once.
+ *
+ * Classes are weakly referenced and their rules annotations softly referenced. Since the annotated elements refer
+ * back to their class, a class and its class loader stay softly reachable while their rules annotations are cached:
+ * unloading them is delayed until the garbage collector clears the soft references, under memory pressure. The cache
+ * can be safely populated concurrently: threads scanning the same class at the same time will find the same rules
+ * annotations.
+ *
+ * @since 3.3
+ */
+final class AnnotationRulesCache
+{
+
+    /**
+     * The rules annotations found so far, by class; the values keep their class softly reachable.
+     */
+    private static final Map<Class<?>, SoftReference<List<AnnotationRule>>> CACHE =
+        synchronizedMap( new WeakHashMap<Class<?>, SoftReference<List<AnnotationRule>>>() );
+
+    private AnnotationRulesCache()
+    {
+        // static methods only
+    }
+
+    /**
+     * Returns the rules annotations declared by the given class, by its constructors, fields, methods and their
+     * arguments, in this order; the rules annotations of the superclasses are not included.
+     *
+     * @param type the annotated class
+     * @return the rules annotations declared by the given class
+     */
+    public static List<AnnotationRule> getAnnotationRules( final Class<?> type )
+    {
+        SoftReference<List<AnnotationRule>> reference = CACHE.get( type );
+        List<AnnotationRule> annotationRules = reference != null ? reference.get() : null;
+        if ( annotationRules != null )
+        {
+            return annotationRules;
+        }
+
+        List<AnnotationRule> scanned = new ArrayList<AnnotationRule>();
+
+        // TYPE
+        visitElements( scanned, type );
+
+        if ( !type.isInterface() )
+        {
+            // CONSTRUCTOR
+            visitElements( scanned, new PrivilegedAction<Constructor<?>[]>()
+            {
+                public Constructor<?>[] run()
+                {
+                    return type.getDeclaredConstructors();
+                }
+            } );
+
+            // FIELD
+            visitElements( scanned, new PrivilegedAction<Field[]>()
+            {
+                public Field[] run()
+                {
+                    return type.getDeclaredFields();
+                }
+            } );
+        }
+
+        // METHOD
+        visitElements( scanned, new PrivilegedAction<Method[]>()
+        {
+            public Method[] run()
+            {
+                return type.getDeclaredMethods();
+            }
+        } );
+
+        annotationRules = unmodifiableList( scanned );
+        CACHE.put( type, new SoftReference<List<AnnotationRule>>( annotationRules ) );
+        return annotationRules;
+    }
+
+    private static <AE extends AnnotatedElement> void visitElements( List<AnnotationRule> annotationRules,
+                                                                     PrivilegedAction<AE[]> action )
+    {
+        AE[] annotatedElements = null;
+        if ( System.getSecurityManager() != null )
+        {
+            annotatedElements = AccessController.doPrivileged( action );
+        }
+        else
+        {
+            annotatedElements = action.run();
+        }
+        visitElements( annotationRules, annotatedElements );
+    }
+
+    private static void visitElements( List<AnnotationRule> annotationRules, AnnotatedElement... annotatedElements )
+    {
+        for ( AnnotatedElement element : annotatedElements )
+        {
+            for ( Annotation annotation : element.getAnnotations() )
+            {
+                visitAnnotation( annotationRules, annotation, element );
+            }
+
+            if ( element instanceof Constructor || element instanceof Method )
+            {
+                Annotation[][] parameterAnnotations;
+                Class<?>[] parameterTypes;
+
+                if ( element instanceof Constructor )
+                {
+                    // constructor args
+                    Constructor<?> construcotr = (Constructor<?>) element;
+                    parameterAnnotations = construcotr.getParameterAnnotations();
+                    parameterTypes = construcotr.getParameterTypes();
+                }
+                else
+                {
+                    // method args
+                    Method method = (Method) element;
+                    parameterAnnotations = method.getParameterAnnotations();
+                    parameterTypes = method.getParameterTypes();
+                }
+
+                for ( int i = 0; i < parameterTypes.length; i++ )
+                {
+                    visitElements( annotationRules,
+                                   new MethodArgument( i, parameterTypes[i], parameterAnnotations[i] ) );
+                }
+            }
+        }
+    }
+
+    private static void visitAnnotation( List<AnnotationRule> annotationRules, Annotation annotation,
+                                         AnnotatedElement element )
+    {
+        Class<?> annotationType = annotation.annotationType();
+
+        // check if it is one of the @*.List annotation
+        if ( annotationType.isAnnotationPresent( DigesterRuleList.class ) )
+        {
+            Annotation[] annotations = getAnnotationsArrayValue( annotation );
+            if ( annotations != null && annotations.length > 0 )
+            {
+                // if it is an annotations array, process them
+                for ( Annotation ptr : annotations )
+                {
+                    visitAnnotation( annotationRules, ptr, element );
+                }
+            }
+        }
+        else if ( annotationType.isAnnotationPresent( DigesterRule.class ) )
+        {
+            annotationRules.add( new AnnotationRule( annotation, element,
+                                                     annotationType.getAnnotation( DigesterRule.class ) ) );
+        }
+    }
+
+    /**
+     * A rule annotation, together with the annotated element.
+     */
+    static final class AnnotationRule
+    {
+
+        private final Annotation annotation;
+
+        private final AnnotatedElement element;
+
+        private final Class<? extends AnnotationHandler<Annotation, AnnotatedElement>> handlerType;
+
+        @SuppressWarnings( "unchecked" )
+        AnnotationRule( Annotation annotation, AnnotatedElement element, DigesterRule digesterRule )
+        {
+            this.annotation = annotation;
+            this.element = element;
+            // the default behavior if the handler is not specified
+            this.handlerType =
+                (Class<? extends AnnotationHandler<Annotation, AnnotatedElement>>) digesterRule.handledBy();
+        }
+
+        public Annotation getAnnotation()
+        {
+            return annotation;
+        }
+
+        public AnnotatedElement getElement()
+        {
+            return element;
+        }
+
+        public Class<? extends AnnotationHandler<Annotation, AnnotatedElement>> getHandlerType()
+        {
+            return handlerType;
+        }
+
+    }
+
+}
@@ -19,18 +19,12 @@ package org.apache.commons.digester3.annotations;
  * under the License.
  */
 
-import static org.apache.commons.digester3.annotations.utils.AnnotationUtils.getAnnotationsArrayValue;
+import static org.apache.commons.digester3.annotations.AnnotationRulesCache.getAnnotationRules;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
 
-import org.apache.commons.digester3.Rule;
-import org.apache.commons.digester3.annotations.reflect.MethodArgument;
+import org.apache.commons.digester3.annotations.AnnotationRulesCache.AnnotationRule;
 import org.apache.commons.digester3.binder.AbstractRulesModule;
 
 /**
@@ -115,149 +109,35 @@ public abstract class FromAnnotationsRuleModule
             return;
         }
 
-        // TYPE
-        visitElements( type );
-
-        if ( !type.isInterface() )
+        // the annotations are scanned just once per class, then shared by all the modules
+        for ( AnnotationRule annotationRule : getAnnotationRules( type ) )
         {
-            // CONSTRUCTOR
-            visitElements( new PrivilegedAction<Constructor<?>[]>()
-            {
-                public Constructor<?>[] run()
-                {
-                    return type.getDeclaredConstructors();
-                }
-            } );
-
-            // FIELD
-            visitElements( new PrivilegedAction<Field[]>()
-            {
-                public Field[] run()
-                {
-                    return type.getDeclaredFields();
-                }
-            } );
+            handle( annotationRule );
         }
 
-        // METHOD
-        visitElements( new PrivilegedAction<Method[]>()
-        {
-            public Method[] run()
-            {
-                return type.getDeclaredMethods();
-            }
-        } );
-
         rulesBinder.markAsBound( type );
         bindRulesFrom( type.getSuperclass() );
     }
 
     /**
-     *
-     *
-     * @param <AE>
-     * @param action
-     */
-    private <AE extends AnnotatedElement> void visitElements( PrivilegedAction<AE[]> action )
-    {
-        AE[] annotatedElements = null;
-        if ( System.getSecurityManager() != null )
-        {
-            annotatedElements = AccessController.doPrivileged( action );
-        }
-        else
-        {
-            annotatedElements = action.run();
-        }
-        visitElements( annotatedElements );
-    }
-
-    /**
-     *
-     *
-     * @param annotatedElements
-     */
-    private void visitElements( AnnotatedElement... annotatedElements )
-    {
-        for ( AnnotatedElement element : annotatedElements )
-        {
-            for ( Annotation annotation : element.getAnnotations() )
-            {
-                handle( annotation, element );
-            }
-
-            if ( element instanceof Constructor || element instanceof Method )
-            {
-                Annotation[][] parameterAnnotations;
-                Class<?>[] parameterTypes;
-
-                if ( element instanceof Constructor )
-                {
-                    // constructor args
-                    Constructor<?> construcotr = (Constructor<?>) element;
-                    parameterAnnotations = construcotr.getParameterAnnotations();
-                    parameterTypes = construcotr.getParameterTypes();
-                }
-                else
-                {
-                    // method args
-                    Method method = (Method) element;
-                    parameterAnnotations = method.getParameterAnnotations();
-                    parameterTypes = method.getParameterTypes();
-                }
-
-                for ( int i = 0; i < parameterTypes.length; i++ )
-                {
-                    visitElements( new MethodArgument( i, parameterTypes[i], parameterAnnotations[i] ) );
-                }
-            }
-        }
-    }
-
-    /**
-     * Handles the current visited element and related annotation, invoking the
+     * Handles the rule annotation and related element, invoking the
      * right handler putting the rule provider in the rule set.
      *
-     * @param annotation the current visited annotation.
-     * @param element the current visited element.
+     * @param annotationRule the rule annotation and the annotated element.
      */
-    @SuppressWarnings( "unchecked" )
-    private <A extends Annotation, E extends AnnotatedElement, R extends Rule> void handle( A annotation, E element )
+    private void handle( AnnotationRule annotationRule )
     {
-        Class<?> annotationType = annotation.annotationType();
-
-        // check if it is one of the @*.List annotation
-        if ( annotationType.isAnnotationPresent( DigesterRuleList.class ) )
+        try
         {
-            Annotation[] annotations = getAnnotationsArrayValue( annotation );
-            if ( annotations != null && annotations.length > 0 )
-            {
-                // if it is an annotations array, process them
-                for ( Annotation ptr : annotations )
-                {
-                    handle( ptr, element );
-                }
-            }
+            AnnotationHandler<Annotation, AnnotatedElement> handler =
+                annotationHandlerFactory.newInstance( annotationRule.getHandlerType() );
+
+            // run!
+            handler.handle( annotationRule.getAnnotation(), annotationRule.getElement(), this.rulesBinder );
         }
-        else if ( annotationType.isAnnotationPresent( DigesterRule.class ) )
+        catch ( Exception e )
         {
-            DigesterRule digesterRule = annotationType.getAnnotation( DigesterRule.class );
-
-            // the default behavior if the handler is not specified
-            Class<? extends AnnotationHandler<Annotation, AnnotatedElement>> handlerType =
-                (Class<? extends AnnotationHandler<Annotation, AnnotatedElement>>) digesterRule.handledBy();
-            try
-            {
-                AnnotationHandler<Annotation, AnnotatedElement> handler =
-                    annotationHandlerFactory.newInstance( handlerType );
-
-                // run!
-                handler.handle( annotation, element, this.rulesBinder );
-            }
-            catch ( Exception e )
-            {
-                rulesBinder.addError( e );
-            }
+            rulesBinder.addError( e );
         }
     }
 
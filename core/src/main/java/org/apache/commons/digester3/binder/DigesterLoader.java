@@ -37,6 +37,9 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.validation.Schema;
 
+import org.apache.commons.digester3.CompiledPatterns;
+import org.apache.commons.digester3.CompiledRules;
+import org.apache.commons.digester3.ConverterRegistry;
 import org.apache.commons.digester3.Digester;
 import org.apache.commons.digester3.RuleSet;
 import org.apache.commons.digester3.Rules;
@@ -125,6 +128,13 @@ public final class DigesterLoader
      */
     private Substitutor substitutor;
 
+    /**
+     * The optional registry of the converters used by the rules, shared by all the created Digesters.
+     *
+     * @since 3.3
+     */
+    private ConverterRegistry converterRegistry;
+
     /**
      * The EntityResolver used by the SAX parser. By default it use this class
      */
@@ -153,6 +163,18 @@ public final class DigesterLoader
      */
     private Locator locator = null;
 
+    /**
+     * Flag to create Digesters whose rules are bound to patterns compiled once and shared.
+     * @since 3.3
+     */
+    private boolean compileRules = false;
+
+    /**
+     * The immutable snapshot of the bound rules the compiled rules are created from, lazily created.
+     * @since 3.3
+     */
+    private volatile RulesTemplate rulesTemplate;
+
     /**
      * Creates a new {@link DigesterLoader} instance given a collection of {@link RulesModule} instance.
      *
@@ -207,6 +229,7 @@ public final class DigesterLoader
         {
             rulesModule.configure( rulesBinder );
         }
+        rulesTemplate = null;
 
         return this;
     }
@@ -224,6 +247,21 @@ public final class DigesterLoader
         return this;
     }
 
+    /**
+     * Sets the registry of the converters used by the rules of the created Digesters, in place of the global
+     * <code>ConvertUtils</code> registry. The same registry is shared by all the created Digesters.
+     *
+     * @param converterRegistry the registry of the converters used by the rules, or null to use the global
+     *        <code>ConvertUtils</code>
+     * @return This loader instance, useful to chain methods.
+     * @since 3.3
+     */
+    public DigesterLoader setConverterRegistry( ConverterRegistry converterRegistry )
+    {
+        this.converterRegistry = converterRegistry;
+        return this;
+    }
+
     /**
      * Set the "namespace aware" flag for parsers we create.
      *
@@ -294,6 +332,41 @@ public final class DigesterLoader
         return this.factory.isValidating();
     }
 
+    /**
+     * Determines whether the Digesters created with the default {@link Rules} implementation share the rule patterns,
+     * compiled once, rather than registering all the rules again for each of them.
+     *
+     * When enabled, the patterns of all the rules are compiled in an immutable {@link CompiledPatterns} the first
+     * time a Digester is created, then each new Digester just binds its own rule instances to it through a
+     * {@link CompiledRules}. This is recommended when many Digesters are created, like one per parsed document.
+     *
+     * It is disabled by default, since the Digesters created with the default {@link Rules} implementation have
+     * always been given a {@link RulesBase}: then new rule instances are registered
+     * again, pattern by pattern, in each new Digester.
+     *
+     * @param compileRules true to share the compiled rule patterns, false otherwise
+     * @return This loader instance, useful to chain methods.
+     * @since 3.3
+     */
+    public DigesterLoader setCompileRules( boolean compileRules )
+    {
+        this.compileRules = compileRules;
+        return this;
+    }
+
+    /**
+     * Return true if the Digesters created with the default {@link Rules} implementation share the compiled rule
+     * patterns, false otherwise.
+     *
+     * @return true if the Digesters created with the default {@link Rules} implementation share the compiled rule
+     *         patterns, false otherwise
+     * @since 3.3
+     */
+    public boolean isCompileRules()
+    {
+        return compileRules;
+    }
+
     /**
      * Set the XML Schema to be used when parsing.
      *
@@ -482,6 +555,19 @@ public final class DigesterLoader
         return this;
     }
 
+    /**
+     * Creates a new pool of {@link Digester} instances created by this loader, through {@link #newDigester()}, that
+     * reuses up to the given number of idle instances, together with their rules and XML reader.
+     *
+     * @param maxIdle the maximum number of idle Digester instances kept by the pool
+     * @return a new pool of {@link Digester} instances
+     * @since 3.3
+     */
+    public DigesterPool newDigesterPool( int maxIdle )
+    {
+        return new DigesterPool( this, maxIdle );
+    }
+
     /**
      * Creates a new {@link Digester} instance that relies on the default {@link Rules} implementation.
      *
@@ -489,7 +575,7 @@ public final class DigesterLoader
      */
     public Digester newDigester()
     {
-        return this.newDigester( new RulesBase() );
+        return this.newDigester( newDefaultRules() );
     }
 
     /**
@@ -523,7 +609,7 @@ public final class DigesterLoader
      */
     public Digester newDigester( SAXParser parser )
     {
-        return newDigester( parser, new RulesBase() );
+        return newDigester( parser, newDefaultRules() );
     }
 
     /**
@@ -563,7 +649,7 @@ public final class DigesterLoader
      */
     public Digester newDigester( XMLReader reader )
     {
-        return this.newDigester( reader, new RulesBase() );
+        return this.newDigester( reader, newDefaultRules() );
     }
 
     /**
@@ -593,6 +679,7 @@ public final class DigesterLoader
         digester.setClassLoader( classLoader.getAdaptedClassLoader() );
         digester.setRules( rules );
         digester.setSubstitutor( substitutor );
+        digester.setConverterRegistry( converterRegistry );
         digester.registerAll( entityValidator );
         digester.setEntityResolver( entityResolver );
         digester.setStackAction( stackAction );
@@ -601,7 +688,12 @@ public final class DigesterLoader
         digester.setErrorHandler( errorHandler );
         digester.setDocumentLocator( locator );
 
-        addRules( digester );
+        // rules stamped out from the template already contain the rule instances
+        RulesTemplate template = rulesTemplate;
+        if ( template == null || !template.isTemplateOf( rules ) )
+        {
+            addRules( digester );
+        }
 
         return digester;
     }
@@ -623,6 +715,57 @@ public final class DigesterLoader
      * @return A new {@link RuleSet} instance based on the current configuration.
      */
     public RuleSet createRuleSet()
+    {
+        return getFromBinderRuleSet();
+    }
+
+    /**
+     * Creates the default {@link Rules} implementation, binding new rule instances to the shared compiled patterns if
+     * required; otherwise {@link #newDigester(XMLReader, Rules)} registers new rule instances in a plain
+     * {@link RulesBase}, pattern by pattern.
+     *
+     * @return the default {@link Rules} implementation
+     */
+    private Rules newDefaultRules()
+    {
+        if ( !compileRules )
+        {
+            return new RulesBase();
+        }
+
+        return getRulesTemplate().newCompiledRules();
+    }
+
+    /**
+     * Return the immutable snapshot of the bound rules, taking it the first time, failing if errors occurred while
+     * binding them.
+     *
+     * @return the immutable snapshot of the bound rules
+     */
+    private RulesTemplate getRulesTemplate()
+    {
+        RulesTemplate template = rulesTemplate;
+        if ( template == null )
+        {
+            synchronized ( this )
+            {
+                template = rulesTemplate;
+                if ( template == null )
+                {
+                    template = getFromBinderRuleSet().newRulesTemplate();
+                    rulesTemplate = template;
+                }
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Return the {@link FromBinderRuleSet} containing the bound rules, failing if errors occurred while binding them.
+     *
+     * @return the {@link FromBinderRuleSet} containing the bound rules
+     */
+    private FromBinderRuleSet getFromBinderRuleSet()
     {
         if ( rulesBinder.hasError() )
         {
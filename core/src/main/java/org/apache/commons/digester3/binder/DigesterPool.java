@@ -0,0 +1,253 @@
+package org.apache.commons.digester3.binder;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.digester3.Digester;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * A thread-safe pool of {@link Digester} instances created by a {@link DigesterLoader}, that keeps up to a maximum
+ * number of idle instances to be reused, together with their rules and XML reader, for parsing many documents of the
+ * same type.
+ *
+ * Borrowed Digesters have to be given back with {@link #returnDigester(Digester)}, that resets them, once the parse
+ * succeeded, or discarded with {@link #invalidateDigester(Digester)} once it failed, since the rules could have been
+ * left in an inconsistent state.
+ *
+ * @since 3.3
+ */
+public final class DigesterPool
+{
+
+    /**
+     * The loader that creates new Digester instances.
+     */
+    private final DigesterLoader loader;
+
+    /**
+     * The maximum number of idle Digester instances.
+     */
+    private final int maxIdle;
+
+    /**
+     * The idle Digester instances.
+     */
+    private final BlockingQueue<Digester> idle;
+
+    private final AtomicLong createdCount = new AtomicLong();
+
+    private final AtomicLong borrowedCount = new AtomicLong();
+
+    private final AtomicLong returnedCount = new AtomicLong();
+
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    /**
+     * Creates a new pool of Digester instances created by the given loader.
+     *
+     * @param loader the loader that creates new Digester instances
+     * @param maxIdle the maximum number of idle Digester instances
+     */
+    DigesterPool( DigesterLoader loader, int maxIdle )
+    {
+        if ( maxIdle < 0 )
+        {
+            throw new IllegalArgumentException( "The maximum number of idle Digesters must not be negative" );
+        }
+        this.loader = loader;
+        this.maxIdle = maxIdle;
+        this.idle = new LinkedBlockingQueue<Digester>( Math.max( maxIdle, 1 ) );
+    }
+
+    /**
+     * Borrows an idle Digester instance, or creates a new one if none is idle.
+     *
+     * @return a Digester instance, ready to parse a new document
+     */
+    public Digester borrowDigester()
+    {
+        borrowedCount.incrementAndGet();
+        Digester digester = idle.poll();
+        if ( digester == null )
+        {
+            createdCount.incrementAndGet();
+            digester = loader.newDigester();
+        }
+        return digester;
+    }
+
+    /**
+     * Gives back a borrowed Digester instance, resetting it so it can be reused; it is discarded if the maximum number
+     * of idle instances has been already reached.
+     *
+     * @param digester the borrowed Digester instance
+     */
+    public void returnDigester( Digester digester )
+    {
+        if ( digester == null )
+        {
+            throw new IllegalArgumentException( "Digester to return must not be null" );
+        }
+
+        returnedCount.incrementAndGet();
+        digester.reset();
+        if ( maxIdle == 0 || !idle.offer( digester ) )
+        {
+            discardedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Discards a borrowed Digester instance that can't be reused, like one whose parse failed.
+     *
+     * @param digester the borrowed Digester instance
+     */
+    public void invalidateDigester( Digester digester )
+    {
+        if ( digester == null )
+        {
+            throw new IllegalArgumentException( "Digester to invalidate must not be null" );
+        }
+
+        returnedCount.incrementAndGet();
+        discardedCount.incrementAndGet();
+        digester.reset();
+    }
+
+    /**
+     * Parses the content of the given input source with a borrowed Digester instance, that is given back once done.
+     * Returns the root element from the object stack (if any).
+     *
+     * @param <T> the type used to auto-cast the returned object to the assigned variable type
+     * @param input Input source containing the XML data to be parsed
+     * @return the root element from the object stack (if any)
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if a parsing exception occurs
+     */
+    public <T> T parse( InputSource input )
+        throws IOException, SAXException
+    {
+        Digester digester = borrowDigester();
+        boolean parsed = false;
+        try
+        {
+            T root = digester.<T> parse( input );
+            parsed = true;
+            return root;
+        }
+        finally
+        {
+            if ( parsed )
+            {
+                returnDigester( digester );
+            }
+            else
+            {
+                invalidateDigester( digester );
+            }
+        }
+    }
+
+    /**
+     * Discards all the idle Digester instances.
+     */
+    public void clear()
+    {
+        discardedCount.addAndGet( idle.size() );
+        idle.clear();
+    }
+
+    /**
+     * Return the maximum number of idle Digester instances.
+     *
+     * @return the maximum number of idle Digester instances
+     */
+    public int getMaxIdle()
+    {
+        return maxIdle;
+    }
+
+    /**
+     * Return the current number of idle Digester instances.
+     *
+     * @return the current number of idle Digester instances
+     */
+    public int getIdleCount()
+    {
+        return idle.size();
+    }
+
+    /**
+     * Return the number of Digester instances created so far.
+     *
+     * @return the number of Digester instances created so far
+     */
+    public long getCreatedCount()
+    {
+        return createdCount.get();
+    }
+
+    /**
+     * Return the number of times a Digester instance has been borrowed so far.
+     *
+     * @return the number of times a Digester instance has been borrowed so far
+     */
+    public long getBorrowedCount()
+    {
+        return borrowedCount.get();
+    }
+
+    /**
+     * Return the number of times a Digester instance has been given back, or invalidated, so far.
+     *
+     * @return the number of times a Digester instance has been given back, or invalidated, so far
+     */
+    public long getReturnedCount()
+    {
+        return returnedCount.get();
+    }
+
+    /**
+     * Return the number of Digester instances discarded so far.
+     *
+     * @return the number of Digester instances discarded so far
+     */
+    public long getDiscardedCount()
+    {
+        return discardedCount.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "DigesterPool [maxIdle=" + maxIdle + ", idle=" + idle.size() + ", created=" + createdCount
+            + ", borrowed=" + borrowedCount + ", returned=" + returnedCount + ", discarded=" + discardedCount + "]";
+    }
+
+}
@@ -133,6 +133,17 @@ final class FromBinderRuleSet
         }
     }
 
+    /**
+     * Takes an immutable snapshot of the registered providers, from which the rules of new Digesters are created.
+     *
+     * @return an immutable snapshot of the registered providers
+     * @since 3.3
+     */
+    public RulesTemplate newRulesTemplate()
+    {
+        return new RulesTemplate( providers );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -50,6 +50,10 @@ public final class NodeCreateRuleProvider
 
     private DocumentBuilder documentBuilder;
 
+    private boolean reuseDocument = false;
+
+    private boolean captureXml = false;
+
     NodeCreateRuleProvider( String keyPattern, String namespaceURI, RulesBinder mainBinder,
                             LinkedRuleBuilder mainBuilder )
     {
@@ -90,25 +94,60 @@ public final class NodeCreateRuleProvider
         return this;
     }
 
+    /**
+     * {@link NodeCreateRule} instance will create all the nodes from the same DOM
+     * {@link org.w3c.dom.Document Document}.
+     *
+     * @param reuseDocument true to create all the nodes from the same document
+     * @return this builder instance
+     * @see NodeCreateRule#setReuseDocument(boolean)
+     * @since 3.3
+     */
+    public NodeCreateRuleProvider reusingDocument( boolean reuseDocument )
+    {
+        this.reuseDocument = reuseDocument;
+        return this;
+    }
+
+    /**
+     * {@link NodeCreateRule} instance will push the XML text of the matched element, rather than a DOM node.
+     *
+     * @param captureXml true to push the XML text of the matched element
+     * @return this builder instance
+     * @see NodeCreateRule#setCaptureXml(boolean)
+     * @since 3.3
+     */
+    public NodeCreateRuleProvider capturingXml( boolean captureXml )
+    {
+        this.captureXml = captureXml;
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected NodeCreateRule createRule()
     {
+        NodeCreateRule rule;
         if ( documentBuilder == null )
         {
             try
             {
-                return new NodeCreateRule( nodeType.getDocumentType() );
+                rule = new NodeCreateRule( nodeType.getDocumentType() );
             }
             catch ( ParserConfigurationException e )
             {
                 throw new RuntimeException( e );
             }
         }
-
-        return new NodeCreateRule( nodeType.getDocumentType(), documentBuilder );
+        else
+        {
+            rule = new NodeCreateRule( nodeType.getDocumentType(), documentBuilder );
+        }
+        rule.setReuseDocument( reuseDocument );
+        rule.setCaptureXml( captureXml );
+        return rule;
     }
 
     /**
@@ -54,6 +54,13 @@ public final class ObjectCreateBuilder
      */
     private Object[] defaultConstructorArguments;
 
+    /**
+     * Flag to create a proxy of the object while collecting the constructor arguments.
+     *
+     * @since 3.3
+     */
+    private boolean useProxy = true;
+
     ObjectCreateBuilder( String keyPattern, String namespaceURI, RulesBinder mainBinder, LinkedRuleBuilder mainBuilder,
                          ClassLoader classLoader )
     {
@@ -194,6 +201,21 @@ public final class ObjectCreateBuilder
 
     }
 
+    /**
+     * Allows users to specify whether a proxy of the object is pushed on the stack while the constructor arguments are
+     * collected (the default), or a lightweight placeholder recording the invocations made by the standard rules.
+     *
+     * @param useProxy true to push a proxy of the object on the stack, false to push a placeholder
+     * @return this builder instance
+     * @see ObjectCreateRule#setUseProxy(boolean)
+     * @since 3.3
+     */
+    public ObjectCreateBuilder usingProxy( boolean useProxy )
+    {
+        this.useProxy = useProxy;
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -210,6 +232,7 @@ public final class ObjectCreateBuilder
         {
             objectCreateRule.setDefaultConstructorArguments( defaultConstructorArguments );
         }
+        objectCreateRule.setUseProxy( useProxy );
 
         return objectCreateRule;
     }
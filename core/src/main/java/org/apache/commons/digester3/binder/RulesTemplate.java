@@ -0,0 +1,121 @@
+package org.apache.commons.digester3.binder;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.digester3.CompiledPatterns;
+import org.apache.commons.digester3.CompiledRules;
+import org.apache.commons.digester3.Digester;
+import org.apache.commons.digester3.Rule;
+
+/**
+ * Immutable snapshot of the rule providers bound by the modules, together with their compiled patterns, from which
+ * the {@link CompiledRules} of new {@link Digester} instances are stamped out when
+ * {@link DigesterLoader#setCompileRules(boolean)} is enabled.
+ *
+ * Classes and parameter types are resolved by the providers when the modules are bound, so stamping out the rules
+ * only requires a new {@link Rule} instance per provider: rules keep per-parse state, thus can't be shared.
+ *
+ * @since 3.3
+ */
+final class RulesTemplate
+{
+
+    /**
+     * The providers, in registration order.
+     */
+    private final List<AbstractBackToLinkedRuleBuilder<? extends Rule>> providers;
+
+    /**
+     * The patterns of the providers, compiled on first use.
+     */
+    private volatile CompiledPatterns compiledPatterns;
+
+    /**
+     * Takes a snapshot of the given providers.
+     *
+     * @param providers the providers, in registration order
+     */
+    RulesTemplate( Collection<AbstractBackToLinkedRuleBuilder<? extends Rule>> providers )
+    {
+        this.providers = new ArrayList<AbstractBackToLinkedRuleBuilder<? extends Rule>>( providers );
+    }
+
+    /**
+     * Return the patterns of the providers, compiling them the first time.
+     *
+     * @return the patterns of the providers
+     */
+    public CompiledPatterns getCompiledPatterns()
+    {
+        CompiledPatterns patterns = compiledPatterns;
+        if ( patterns == null )
+        {
+            synchronized ( this )
+            {
+                patterns = compiledPatterns;
+                if ( patterns == null )
+                {
+                    List<String> keyPatterns = new ArrayList<String>( providers.size() );
+                    List<String> namespaceURIs = new ArrayList<String>( providers.size() );
+                    for ( AbstractBackToLinkedRuleBuilder<? extends Rule> provider : providers )
+                    {
+                        keyPatterns.add( provider.getPattern() );
+                        namespaceURIs.add( provider.getNamespaceURI() );
+                    }
+                    patterns = new CompiledPatterns( keyPatterns, namespaceURIs );
+                    compiledPatterns = patterns;
+                }
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Creates new rule instances bound to the compiled patterns of the providers.
+     *
+     * @return new rule instances bound to the compiled patterns of the providers
+     */
+    public CompiledRules newCompiledRules()
+    {
+        List<Rule> rules = new ArrayList<Rule>( providers.size() );
+        for ( AbstractBackToLinkedRuleBuilder<? extends Rule> provider : providers )
+        {
+            rules.add( provider.get() );
+        }
+        return new CompiledRules( getCompiledPatterns(), rules );
+    }
+
+    /**
+     * Checks if the given rules have been stamped out from this template.
+     *
+     * @param rules the rules to check
+     * @return true if the given rules have been stamped out from this template, false otherwise
+     */
+    public boolean isTemplateOf( Object rules )
+    {
+        return rules instanceof CompiledRules
+            && ( (CompiledRules) rules ).getCompiledPatterns() == compiledPatterns;
+    }
+
+}
@@ -30,12 +30,29 @@ public final class SetNextBuilder
     extends AbstractParamTypeBuilder<SetNextRule>
 {
 
+    private String bulkMethodName;
+
     SetNextBuilder( String keyPattern, String namespaceURI, RulesBinder mainBinder,
                            LinkedRuleBuilder mainBuilder, String methodName, ClassLoader classLoader )
     {
         super( keyPattern, namespaceURI, mainBinder, mainBuilder, methodName, classLoader );
     }
 
+    /**
+     * Sets the name of the parent method the children have to be passed to all together, as a
+     * {@code java.util.List}, rather than one by one.
+     *
+     * @param bulkMethodName the name of the parent method taking a collection of children
+     * @return this builder instance
+     * @see SetNextRule#setBulkMethodName(String)
+     * @since 3.3
+     */
+    public SetNextBuilder batchingWith( String bulkMethodName )
+    {
+        this.bulkMethodName = bulkMethodName;
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -55,6 +72,7 @@ public final class SetNextBuilder
 
         rule.setExactMatch( isUseExactMatch() );
         rule.setFireOnBegin( isFireOnBegin() );
+        rule.setBulkMethodName( bulkMethodName );
         return rule;
     }
 
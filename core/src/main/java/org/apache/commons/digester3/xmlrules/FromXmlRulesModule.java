@@ -56,6 +56,8 @@ public abstract class FromXmlRulesModule
 
     private String rootPath;
 
+    private XmlRulesCache xmlRulesCache;
+
     /**
      * {@inheritDoc}
      */
@@ -101,7 +103,7 @@ public abstract class FromXmlRulesModule
         }
 
         XmlRulesModule xmlRulesModule = new XmlRulesModule( new NameSpaceURIRulesBinder( rulesBinder() ),
-                                                            getSystemIds(), rootPath );
+                                                            getSystemIds(), rootPath, xmlRulesCache );
         Digester digester = newLoader( xmlRulesModule )
                 .register( DIGESTER_PUBLIC_ID, xmlRulesDtdUrl.toString() )
                 .setXIncludeAware( true )
@@ -110,7 +112,14 @@ public abstract class FromXmlRulesModule
 
         try
         {
-            digester.parse( inputSource );
+            if ( xmlRulesCache != null )
+            {
+                xmlRulesCache.parse( digester, inputSource, DIGESTER_PUBLIC_ID );
+            }
+            else
+            {
+                digester.parse( inputSource );
+            }
         }
         catch ( Exception e )
         {
@@ -246,6 +255,18 @@ public abstract class FromXmlRulesModule
         this.rootPath = rootPath;
     }
 
+    /**
+     * Set the cache where the XML rules, included ones too, are stored once parsed, so that they are loaded again
+     * without any XML parsing until their content changes.
+     *
+     * @param xmlRulesCache The cache where the XML rules are stored once parsed, null to always parse them
+     * @since 3.3
+     */
+    protected final void useXmlRulesCache( XmlRulesCache xmlRulesCache )
+    {
+        this.xmlRulesCache = xmlRulesCache;
+    }
+
     /**
      * Returns the XML source SystemIds load by this module.
      *
@@ -45,10 +45,14 @@ final class IncludeRule
 
     private final RulesBinder targetRulesBinder;
 
-    public IncludeRule( final WithMemoryRulesBinder memoryRulesBinder, final RulesBinder targetRulesBinder )
+    private final XmlRulesCache xmlRulesCache;
+
+    public IncludeRule( final WithMemoryRulesBinder memoryRulesBinder, final RulesBinder targetRulesBinder,
+                        /* @Nullable */final XmlRulesCache xmlRulesCache )
     {
         this.memoryRulesBinder = memoryRulesBinder;
         this.targetRulesBinder = targetRulesBinder;
+        this.xmlRulesCache = xmlRulesCache;
     }
 
     /**
@@ -105,6 +109,7 @@ final class IncludeRule
                         @Override
                         protected void loadRules()
                         {
+                            useXmlRulesCache( xmlRulesCache );
                             loadXMLRules( xmlRulesResource );
                         }
 
@@ -19,8 +19,7 @@ package org.apache.commons.digester3.xmlrules;
  * under the License.
  */
 
-import java.util.Stack;
-
+import org.apache.commons.digester3.ArrayStack;
 import org.apache.commons.digester3.binder.LinkedRuleBuilder;
 import org.apache.commons.digester3.binder.RulesBinder;
 import org.apache.commons.digester3.binder.RulesModule;
@@ -33,7 +32,7 @@ final class NameSpaceURIRulesBinder
 {
 
     // a stack is needed because of includes!!!
-    private final Stack<String> namespaceURIs = new Stack<String>();
+    private final ArrayStack<String> namespaceURIs = new ArrayStack<String>();
 
     private final RulesBinder wrappedBinder;
 
@@ -19,16 +19,14 @@ package org.apache.commons.digester3.xmlrules;
  * under the License.
  */
 
-import java.util.Stack;
+import org.apache.commons.digester3.ArrayStack;
 
 /**
  */
 final class PatternStack
-    extends Stack<String>
+    extends ArrayStack<String>
 {
 
-    private static final long serialVersionUID = 1L;
-
     @Override
     public String toString()
     {
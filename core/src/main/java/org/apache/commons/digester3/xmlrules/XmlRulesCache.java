@@ -0,0 +1,633 @@
+package org.apache.commons.digester3.xmlrules;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.String.format;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.digester3.Digester;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * <p>
+ * A directory where XML rules documents are stored, once parsed and validated, in a compact binary form that can be
+ * loaded again without any XML parsing and DTD validation.
+ * </p>
+ * <p>
+ * Each stored document records the content hash of its XML source, so it is transparently regenerated as soon as the
+ * source changes; XML rules included with the <code>include</code> element are stored on their own. Stored documents
+ * are versioned, those written by a different version, or not readable, are just regenerated too.
+ * </p>
+ * <p>
+ * Documents pulling content from other resources, through external entities or XInclude, are never stored, since
+ * changes to those resources would not be noticed: they are parsed every time, like without the cache.
+ * </p>
+ *
+ * @see FromXmlRulesModule#useXmlRulesCache(XmlRulesCache)
+ * @since 3.3
+ */
+public final class XmlRulesCache
+{
+
+    private static final int MAGIC = 0x44475852;
+
+    private static final int VERSION = 1;
+
+    private static final String HASH_ALGORITHM = "SHA-1";
+
+    private static final String FILE_SUFFIX = ".xmlrules";
+
+    private static final int END_DOCUMENT = 0;
+
+    private static final int START_ELEMENT = 1;
+
+    private static final int END_ELEMENT = 2;
+
+    private static final int CHARACTERS = 3;
+
+    private static final int START_PREFIX_MAPPING = 4;
+
+    private static final int END_PREFIX_MAPPING = 5;
+
+    private final Log log = LogFactory.getLog( XmlRulesCache.class );
+
+    /**
+     * The directory where the binary documents are stored.
+     */
+    private final File directory;
+
+    /**
+     * Creates a new cache storing the binary documents in the given directory, created if needed.
+     *
+     * @param directory the directory where the binary documents are stored
+     */
+    public XmlRulesCache( File directory )
+    {
+        if ( directory == null )
+        {
+            throw new IllegalArgumentException( "Argument 'directory' must be not null" );
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the directory where the binary documents are stored.
+     *
+     * @return the directory where the binary documents are stored
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Feeds the given XML rules document to the given Digester, replaying its stored binary form if still up to date,
+     * otherwise parsing it and storing the binary form.
+     *
+     * @param digester the Digester the XML rules document is fed to
+     * @param inputSource the XML rules document
+     * @param dtdPublicId the public identifier of the XML rules DTD, the only external entity the document can
+     *            reference to be stored
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if a parsing exception occurs
+     */
+    void parse( Digester digester, InputSource inputSource, String dtdPublicId )
+        throws IOException, SAXException
+    {
+        String systemId = inputSource.getSystemId();
+        String text = null;
+        byte[] bytes;
+        if ( inputSource.getByteStream() == null && inputSource.getCharacterStream() != null )
+        {
+            text = read( inputSource.getCharacterStream() );
+            bytes = text.getBytes( "UTF-8" );
+        }
+        else if ( inputSource.getByteStream() != null )
+        {
+            bytes = read( inputSource.getByteStream() );
+        }
+        else
+        {
+            bytes = read( new URL( systemId ).openStream() );
+        }
+
+        byte[] hash = digest( bytes );
+        File file = new File( directory, toHex( systemId != null ? digest( systemId.getBytes( "UTF-8" ) ) : hash )
+            + FILE_SUFFIX );
+
+        byte[] stored = load( file, hash );
+        if ( stored != null )
+        {
+            replay( stored, digester );
+            return;
+        }
+
+        InputSource buffered;
+        if ( text != null )
+        {
+            buffered = new InputSource( new StringReader( text ) );
+        }
+        else
+        {
+            buffered = new InputSource( new ByteArrayInputStream( bytes ) );
+            buffered.setEncoding( inputSource.getEncoding() );
+        }
+        buffered.setSystemId( systemId );
+        buffered.setPublicId( inputSource.getPublicId() );
+
+        Recorder recorder = new Recorder( digester );
+        XMLReader reader = digester.getXMLReader();
+        ExternalEntitiesTracker tracker = new ExternalEntitiesTracker( reader.getEntityResolver(), dtdPublicId );
+        reader.setContentHandler( recorder );
+        reader.setEntityResolver( tracker );
+        reader.parse( buffered );
+
+        if ( tracker.getExternalEntity() != null )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( format( "XML rules %s not stored, it references the external resource %s", systemId,
+                                   tracker.getExternalEntity() ) );
+            }
+            return;
+        }
+        store( file, hash, recorder.getEvents() );
+    }
+
+    /**
+     * Loads the events stored in the given file, returning null if missing, not readable or not up to date.
+     */
+    private byte[] load( File file, byte[] hash )
+    {
+        if ( !file.isFile() )
+        {
+            return null;
+        }
+
+        try
+        {
+            DataInputStream input = new DataInputStream( new FileInputStream( file ) );
+            try
+            {
+                if ( input.readInt() != MAGIC || input.readInt() != VERSION )
+                {
+                    return null;
+                }
+                byte[] storedHash = new byte[input.readInt()];
+                input.readFully( storedHash );
+                if ( !Arrays.equals( hash, storedHash ) )
+                {
+                    return null;
+                }
+                byte[] events = new byte[input.readInt()];
+                input.readFully( events );
+
+                // make sure the events can be completely replayed before feeding the Digester
+                replay( events, new DefaultHandler() );
+                return events;
+            }
+            finally
+            {
+                input.close();
+            }
+        }
+        catch ( Exception e )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( format( "Stored XML rules %s not readable, regenerating it", file ), e );
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given events, replacing the given file at once, so that concurrent readers never see partial files.
+     */
+    private void store( File file, byte[] hash, byte[] events )
+    {
+        try
+        {
+            if ( !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory() )
+            {
+                throw new IOException( "Impossible to create directory " + directory );
+            }
+
+            File temporary = File.createTempFile( "xmlrules", ".tmp", directory );
+            DataOutputStream output = new DataOutputStream( new FileOutputStream( temporary ) );
+            try
+            {
+                output.writeInt( MAGIC );
+                output.writeInt( VERSION );
+                output.writeInt( hash.length );
+                output.write( hash );
+                output.writeInt( events.length );
+                output.write( events );
+            }
+            finally
+            {
+                output.close();
+            }
+
+            if ( !temporary.renameTo( file ) && !( file.delete() && temporary.renameTo( file ) ) )
+            {
+                temporary.delete();
+                throw new IOException( "Impossible to rename " + temporary + " to " + file );
+            }
+        }
+        catch ( IOException e )
+        {
+            log.warn( format( "An error occurred while storing XML rules to %s", file ), e );
+        }
+    }
+
+    /**
+     * Replays the given events to the given handler.
+     */
+    private static void replay( byte[] events, ContentHandler handler )
+        throws IOException, SAXException
+    {
+        DataInputStream input = new DataInputStream( new ByteArrayInputStream( events ) );
+        List<String> strings = new ArrayList<String>();
+        AttributesImpl attributes = new AttributesImpl();
+
+        handler.startDocument();
+        int event;
+        while ( ( event = input.readByte() ) != END_DOCUMENT )
+        {
+            switch ( event )
+            {
+                case START_ELEMENT:
+                    String uri = readString( input, strings );
+                    String localName = readString( input, strings );
+                    String qName = readString( input, strings );
+                    attributes.clear();
+                    int length = input.readInt();
+                    for ( int i = 0; i < length; i++ )
+                    {
+                        attributes.addAttribute( readString( input, strings ), readString( input, strings ),
+                                                 readString( input, strings ), readString( input, strings ),
+                                                 readString( input, strings ) );
+                    }
+                    handler.startElement( uri, localName, qName, attributes );
+                    break;
+                case END_ELEMENT:
+                    handler.endElement( readString( input, strings ), readString( input, strings ),
+                                        readString( input, strings ) );
+                    break;
+                case CHARACTERS:
+                    char[] text = readString( input, strings ).toCharArray();
+                    handler.characters( text, 0, text.length );
+                    break;
+                case START_PREFIX_MAPPING:
+                    handler.startPrefixMapping( readString( input, strings ), readString( input, strings ) );
+                    break;
+                case END_PREFIX_MAPPING:
+                    handler.endPrefixMapping( readString( input, strings ) );
+                    break;
+                default:
+                    throw new IOException( "Unknown event " + event );
+            }
+        }
+        handler.endDocument();
+    }
+
+    /**
+     * Reads a string, that is a reference to an already read one or a new one.
+     */
+    private static String readString( DataInputStream input, List<String> strings )
+        throws IOException
+    {
+        int index = input.readInt();
+        if ( index < 0 )
+        {
+            return null;
+        }
+        if ( index == strings.size() )
+        {
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully( bytes );
+            strings.add( new String( bytes, "UTF-8" ) );
+        }
+        else if ( index > strings.size() )
+        {
+            throw new IOException( "Invalid string reference " + index );
+        }
+        return strings.get( index );
+    }
+
+    private static byte[] read( InputStream input )
+        throws IOException
+    {
+        try
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ( ( read = input.read( buffer ) ) != -1 )
+            {
+                output.write( buffer, 0, read );
+            }
+            return output.toByteArray();
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    private static String read( Reader input )
+        throws IOException
+    {
+        try
+        {
+            StringBuilder output = new StringBuilder();
+            char[] buffer = new char[4096];
+            int read;
+            while ( ( read = input.read( buffer ) ) != -1 )
+            {
+                output.append( buffer, 0, read );
+            }
+            return output.toString();
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    private static byte[] digest( byte[] bytes )
+    {
+        try
+        {
+            return MessageDigest.getInstance( HASH_ALGORITHM ).digest( bytes );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // every Java platform is required to support it
+            throw new IllegalStateException( HASH_ALGORITHM + " not supported", e );
+        }
+    }
+
+    private static String toHex( byte[] bytes )
+    {
+        StringBuilder hex = new StringBuilder( bytes.length * 2 );
+        for ( byte b : bytes )
+        {
+            hex.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Forwards the parse events to the Digester, recording them.
+     */
+    private static final class Recorder
+        implements ContentHandler
+    {
+
+        private final Digester digester;
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private final DataOutputStream output = new DataOutputStream( buffer );
+
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        private final StringBuilder text = new StringBuilder();
+
+        public Recorder( Digester digester )
+        {
+            this.digester = digester;
+        }
+
+        public byte[] getEvents()
+        {
+            return buffer.toByteArray();
+        }
+
+        public void setDocumentLocator( Locator locator )
+        {
+            digester.setDocumentLocator( locator );
+        }
+
+        public void startDocument()
+            throws SAXException
+        {
+            digester.startDocument();
+        }
+
+        public void endDocument()
+            throws SAXException
+        {
+            record( END_DOCUMENT );
+            digester.endDocument();
+        }
+
+        public void startPrefixMapping( String prefix, String uri )
+            throws SAXException
+        {
+            record( START_PREFIX_MAPPING, prefix, uri );
+            digester.startPrefixMapping( prefix, uri );
+        }
+
+        public void endPrefixMapping( String prefix )
+            throws SAXException
+        {
+            record( END_PREFIX_MAPPING, prefix );
+            digester.endPrefixMapping( prefix );
+        }
+
+        public void startElement( String uri, String localName, String qName, Attributes atts )
+            throws SAXException
+        {
+            record( START_ELEMENT, uri, localName, qName );
+            try
+            {
+                output.writeInt( atts.getLength() );
+                for ( int i = 0; i < atts.getLength(); i++ )
+                {
+                    writeString( atts.getURI( i ) );
+                    writeString( atts.getLocalName( i ) );
+                    writeString( atts.getQName( i ) );
+                    writeString( atts.getType( i ) );
+                    writeString( atts.getValue( i ) );
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new SAXException( e );
+            }
+            digester.startElement( uri, localName, qName, atts );
+        }
+
+        public void endElement( String uri, String localName, String qName )
+            throws SAXException
+        {
+            record( END_ELEMENT, uri, localName, qName );
+            digester.endElement( uri, localName, qName );
+        }
+
+        public void characters( char[] ch, int start, int length )
+            throws SAXException
+        {
+            // consecutive chunks are recorded at once
+            text.append( ch, start, length );
+            digester.characters( ch, start, length );
+        }
+
+        public void ignorableWhitespace( char[] ch, int start, int length )
+            throws SAXException
+        {
+            digester.ignorableWhitespace( ch, start, length );
+        }
+
+        public void processingInstruction( String target, String data )
+            throws SAXException
+        {
+            digester.processingInstruction( target, data );
+        }
+
+        public void skippedEntity( String name )
+            throws SAXException
+        {
+            digester.skippedEntity( name );
+        }
+
+        private void record( int event, String... values )
+            throws SAXException
+        {
+            try
+            {
+                if ( text.length() > 0 )
+                {
+                    output.writeByte( CHARACTERS );
+                    writeString( text.toString() );
+                    text.setLength( 0 );
+                }
+
+                output.writeByte( event );
+                for ( String value : values )
+                {
+                    writeString( value );
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new SAXException( e );
+            }
+        }
+
+        private void writeString( String value )
+            throws IOException
+        {
+            if ( value == null )
+            {
+                output.writeInt( -1 );
+                return;
+            }
+
+            Integer index = strings.get( value );
+            if ( index != null )
+            {
+                output.writeInt( index );
+                return;
+            }
+
+            output.writeInt( strings.size() );
+            strings.put( value, strings.size() );
+            byte[] bytes = value.getBytes( "UTF-8" );
+            output.writeInt( bytes.length );
+            output.write( bytes );
+        }
+
+    }
+
+    /**
+     * Keeps track of the external entities, and the documents included via XInclude, resolved while parsing.
+     */
+    private static final class ExternalEntitiesTracker
+        implements EntityResolver
+    {
+
+        private final EntityResolver entityResolver;
+
+        private final String dtdPublicId;
+
+        private String externalEntity;
+
+        public ExternalEntitiesTracker( EntityResolver entityResolver, String dtdPublicId )
+        {
+            this.entityResolver = entityResolver;
+            this.dtdPublicId = dtdPublicId;
+        }
+
+        /**
+         * Returns the first external resource resolved, other than the XML rules DTD.
+         *
+         * @return the first external resource resolved, null if none
+         */
+        public String getExternalEntity()
+        {
+            return externalEntity;
+        }
+
+        public InputSource resolveEntity( String publicId, String systemId )
+            throws SAXException, IOException
+        {
+            if ( externalEntity == null && ( publicId == null || !publicId.equals( dtdPublicId ) ) )
+            {
+                externalEntity = systemId != null ? systemId : publicId;
+            }
+            return entityResolver != null ? entityResolver.resolveEntity( publicId, systemId ) : null;
+        }
+
+    }
+
+}
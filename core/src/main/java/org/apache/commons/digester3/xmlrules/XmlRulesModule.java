@@ -38,14 +38,17 @@ final class XmlRulesModule
 
     private final String rootPath;
 
+    private final XmlRulesCache xmlRulesCache;
+
     private WithMemoryRulesBinder memoryRulesBinder;
 
     public XmlRulesModule( final NameSpaceURIRulesBinder targetRulesBinder, Set<String> rootSystemIds,
-    /* @Nullable */String rootPath )
+    /* @Nullable */String rootPath, /* @Nullable */XmlRulesCache xmlRulesCache )
     {
         this.targetRulesBinder = targetRulesBinder;
         this.rootSystemIds = rootSystemIds;
         this.rootPath = rootPath;
+        this.xmlRulesCache = xmlRulesCache;
     }
 
     /**
@@ -78,7 +81,8 @@ final class XmlRulesModule
             forPattern( "digester-rules" ).addRule( new SetNamespaceURIRule( targetRulesBinder ) );
 
             forPattern( "*/pattern" ).addRule( new PatternRule( patternStack ) );
-            forPattern( "*/include" ).addRule( new IncludeRule( memoryRulesBinder, targetRulesBinder ) );
+            forPattern( "*/include" ).addRule( new IncludeRule( memoryRulesBinder, targetRulesBinder,
+                                                                xmlRulesCache ) );
 
             forPattern( "*/bean-property-setter-rule" ).addRule( new BeanPropertySetterRule( targetRulesBinder,
                                                                                              patternStack ) );
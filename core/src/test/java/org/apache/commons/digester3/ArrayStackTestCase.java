@@ -0,0 +1,97 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+import org.junit.Test;
+
+/**
+ * Test case for {@link ArrayStack}.
+ */
+public class ArrayStackTestCase
+{
+
+    @Test
+    public void testPushPopPeek()
+    {
+        ArrayStack<String> stack = new ArrayStack<String>( 1 );
+        assertTrue( stack.isEmpty() );
+
+        // force the stack to grow a few times
+        for ( int i = 0; i < 10; i++ )
+        {
+            stack.push( String.valueOf( i ) );
+        }
+        assertEquals( 10, stack.size() );
+        assertEquals( "9", stack.peek() );
+        assertEquals( "9", stack.peek( 0 ) );
+        assertEquals( "7", stack.peek( 2 ) );
+        assertEquals( "0", stack.peek( 9 ) );
+        assertEquals( "0", stack.get( 0 ) );
+        assertEquals( "9", stack.get( 9 ) );
+
+        assertEquals( "9", stack.pop() );
+        assertEquals( "8", stack.peek() );
+        assertEquals( 9, stack.size() );
+
+        stack.clear();
+        assertTrue( stack.isEmpty() );
+    }
+
+    @Test( expected = EmptyStackException.class )
+    public void testPopEmpty()
+    {
+        new ArrayStack<String>().pop();
+    }
+
+    @Test( expected = EmptyStackException.class )
+    public void testPeekEmpty()
+    {
+        new ArrayStack<String>().peek();
+    }
+
+    @Test( expected = EmptyStackException.class )
+    public void testPeekTooDeep()
+    {
+        ArrayStack<String> stack = new ArrayStack<String>();
+        stack.push( "a" );
+        stack.peek( 1 );
+    }
+
+    @Test
+    public void testToStack()
+    {
+        ArrayStack<String> stack = new ArrayStack<String>();
+        stack.push( "a" );
+        stack.push( "b" );
+
+        Stack<String> copy = stack.toStack();
+        assertEquals( 2, copy.size() );
+        assertEquals( "b", copy.peek() );
+        assertEquals( "a", copy.get( 0 ) );
+        assertEquals( "[a, b]", stack.toString() );
+    }
+
+}
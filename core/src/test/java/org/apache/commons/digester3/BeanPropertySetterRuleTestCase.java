@@ -31,6 +31,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.beanutils.BeanUtilsBean;
 import org.apache.commons.digester3.binder.AbstractRulesModule;
 import org.junit.Test;
 import org.xml.sax.SAXException;
@@ -188,6 +189,47 @@ public class BeanPropertySetterRuleTestCase
 
     }
 
+    /**
+     * Test that a custom <code>BeanUtilsBean</code> is used to set the properties.
+     */
+    @Test
+    public void testCustomBeanUtilsBean()
+        throws SAXException, IOException
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( SimpleTestBean.class );
+                forPattern( "root/alpha" ).setBeanProperty().withName( "beta" );
+            }
+
+        } ).newDigester();
+
+        BeanUtilsBean.setInstance( new BeanUtilsBean()
+        {
+
+            @Override
+            public void setProperty( Object bean, String name, Object value )
+                throws IllegalAccessException, InvocationTargetException
+            {
+                super.setProperty( bean, name, String.valueOf( value ).toLowerCase() );
+            }
+
+        } );
+        try
+        {
+            SimpleTestBean bean = digester.parse( xmlTestReader() );
+            assertEquals( "Property beta not set through the custom BeanUtilsBean", "alpha body", bean.getBeta() );
+        }
+        finally
+        {
+            BeanUtilsBean.setInstance( new BeanUtilsBean() );
+        }
+    }
+
     /**
      * Test that trying to set an unknown property throws an exception.
      */
@@ -287,6 +329,51 @@ public class BeanPropertySetterRuleTestCase
         assertEquals( expected.getLastName(), actual.getLastName() );
     }
 
+    /**
+     * Test that the same rule sets properties on objects of different classes, element after element.
+     */
+    @Test
+    public void testRepeatedElementsOnDifferentClasses()
+        throws Exception
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/alpha" ).createObject().ofType( AlphaBean.class )
+                    .then()
+                    .setNext( "add" );
+                forPattern( "root/beta" ).createObject().ofType( BetaBean.class )
+                    .then()
+                    .setNext( "add" );
+                forPattern( "root/test" ).createObject().ofType( TestBean.class )
+                    .then()
+                    .setNext( "add" );
+                forPattern( "*/name" ).setBeanProperty();
+                forPattern( "*/intProperty" ).setBeanProperty();
+            }
+
+        } ).newDigester();
+
+        List<Object> beans = digester.parse( new StringReader( "<root>"
+            + "<alpha><name>a1</name></alpha>"
+            + "<beta><name>b1</name></beta>"
+            + "<test><intProperty> 1 </intProperty></test>"
+            + "<alpha><name>a2</name></alpha>"
+            + "<test><intProperty>2</intProperty></test>"
+            + "</root>" ) );
+
+        assertEquals( 5, beans.size() );
+        assertEquals( "a1", ( (AlphaBean) beans.get( 0 ) ).getName() );
+        assertEquals( "b1", ( (BetaBean) beans.get( 1 ) ).getName() );
+        assertEquals( 1, ( (TestBean) beans.get( 2 ) ).getIntProperty() );
+        assertEquals( "a2", ( (AlphaBean) beans.get( 3 ) ).getName() );
+        assertEquals( 2, ( (TestBean) beans.get( 4 ) ).getIntProperty() );
+    }
+
     /**
      * Get input stream from {@link #TEST_XML}.
      */
@@ -0,0 +1,141 @@
+/* $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.digester3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.digester3.plugins.PluginRules;
+import org.junit.Test;
+
+/**
+ * Test case for CachingRulesWrapper
+ */
+public class CachingRulesWrapperTestCase
+{
+
+    @Test
+    public void testMatchIsCached()
+    {
+        CachingRulesWrapper rules = new CachingRulesWrapper( new ExtendedBaseRules() );
+        rules.add( "alpha/*", new TestRule( "Tom" ) );
+        rules.add( "!*/beta", new TestRule( "Dick" ) );
+
+        List<Rule> matches = rules.match( null, "alpha/beta", null, null );
+        assertEquals( "Wrong number of matches", 2, matches.size() );
+        assertEquals( "Wrong order (1)", "Tom", ( (TestRule) matches.get( 0 ) ).getIdentifier() );
+        assertEquals( "Wrong order (2)", "Dick", ( (TestRule) matches.get( 1 ) ).getIdentifier() );
+        assertEquals( "Wrong misses (1)", 1, rules.getMissCount() );
+        assertEquals( "Wrong hits (1)", 0, rules.getHitCount() );
+
+        assertSame( "Match should be cached", matches, rules.match( null, "alpha/beta", null, null ) );
+        assertEquals( "Wrong misses (2)", 1, rules.getMissCount() );
+        assertEquals( "Wrong hits (2)", 1, rules.getHitCount() );
+
+        // different namespace, different entry
+        rules.match( "urn:other", "alpha/beta", null, null );
+        assertEquals( "Wrong misses (3)", 2, rules.getMissCount() );
+        assertEquals( "Wrong size (1)", 2, rules.getSize() );
+
+        try
+        {
+            matches.add( new TestRule( "Harry" ) );
+            fail( "Cached matches must be immutable" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAddAndClearInvalidate()
+    {
+        CachingRulesWrapper rules = new CachingRulesWrapper( new RulesBase() );
+        rules.add( "alpha", new TestRule( "Tom" ) );
+        assertEquals( "Wrong number of matches (1)", 1, rules.match( null, "alpha", null, null ).size() );
+
+        rules.add( "alpha", new TestRule( "Dick" ) );
+        assertEquals( "Wrong size after add", 0, rules.getSize() );
+        assertEquals( "Wrong number of matches (2)", 2, rules.match( null, "alpha", null, null ).size() );
+
+        rules.clear();
+        assertEquals( "Wrong size after clear", 0, rules.getSize() );
+        assertEquals( "Wrong number of matches (3)", 0, rules.match( null, "alpha", null, null ).size() );
+        assertEquals( "Wrong number of rules", 0, rules.rules().size() );
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction()
+    {
+        CachingRulesWrapper rules = new CachingRulesWrapper( new RegexRules( new SimpleRegexMatcher() ), 2 );
+        rules.add( "*/a", new TestRule( "Tom" ) );
+
+        rules.match( null, "x/a", null, null );
+        rules.match( null, "y/a", null, null );
+        // x/a is now the most recently used
+        rules.match( null, "x/a", null, null );
+        rules.match( null, "z/a", null, null );
+        assertEquals( "Wrong size", 2, rules.getSize() );
+        assertEquals( "Wrong hits (1)", 1, rules.getHitCount() );
+
+        rules.match( null, "x/a", null, null );
+        assertEquals( "Wrong hits (2)", 2, rules.getHitCount() );
+        rules.match( null, "y/a", null, null );
+        assertEquals( "Wrong hits (3)", 2, rules.getHitCount() );
+        assertEquals( "Wrong misses", 4, rules.getMissCount() );
+
+        rules.reset();
+        assertEquals( "Wrong size after reset", 0, rules.getSize() );
+        assertEquals( "Wrong hits after reset", 0, rules.getHitCount() );
+    }
+
+    @Test
+    public void testParseWithPluginRules()
+        throws Exception
+    {
+        CachingRulesWrapper cachingRules = new CachingRulesWrapper( new RulesBase() );
+        Digester digester = new Digester();
+        digester.setRules( new PluginRules( cachingRules ) );
+        digester.addObjectCreate( "list", ArrayList.class );
+        digester.addObjectCreate( "list/item", Address.class );
+        digester.addSetProperties( "list/item" );
+        digester.addSetNext( "list/item", "add" );
+
+        List<?> list = digester.parse( new StringReader( "<list><item city='a'/><item city='b'/>"
+            + "<item city='c'/></list>" ) );
+
+        assertEquals( "Wrong number of items", 3, list.size() );
+        assertEquals( "Wrong item", "c", ( (Address) list.get( 2 ) ).getCity() );
+        assertEquals( "Wrong hits", 2, cachingRules.getHitCount() );
+        assertEquals( "Wrong misses", 2, cachingRules.getMissCount() );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testInvalidMaxSize()
+    {
+        new CachingRulesWrapper( new RulesBase(), 0 );
+    }
+
+}
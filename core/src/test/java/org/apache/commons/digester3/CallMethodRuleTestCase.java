@@ -21,6 +21,7 @@ package org.apache.commons.digester3;
 import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -699,6 +700,84 @@ public class CallMethodRuleTestCase
         assertEquals( "OfZip", office.getZipCode() );
     }
 
+    /**
+     * Test that nested and following invocations of the same rule get their own, empty, parameters.
+     */
+    @Test
+    public void testNestedAndRepeatedParameters()
+        throws Exception
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "map" ).createObject().ofType( HashMap.class );
+                forPattern( "*/entry" ).callMethod( "put" ).withParamCount( 2 )
+                    .then()
+                    .callParam().ofIndex( 0 ).fromAttribute( "key" );
+                forPattern( "*/entry/value" ).callParam().ofIndex( 1 );
+            }
+
+        }).newDigester();
+
+        HashMap<String, String> map = digester.parse( new StringReader( "<map>"
+            + "<entry key='a'><value>1</value><entry key='b'><value>2</value></entry></entry>"
+            + "<entry key='c'/>"
+            + "<entry key='d'><value>4</value></entry>"
+            + "</map>" ) );
+
+        assertEquals( 4, map.size() );
+        assertEquals( "1", map.get( "a" ) );
+        assertEquals( "2", map.get( "b" ) );
+        assertTrue( map.containsKey( "c" ) );
+        assertNull( map.get( "c" ) );
+        assertEquals( "4", map.get( "d" ) );
+    }
+
+    /**
+     * Test the same rules invoking methods on targets of different classes, which are resolved once per class.
+     */
+    @Test
+    public void testDifferentTargetClasses()
+        throws SAXException, IOException
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/builder" ).createObject().ofType( StringBuilder.class )
+                    .then()
+                    .setNext( "add" );
+                forPattern( "root/buffer" ).createObject().ofType( StringBuffer.class )
+                    .then()
+                    .setNext( "add" );
+                forPattern( "*/text" ).callMethod( "append" ).withParamTypes( String.class )
+                    .usingElementBodyAsArgument();
+                forPattern( "*/number" ).callMethod( "append" ).withParamTypes( int.class )
+                    .usingElementBodyAsArgument();
+            }
+
+        }).newDigester();
+
+        ArrayList<Object> list = digester.parse( new StringReader( "<root>"
+            + "<builder><text>a</text><number>1</number></builder>"
+            + "<buffer><text>b</text><number>2</number></buffer>"
+            + "<builder><text>c</text><number>3</number></builder>"
+            + "</root>" ) );
+
+        assertEquals( 3, list.size() );
+        assertTrue( list.get( 0 ) instanceof StringBuilder );
+        assertEquals( "a1", list.get( 0 ).toString() );
+        assertTrue( list.get( 1 ) instanceof StringBuffer );
+        assertEquals( "b2", list.get( 1 ).toString() );
+        assertEquals( "c3", list.get( 2 ).toString() );
+    }
+
     // ------------------------------------------------ Utility Support Methods
 
     /**
@@ -0,0 +1,150 @@
+/* $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.digester3;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test case for CompiledPatterns and CompiledRules
+ */
+public class CompiledRulesTestCase
+{
+
+    private static final List<String> PATTERNS = asList( "a", "a/b", "*/b", "*/c/b", "/a/b/c", "*", "a/b",
+                                                         "b", "*/c" );
+
+    private static final List<String> NAMESPACES = asList( null, null, "urn:x", null, null, null, "urn:y",
+                                                           null, "urn:x" );
+
+    private static final String[] PATHS = { "a", "a/b", "a/b/c", "x/b", "x/c/b", "b", "x/y", "c" };
+
+    private static final String[] MATCHING_NAMESPACES = { null, "urn:x", "urn:y", "urn:z" };
+
+    /**
+     * Compiled matching must select the same rules, in the same order, as RulesBase.
+     */
+    @Test
+    public void testMatchesLikeRulesBase()
+    {
+        CompiledPatterns patterns = new CompiledPatterns( PATTERNS, NAMESPACES );
+        CompiledRules compiled = new CompiledRules( patterns, newRules() );
+        RulesBase base = new RulesBase();
+        List<Rule> rules = newRules();
+        for ( int i = 0; i < rules.size(); i++ )
+        {
+            base.add( PATTERNS.get( i ), rules.get( i ) );
+        }
+
+        for ( String namespaceURI : MATCHING_NAMESPACES )
+        {
+            for ( String path : PATHS )
+            {
+                assertEquals( "Wrong match for " + namespaceURI + " " + path,
+                              identifiers( base.match( namespaceURI, path, null, null ) ),
+                              identifiers( compiled.match( namespaceURI, path, null, null ) ) );
+
+                ElementPath elementPath = new ElementPath();
+                for ( String segment : path.split( "/" ) )
+                {
+                    elementPath.push( segment );
+                }
+                assertEquals( "Wrong element path match for " + namespaceURI + " " + path,
+                              identifiers( base.match( namespaceURI, path, null, null ) ),
+                              identifiers( compiled.match( namespaceURI, elementPath, null, null ) ) );
+            }
+        }
+    }
+
+    @Test
+    public void testSharedPatterns()
+    {
+        CompiledPatterns patterns = new CompiledPatterns( PATTERNS, NAMESPACES );
+        List<Rule> firstRules = newRules();
+        List<Rule> secondRules = newRules();
+        CompiledRules first = new CompiledRules( patterns, firstRules );
+        CompiledRules second = new CompiledRules( patterns, secondRules );
+
+        List<Rule> matches = first.match( null, "a/b", null, null );
+        assertSame( "Matches should be reused", matches, first.match( null, "a/b", null, null ) );
+        assertSame( "Wrong bound rule", firstRules.get( 1 ), matches.get( 0 ) );
+        assertSame( "Wrong bound rule", secondRules.get( 1 ), second.match( null, "a/b", null, null ).get( 0 ) );
+        assertEquals( "Wrong rules", firstRules, first.rules() );
+        assertTrue( "Unmatched path", second.match( null, "", null, null ).isEmpty() );
+    }
+
+    @Test
+    public void testAddAfterCreation()
+    {
+        CompiledPatterns patterns = new CompiledPatterns( PATTERNS, NAMESPACES );
+        CompiledRules rules = new CompiledRules( patterns, newRules() );
+        rules.add( "a/b", new TestRule( "added" ) );
+
+        assertEquals( "Wrong match after add", asList( "1", "6", "added" ),
+                      identifiers( rules.match( "urn:y", "a/b", null, null ) ) );
+        assertEquals( "Wrong rules after add", PATTERNS.size() + 1, rules.rules().size() );
+
+        // the shared patterns are not affected
+        CompiledRules other = new CompiledRules( patterns, newRules() );
+        assertEquals( "Wrong match on shared patterns", asList( "1", "6" ),
+                      identifiers( other.match( "urn:y", "a/b", null, null ) ) );
+
+        rules.clear();
+        assertTrue( "Rules should be cleared", rules.rules().isEmpty() );
+        assertTrue( "Matches should be cleared", rules.match( null, "a", null, null ).isEmpty() );
+        assertEquals( "Shared patterns should still match", asList( "0" ),
+                      identifiers( other.match( null, "a", null, null ) ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testRulesCountMismatch()
+    {
+        new CompiledRules( new CompiledPatterns( PATTERNS, NAMESPACES ), new ArrayList<Rule>() );
+    }
+
+    private static List<Rule> newRules()
+    {
+        List<Rule> rules = new ArrayList<Rule>();
+        for ( int i = 0; i < PATTERNS.size(); i++ )
+        {
+            TestRule rule = new TestRule( String.valueOf( i ) );
+            rule.setNamespaceURI( NAMESPACES.get( i ) );
+            rules.add( rule );
+        }
+        return rules;
+    }
+
+    private static List<String> identifiers( List<Rule> rules )
+    {
+        List<String> identifiers = new ArrayList<String>();
+        for ( Rule rule : rules )
+        {
+            identifiers.add( ( (TestRule) rule ).getIdentifier() );
+        }
+        return identifiers;
+    }
+
+}
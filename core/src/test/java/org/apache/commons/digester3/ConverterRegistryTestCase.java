@@ -0,0 +1,139 @@
+/* $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.commons.digester3;
+
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.apache.commons.beanutils.Converter;
+import org.apache.commons.digester3.binder.AbstractRulesModule;
+import org.junit.Test;
+
+/**
+ * Test case for ConverterRegistry
+ */
+public class ConverterRegistryTestCase
+{
+
+    private final ConverterRegistry registry = new ConverterRegistry();
+
+    @Test
+    public void testIntegralNumbers()
+    {
+        assertEquals( 42, registry.toInt( " 42\n" ) );
+        assertEquals( -42, registry.toInt( "-42" ) );
+        assertEquals( 42, registry.toInt( "+42" ) );
+        assertEquals( Integer.MAX_VALUE, registry.toInt( "2147483647" ) );
+        assertEquals( Integer.MIN_VALUE, registry.toInt( "-2147483648" ) );
+        assertEquals( Long.MIN_VALUE, registry.toLong( "-9223372036854775808" ) );
+        assertEquals( Long.MAX_VALUE, registry.toLong( new StringBuilder( "9223372036854775807" ) ) );
+
+        // missing or invalid values are converted to zero
+        assertEquals( 0, registry.toInt( null ) );
+        assertEquals( 0, registry.toInt( "  " ) );
+        assertEquals( 0, registry.toInt( "-" ) );
+        assertEquals( 0, registry.toInt( "1.5" ) );
+        assertEquals( 0, registry.toInt( "2147483648" ) );
+        assertEquals( 0, registry.toLong( "9223372036854775808" ) );
+        assertEquals( Short.valueOf( (short) 0 ), registry.convert( "70000", short.class ) );
+        assertEquals( Byte.valueOf( (byte) -5 ), registry.convert( "-5", Byte.class ) );
+    }
+
+    @Test
+    public void testOtherTypes()
+    {
+        assertEquals( 1.5D, registry.toDouble( " 1.5 " ), 0 );
+        assertEquals( 0D, registry.toDouble( "one" ), 0 );
+        assertEquals( Float.valueOf( 2.5F ), registry.convert( "2.5", float.class ) );
+
+        assertTrue( registry.toBoolean( "true" ) );
+        assertTrue( registry.toBoolean( "YES" ) );
+        assertTrue( registry.toBoolean( "y" ) );
+        assertTrue( registry.toBoolean( "On" ) );
+        assertTrue( registry.toBoolean( "1" ) );
+        assertFalse( registry.toBoolean( "off" ) );
+        assertFalse( registry.toBoolean( "maybe" ) );
+        assertFalse( registry.toBoolean( null ) );
+
+        assertEquals( Character.valueOf( 'x' ), registry.convert( "xyz", char.class ) );
+        assertEquals( Character.valueOf( ' ' ), registry.convert( "", Character.class ) );
+        assertEquals( "text", registry.convert( new StringBuilder( "text" ), String.class ) );
+        assertNull( registry.convert( null, String.class ) );
+    }
+
+    @Test
+    public void testRegisteredConverter()
+    {
+        final Object converted = new Object();
+        registry.register( int.class, new Converter()
+        {
+
+            public <T> T convert( Class<T> type, Object value )
+            {
+                @SuppressWarnings( "unchecked" )
+                T result = (T) converted;
+                return result;
+            }
+
+        } );
+
+        assertSame( converted, registry.convert( "1", int.class ) );
+        assertEquals( Integer.valueOf( 1 ), registry.convert( "1", Integer.class ) );
+
+        registry.register( int.class, null );
+        assertEquals( Integer.valueOf( 1 ), registry.convert( "1", int.class ) );
+    }
+
+    @Test
+    public void testDigesterConversions()
+        throws Exception
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "bean" ).createObject().ofType( TestBean.class )
+                    .then()
+                    .setProperties();
+                forPattern( "bean/long" ).callMethod( "setLongProperty" ).withParamTypes( long.class )
+                    .usingElementBodyAsArgument();
+            }
+
+        } ).setConverterRegistry( registry ).newDigester();
+
+        assertSame( registry, digester.getConverterRegistry() );
+
+        TestBean bean = digester.parse( new StringReader( "<bean intProperty=' 7 ' booleanProperty='yes'>"
+            + "<long>123456789012</long></bean>" ) );
+
+        assertEquals( 7, bean.getIntProperty() );
+        assertTrue( bean.getBooleanProperty() );
+        assertEquals( 123456789012L, bean.getLongProperty() );
+    }
+
+}
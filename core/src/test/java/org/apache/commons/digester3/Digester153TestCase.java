@@ -22,8 +22,13 @@ package org.apache.commons.digester3;
 import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.digester3.annotations.FromAnnotationsRuleModule;
 import org.apache.commons.digester3.binder.AbstractRulesModule;
 import org.apache.commons.digester3.binder.RulesModule;
@@ -201,4 +206,158 @@ public final class Digester153TestCase
         assertEquals( 9.99D, bean.getDoubleProperty(), 0 );
     }
 
+    @Test
+    public void basicConstructorWithoutProxy()
+        throws Exception
+    {
+        ObjectCreateRule createRule = new ObjectCreateRule( TestBean.class );
+        createRule.setConstructorArgumentTypes( boolean.class, double.class );
+        createRule.setUseProxy( false );
+
+        Digester digester = new Digester();
+        digester.addRule( "toplevel/bean", createRule );
+        digester.addCallParam( "toplevel/bean", 0, "boolean" );
+        digester.addCallParam( "toplevel/bean/double", 1 );
+        digester.addBeanPropertySetter( "toplevel/bean/float", "floatProperty" );
+
+        TestBean bean = digester.parse( getClass().getResourceAsStream( "ConstructorWithAttributeAndElement.xml" ) );
+
+        assertTrue( bean.getBooleanProperty() );
+        assertEquals( 9.99D, bean.getDoubleProperty(), 0 );
+        assertEquals( Float.valueOf( 5.5f ), Float.valueOf( bean.getFloatProperty() ) );
+    }
+
+    @Test
+    public void finalClassConstructorWithoutProxy()
+        throws Exception
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "toplevel" ).createObject().ofType( ArrayList.class );
+                forPattern( "toplevel/point" )
+                    .createObject().ofType( Point.class ).usingConstructor( int.class, int.class ).usingProxy( false )
+                    .then()
+                    .callParam().fromAttribute( "x" ).ofIndex( 0 )
+                    .then()
+                    .callParam().fromAttribute( "y" ).ofIndex( 1 )
+                    .then()
+                    .setProperties()
+                    .then()
+                    .setNext( "add" );
+                forPattern( "toplevel/point/label" ).callMethod( "setLabel" ).usingElementBodyAsArgument();
+            }
+
+        } ).newDigester();
+
+        List<Point> points = digester.parse( new StringReader( "<toplevel>"
+            + "<point x='1' y='2' color='red'><label>a</label></point>"
+            + "<point x='3' y='4'/>"
+            + "</toplevel>" ) );
+
+        assertEquals( 2, points.size() );
+        assertEquals( 1, points.get( 0 ).x );
+        assertEquals( 2, points.get( 0 ).y );
+        assertEquals( "red", points.get( 0 ).getColor() );
+        assertEquals( "a", points.get( 0 ).getLabel() );
+        assertEquals( 3, points.get( 1 ).x );
+        assertEquals( 4, points.get( 1 ).y );
+        assertNull( points.get( 1 ).getColor() );
+    }
+
+    @Test
+    public void batchedSetNextWithDeferredChildren()
+        throws Exception
+    {
+        ObjectCreateRule createRule = new ObjectCreateRule( Point.class );
+        createRule.setConstructorArgumentTypes( int.class, int.class );
+        createRule.setUseProxy( false );
+
+        // the same rule links both the deferred and the batched children
+        SetNextRule setNextRule = new SetNextRule( "add" );
+        setNextRule.setBulkMethodName( "addAll" );
+
+        Digester digester = new Digester();
+        digester.addObjectCreate( "toplevel", ArrayList.class );
+        digester.addObjectCreate( "toplevel/bean", TestBean.class );
+        digester.addRule( "toplevel/bean", setNextRule );
+        digester.addRule( "toplevel/point", createRule );
+        digester.addCallParam( "toplevel/point", 0, "x" );
+        digester.addCallParam( "toplevel/point", 1, "y" );
+        digester.addRule( "toplevel/point", setNextRule );
+
+        List<?> children = digester.parse( new StringReader( "<toplevel>"
+            + "<bean/><point x='1' y='2'/><bean/><bean/><point x='3' y='4'/>"
+            + "</toplevel>" ) );
+
+        // the batched children are passed to the parent before the deferred ones, in document order
+        assertEquals( 5, children.size() );
+        assertTrue( children.get( 0 ) instanceof TestBean );
+        assertEquals( 1, ( (Point) children.get( 1 ) ).x );
+        assertTrue( children.get( 2 ) instanceof TestBean );
+        assertTrue( children.get( 3 ) instanceof TestBean );
+        assertEquals( 3, ( (Point) children.get( 4 ) ).x );
+    }
+
+    @Test
+    public void rootConstructorWithoutProxy()
+        throws Exception
+    {
+        ObjectCreateRule createRule = new ObjectCreateRule( Point.class );
+        createRule.setConstructorArgumentTypes( int.class, int.class );
+        createRule.setUseProxy( false );
+
+        Digester digester = new Digester();
+        digester.addRule( "point", createRule );
+        digester.addCallParam( "point", 0, "x" );
+        digester.addCallParam( "point", 1, "y" );
+
+        Point point = digester.parse( new StringReader( "<point x='5' y='6'/>" ) );
+
+        assertEquals( 5, point.x );
+        assertEquals( 6, point.y );
+    }
+
+    public static final class Point
+    {
+
+        private final int x;
+
+        private final int y;
+
+        private String color;
+
+        private String label;
+
+        public Point( int x, int y )
+        {
+            this.x = x;
+            this.y = y;
+        }
+
+        public String getColor()
+        {
+            return color;
+        }
+
+        public void setColor( String color )
+        {
+            this.color = color;
+        }
+
+        public String getLabel()
+        {
+            return label;
+        }
+
+        public void setLabel( String label )
+        {
+            this.label = label;
+        }
+
+    }
+
 }
@@ -35,7 +35,9 @@ import java.math.BigDecimal;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.EmptyStackException;
+import java.util.List;
 import java.util.Map;
+import java.util.Stack;
 
 import org.apache.commons.digester3.Digester;
 import org.apache.commons.digester3.ObjectCreateRule;
@@ -713,4 +715,35 @@ public class DigesterTestCase
         assertEquals( "pop:stack1:obj9", action.events.get( 10 ) );
         assertEquals( "pop:stack1:obj8", action.events.get( 11 ) );
     }
+
+    @Test
+    @SuppressWarnings( "deprecation" )
+    public void testLegacyMatchesStack()
+        throws Exception
+    {
+        final Digester d = new Digester();
+        final Stack<List<Rule>> legacyMatches = d.getMatches();
+        final List<Integer> sizes = new ArrayList<Integer>();
+        d.addRule( "root/a", new Rule()
+        {
+
+            @Override
+            public void begin( String namespace, String name, Attributes attributes )
+            {
+                sizes.add( legacyMatches.size() );
+                sizes.add( getDigester().getRuleMatches().size() );
+            }
+
+        } );
+
+        d.parse( new StringReader( "<root><a/></root>" ) );
+
+        // the stack follows the parse
+        assertEquals( 2, sizes.size() );
+        assertTrue( sizes.get( 0 ).intValue() > 0 );
+        assertEquals( sizes.get( 0 ), sizes.get( 1 ) );
+        assertTrue( legacyMatches.isEmpty() );
+        assertSame( legacyMatches, d.getMatches() );
+    }
+
 }
@@ -0,0 +1,136 @@
+/* $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.digester3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+
+/**
+ * Test case for {@link ElementPath}.
+ */
+public class ElementPathTestCase
+{
+
+    @Test
+    public void pushAndPop()
+    {
+        ElementPath path = new ElementPath();
+        assertEquals( 0, path.getDepth() );
+        assertEquals( "", path.toString() );
+        assertEquals( "", path.getLastSegment() );
+
+        path.push( "a" );
+        path.push( "b" );
+        path.push( "c" );
+        assertEquals( 3, path.getDepth() );
+        assertEquals( "a/b/c", path.toString() );
+        assertEquals( "a/b", path.toString( 1 ) );
+        assertEquals( "c", path.getLastSegment() );
+        assertEquals( "b", path.getSegment( 1 ) );
+
+        path.pop();
+        assertEquals( "a/b", path.toString() );
+        path.push( "d" );
+        assertEquals( "a/b/d", path.toString() );
+
+        path.clear();
+        assertEquals( 0, path.getDepth() );
+        assertEquals( "", path.toString() );
+    }
+
+    @Test
+    public void stringFormIsCachedPerDepth()
+    {
+        ElementPath path = new ElementPath();
+        path.push( "a" );
+        path.push( "b" );
+        assertSame( path.toString(), path.toString() );
+    }
+
+    @Test
+    public void deepPaths()
+    {
+        ElementPath path = new ElementPath();
+        StringBuilder expected = new StringBuilder();
+        for ( int i = 0; i < 100; i++ )
+        {
+            path.push( "e" + i );
+            if ( i > 0 )
+            {
+                expected.append( '/' );
+            }
+            expected.append( "e" ).append( i );
+        }
+        assertEquals( 100, path.getDepth() );
+        assertEquals( expected.toString(), path.toString() );
+    }
+
+    @Test
+    public void endsWith()
+    {
+        ElementPath path = new ElementPath();
+        path.push( "a" );
+        path.push( "b" );
+        path.push( "c" );
+        assertTrue( path.endsWith( new String[] { "b", "c" }, 2 ) );
+        assertTrue( path.endsWith( new String[] { "a", "b", "c" }, 3 ) );
+        assertTrue( path.endsWith( new String[] { "c", "x" }, 1 ) );
+        assertFalse( path.endsWith( new String[] { "a", "c" }, 2 ) );
+        assertFalse( path.endsWith( new String[] { "x", "a", "b", "c" }, 4 ) );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void popEmptyPath()
+    {
+        new ElementPath().pop();
+    }
+
+    @Test
+    public void digesterTracksMatch()
+        throws Exception
+    {
+        final StringBuilder matches = new StringBuilder();
+        Digester digester = new Digester();
+        digester.addRule( "*/b", new Rule()
+        {
+
+            @Override
+            public void begin( String namespace, String name, Attributes attributes )
+            {
+                matches.append( getDigester().getMatch() )
+                       .append( ' ' )
+                       .append( getDigester().getCurrentElementName() )
+                       .append( ';' );
+            }
+
+        } );
+        digester.parse( new StringReader( "<a><b><b/></b><c><b/></c></a>" ) );
+
+        assertEquals( "a/b b;a/b/b b;a/c/b b;", matches.toString() );
+        assertEquals( "", digester.getMatch() );
+    }
+
+}
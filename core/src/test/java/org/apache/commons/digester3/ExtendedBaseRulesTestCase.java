@@ -19,6 +19,7 @@
 package org.apache.commons.digester3;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.Iterator;
 import java.util.List;
@@ -415,4 +416,64 @@ public class ExtendedBaseRulesTestCase
         assertEquals( "No matches expected", 0, list.size() );
 
     }
+
+    @Test
+    public void testMemoizedMatches()
+    {
+        digester.getRules().clear();
+
+        digester.addRule( "a/*", new TestRule( "a-star" ) );
+        digester.addRule( "!*/b/?", new TestRule( "universal-b-child" ) );
+
+        ExtendedBaseRules rules = (ExtendedBaseRules) digester.getRules();
+        ElementPath path = new ElementPath();
+        path.push( "a" );
+        path.push( "b" );
+        path.push( "c" );
+
+        List<Rule> list = rules.match( null, path, null, null );
+        assertEquals( "Path match", 2, list.size() );
+        assertEquals( "Path match (1)", "a-star", ( (TestRule) list.get( 0 ) ).getIdentifier() );
+        assertEquals( "Path match (2)", "universal-b-child", ( (TestRule) list.get( 1 ) ).getIdentifier() );
+        assertEquals( "String match", list, rules.match( null, "a/b/c", null, null ) );
+
+        // moving to a sibling and back resolves to the very same rules
+        path.pop();
+        path.push( "d" );
+        assertEquals( "Sibling match", 2, rules.match( null, path, null, null ).size() );
+        path.pop();
+        path.push( "c" );
+        assertSame( "Memoized match", list, rules.match( null, path, null, null ) );
+
+        // registering a rule discards the memoized matches
+        digester.addRule( "a/b/c", new TestRule( "a-b-c" ) );
+        list = rules.match( null, path, null, null );
+        assertEquals( "New match", 2, list.size() );
+        assertEquals( "New match (1)", "universal-b-child", ( (TestRule) list.get( 0 ) ).getIdentifier() );
+        assertEquals( "New match (2)", "a-b-c", ( (TestRule) list.get( 1 ) ).getIdentifier() );
+    }
+
+    @Test
+    public void testMemoizedMatchesBeyondLimit()
+    {
+        digester.getRules().clear();
+
+        digester.addRule( "a/*", new TestRule( "a-star" ) );
+
+        ExtendedBaseRules rules = (ExtendedBaseRules) digester.getRules();
+        ElementPath path = new ElementPath();
+        path.push( "a" );
+
+        // the memoized matches are discarded while walking the siblings
+        for ( int i = 0; i < ExtendedBaseRules.MAX_MATCHED_PATHS + 10; i++ )
+        {
+            path.push( "child" + i );
+            List<Rule> list = rules.match( null, path, null, null );
+            assertEquals( "Path match", 1, list.size() );
+            assertSame( "Memoized match", list, rules.match( null, path, null, null ) );
+            assertSame( "String match", list, rules.match( null, "a/child" + i, null, null ) );
+            path.pop();
+        }
+    }
+
 }
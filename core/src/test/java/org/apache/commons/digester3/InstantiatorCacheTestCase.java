@@ -0,0 +1,122 @@
+/* $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.commons.digester3;
+
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.digester3.binder.AbstractRulesModule;
+import org.junit.Test;
+
+/**
+ * Test case for InstantiatorCache
+ */
+public class InstantiatorCacheTestCase
+{
+
+    @Test
+    public void testLoadAndInstantiate()
+        throws Exception
+    {
+        ClassLoader classLoader = getClass().getClassLoader();
+        InstantiatorCache cache = new InstantiatorCache();
+
+        Class<?> type = cache.loadClass( classLoader, "org.apache.commons.digester3.SimpleTestBean" );
+        assertSame( SimpleTestBean.class, type );
+        assertEquals( "Wrong misses (1)", 1, cache.getMissCount() );
+
+        assertSame( type, cache.loadClass( classLoader, "org.apache.commons.digester3.SimpleTestBean" ) );
+        Object first = cache.newInstance( type );
+        Object second = cache.newInstance( type );
+        assertTrue( first instanceof SimpleTestBean );
+        assertNotSame( first, second );
+        assertEquals( "Wrong hits", 3, cache.getHitCount() );
+        assertEquals( "Wrong misses (2)", 1, cache.getMissCount() );
+        assertEquals( "Wrong size", 1, cache.getSize() );
+
+        cache.reset();
+        assertEquals( "Wrong size after reset", 0, cache.getSize() );
+        assertEquals( "Wrong hits after reset", 0, cache.getHitCount() );
+    }
+
+    @Test
+    public void testEviction()
+        throws Exception
+    {
+        InstantiatorCache cache = new InstantiatorCache( 2 );
+        cache.newInstance( ArrayList.class );
+        cache.newInstance( StringBuilder.class );
+        cache.newInstance( ArrayList.class );
+        cache.newInstance( SimpleTestBean.class );
+        assertEquals( "Wrong size", 2, cache.getSize() );
+
+        // StringBuilder was the least recently used one
+        cache.newInstance( ArrayList.class );
+        cache.newInstance( StringBuilder.class );
+        assertEquals( "Wrong hits", 2, cache.getHitCount() );
+        assertEquals( "Wrong misses", 4, cache.getMissCount() );
+    }
+
+    @Test( expected = InstantiationException.class )
+    public void testNoDefaultConstructor()
+        throws Exception
+    {
+        new InstantiatorCache().newInstance( Integer.class );
+    }
+
+    @Test
+    public void testClassNameAttribute()
+        throws Exception
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/item" ).createObject().ofTypeSpecifiedByAttribute( "class" )
+                    .then()
+                    .setNext( "add" );
+            }
+
+        }).newDigester();
+
+        List<Object> items = digester.parse( new StringReader( "<root>"
+            + "<item class='java.util.ArrayList'/>"
+            + "<item class='java.lang.StringBuilder'/>"
+            + "<item class='java.util.ArrayList'/>"
+            + "</root>" ) );
+
+        assertEquals( 3, items.size() );
+        assertTrue( items.get( 0 ) instanceof ArrayList );
+        assertTrue( items.get( 1 ) instanceof StringBuilder );
+        assertTrue( items.get( 2 ) instanceof ArrayList );
+        assertTrue( "Classes should be cached", digester.getInstantiatorCache().getHitCount() > 0 );
+    }
+
+}
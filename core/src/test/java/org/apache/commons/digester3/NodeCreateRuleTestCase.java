@@ -524,6 +524,124 @@ public class NodeCreateRuleTestCase
         assertEquals( "A A", element.getFirstChild().getNodeValue() );
     }
 
+    /**
+     * Tests that the matched elements can be captured as XML text.
+     */
+    @Test
+    public void testCaptureXml()
+        throws SAXException, IOException
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/blob" ).createNode().capturingXml( true )
+                    .then()
+                    .setNext( "add" );
+            }
+
+        }).newDigester();
+
+        List<String> blobs = digester.parse( new StringReader( "<root><blob a='1 &amp; 2'><p>x &lt; y</p><br/></blob>"
+            + "<blob/></root>" ) );
+
+        assertEquals( 2, blobs.size() );
+        assertEquals( "<blob a=\"1 &amp; 2\"><p>x &lt; y</p><br/></blob>", blobs.get( 0 ) );
+        assertEquals( "<blob/>", blobs.get( 1 ) );
+    }
+
+    /**
+     * Tests that the namespaces used by the captured content are declared in the XML text.
+     */
+    @Test
+    public void testCaptureXmlNamespaces()
+        throws SAXException, IOException
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/blob" ).createNode().ofType( NodeType.DOCUMENT_FRAGMENT ).capturingXml( true )
+                    .then()
+                    .setNext( "add" );
+            }
+
+        })
+        .setNamespaceAware( true )
+        .newDigester();
+
+        List<String> blobs = digester.parse( new StringReader( "<root xmlns:b='urn:b'><blob><b:p b:x='1'>t</b:p>"
+            + "<q xmlns='urn:q'><r/></q></blob></root>" ) );
+
+        assertEquals( 1, blobs.size() );
+        assertEquals( "<b:p xmlns:b=\"urn:b\" b:x=\"1\">t</b:p><q xmlns=\"urn:q\"><r/></q>", blobs.get( 0 ) );
+    }
+
+    /**
+     * Tests that the prefix of the matched element is kept in the XML text.
+     */
+    @Test
+    public void testCaptureXmlPrefixedElement()
+        throws SAXException, IOException
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/blob" ).createNode().capturingXml( true )
+                    .then()
+                    .setNext( "add" );
+            }
+
+        })
+        .setNamespaceAware( true )
+        .newDigester();
+
+        List<String> blobs = digester.parse( new StringReader( "<root xmlns:x='urn:x'><x:blob a='1'><x:p/></x:blob>"
+            + "</root>" ) );
+
+        assertEquals( 1, blobs.size() );
+        assertEquals( "<x:blob xmlns:x=\"urn:x\" a=\"1\"><x:p/></x:blob>", blobs.get( 0 ) );
+    }
+
+    /**
+     * Tests that the created nodes can share their owner document.
+     */
+    @Test
+    public void testReuseDocument()
+        throws SAXException, IOException
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/alpha" ).createNode().reusingDocument( true )
+                    .then()
+                    .setNext( "add" );
+            }
+
+        }).newDigester();
+
+        List<Element> elements = digester.parse( new StringReader( "<root><alpha>1</alpha><alpha>2</alpha></root>" ) );
+
+        assertEquals( 2, elements.size() );
+        assertEquals( "1", elements.get( 0 ).getFirstChild().getNodeValue() );
+        assertEquals( "2", elements.get( 1 ).getFirstChild().getNodeValue() );
+        assertTrue( elements.get( 0 ).getOwnerDocument() == elements.get( 1 ).getOwnerDocument() );
+    }
+
     // ------------------------------------------------ Utility Support Methods
 
     /**
@@ -19,6 +19,7 @@
 package org.apache.commons.digester3;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.List;
 
@@ -206,4 +207,38 @@ public class RegexRulesTestCase
         assertEquals( "Simple Regex Match '/alpha/beta/gamma/beta/epsilon/beta/gamma/epsilon' to "
             + " '*/beta/gamma/?p*no' ", false, matcher.match( "/alpha/beta/gamma", "*/beta/gamma/?p*no" ) );
     }
+
+    /** Test that indexed and unindexed patterns are matched in the order they were added */
+    @Test
+    public void testSimpleRegexMatchOrder()
+    {
+        RegexRules rules = new RegexRules( new SimpleRegexMatcher() );
+        rules.add( "*/gamma", new TestRule( "star-gamma" ) );
+        rules.add( "/alpha/*", new TestRule( "alpha-star" ) );
+        rules.add( "/alpha/beta/gamma", new TestRule( "alpha-beta-gamma" ) );
+        rules.add( "*/?amma", new TestRule( "star-qamma" ) );
+        rules.add( "/alpha/beta", new TestRule( "alpha-beta" ) );
+
+        List<Rule> list = rules.match( "", "/alpha/beta/gamma", null, null );
+        assertEquals( "Wrong number of rules returned (1)", 4, list.size() );
+        assertEquals( "Rule order (1)", "star-gamma", ( (TestRule) list.get( 0 ) ).getIdentifier() );
+        assertEquals( "Rule order (2)", "alpha-star", ( (TestRule) list.get( 1 ) ).getIdentifier() );
+        assertEquals( "Rule order (3)", "alpha-beta-gamma", ( (TestRule) list.get( 2 ) ).getIdentifier() );
+        assertEquals( "Rule order (4)", "star-qamma", ( (TestRule) list.get( 3 ) ).getIdentifier() );
+
+        // same path, same answer
+        assertSame( "Memoized match", list, rules.match( "", "/alpha/beta/gamma", null, null ) );
+
+        // adding a rule invalidates the memoized matches
+        rules.add( "/alpha/beta/gamma", new TestRule( "alpha-beta-gamma-again" ) );
+        list = rules.match( "", "/alpha/beta/gamma", null, null );
+        assertEquals( "Wrong number of rules returned (2)", 5, list.size() );
+        assertEquals( "Rule order (5)", "alpha-beta-gamma-again", ( (TestRule) list.get( 4 ) ).getIdentifier() );
+
+        list = rules.match( "", "/alpha/beta", null, null );
+        assertEquals( "Wrong number of rules returned (3)", 2, list.size() );
+        assertEquals( "Rule order (6)", "alpha-star", ( (TestRule) list.get( 0 ) ).getIdentifier() );
+        assertEquals( "Rule order (7)", "alpha-beta", ( (TestRule) list.get( 1 ) ).getIdentifier() );
+    }
+
 }
@@ -18,7 +18,9 @@
 
 package org.apache.commons.digester3;
 
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -26,11 +28,14 @@ import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.digester3.Digester;
 import org.apache.commons.digester3.ExtendedBaseRules;
 import org.apache.commons.digester3.RuleSet;
+import org.apache.commons.digester3.binder.AbstractRulesModule;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -414,6 +419,174 @@ public class RuleTestCase
 
     }
 
+    @Test
+    public void testSetNextBatching()
+        throws SAXException, IOException
+    {
+        final List<Integer> groupSizes = new ArrayList<Integer>();
+
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/group" ).createObject().ofType( ArrayList.class )
+                    .then()
+                    .setNext( "add" )
+                    .then()
+                    .addRule( new Rule()
+                    {
+
+                        @Override
+                        public void end( String namespace, String name )
+                        {
+                            groupSizes.add( getDigester().<List<?>> peek().size() );
+                        }
+
+                    } );
+                forPattern( "*/item" ).createObject().ofType( NamedBean.class )
+                    .then()
+                    .setProperties()
+                    .then()
+                    .setNext( "add" ).batchingWith( "addAll" );
+            }
+
+        } ).newDigester();
+
+        List<?> root = digester.parse( new StringReader( "<root>"
+            + "<group><item name='a'/><item name='b'/></group>"
+            + "<group><item name='c'/></group>"
+            + "<item name='d'/>"
+            + "</root>" ) );
+
+        // the children are linked before the end of the enclosing element
+        assertEquals( 2, groupSizes.get( 0 ).intValue() );
+        assertEquals( 1, groupSizes.get( 1 ).intValue() );
+
+        assertEquals( 3, root.size() );
+        List<?> group = (List<?>) root.get( 0 );
+        assertEquals( "a", ( (NamedBean) group.get( 0 ) ).getName() );
+        assertEquals( "b", ( (NamedBean) group.get( 1 ) ).getName() );
+        group = (List<?>) root.get( 1 );
+        assertEquals( "c", ( (NamedBean) group.get( 0 ) ).getName() );
+        assertEquals( "d", ( (NamedBean) root.get( 2 ) ).getName() );
+    }
+
+    @Test
+    public void testSetNextPolymorphicChildren()
+        throws SAXException, IOException
+    {
+        Digester digester = new Digester();
+        digester.addObjectCreate( "p", OverloadedParent.class );
+        digester.addObjectCreate( "p/c", FooChild.class.getName(), "class" );
+        digester.addSetNext( "p/c", "add" );
+
+        // the parameter types of each child class are resolved on their own
+        OverloadedParent parent = digester.parse( new StringReader( "<p><c/><c class='" + BarChild.class.getName()
+            + "'/><c/><c class='" + BarChild.class.getName() + "'/></p>" ) );
+
+        assertEquals( 2, parent.foos );
+        assertEquals( 2, parent.bars );
+    }
+
+    public static class FooChild
+    {
+    }
+
+    public static class BarChild
+    {
+    }
+
+    public static class OverloadedParent
+    {
+
+        private int foos;
+
+        private int bars;
+
+        public void add( FooChild foo )
+        {
+            foos++;
+        }
+
+        public void add( BarChild bar )
+        {
+            bars++;
+        }
+
+    }
+
+    @Test
+    public void testSetNextBatchingWithExactMatch()
+        throws SAXException, IOException
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/item" ).createObject().ofType( NamedBean.class )
+                    .then()
+                    .setProperties()
+                    .then()
+                    .setNext( "add" ).batchingWith( "addAll" ).useExactMatch( true );
+            }
+
+        } ).newDigester();
+
+        // ArrayList declares addAll( Collection )
+        List<?> root = digester.parse( new StringReader( "<root><item name='a'/><item name='b'/></root>" ) );
+
+        assertEquals( 2, root.size() );
+        assertEquals( "a", ( (NamedBean) root.get( 0 ) ).getName() );
+        assertEquals( "b", ( (NamedBean) root.get( 1 ) ).getName() );
+    }
+
+    @Test
+    public void testSetNextBatchingAfterFailedParse()
+        throws SAXException, IOException
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/item" ).createObject().ofType( NamedBean.class )
+                    .then()
+                    .setProperties()
+                    .then()
+                    .setNext( "add" ).batchingWith( "addAll" );
+            }
+
+        } ).newDigester();
+
+        try
+        {
+            digester.parse( new StringReader( "<root><item name='a'/><item name='b'/><broken></root>" ) );
+            fail( "Malformed document parsed" );
+        }
+        catch ( SAXException e )
+        {
+            // expected
+        }
+        List<?> failedRoot = digester.getRoot();
+        digester.clear();
+        digester.resetRoot();
+
+        List<?> root = digester.parse( new StringReader( "<root><item name='c'/></root>" ) );
+
+        // the children collected by the failed parse are not passed to their parent
+        assertEquals( 0, failedRoot.size() );
+        assertEquals( 1, root.size() );
+        assertEquals( "c", ( (NamedBean) root.get( 0 ) ).getName() );
+    }
+
     @Test
     public void testSetTop()
         throws SAXException, IOException
@@ -521,6 +694,91 @@ public class RuleTestCase
 
     }
 
+    /**
+     * Test that the body text is handed only to the rules that need it.
+     */
+    @Test
+    public void testBodyTextRequired()
+        throws SAXException, IOException
+    {
+
+        assertFalse( new ObjectCreateRule( Address.class ).isBodyTextRequired() );
+        assertFalse( new SetNextRule( "add" ).isBodyTextRequired() );
+        assertTrue( new BeanPropertySetterRule( "city" ).isBodyTextRequired() );
+
+        final StringBuilder received = new StringBuilder();
+        Rule textRule = new Rule()
+        {
+            @Override
+            public void body( String namespace, String name, String text )
+            {
+                received.append( '[' ).append( text ).append( ']' );
+            }
+        };
+        Rule eventRule = new Rule()
+        {
+            @Override
+            public boolean isBodyTextRequired()
+            {
+                return false;
+            }
+
+            @Override
+            public void body( String namespace, String name, String text )
+            {
+                received.append( '(' ).append( text ).append( ')' );
+            }
+        };
+        assertTrue( textRule.isBodyTextRequired() );
+
+        digester.addRule( "root/text", textRule );
+        digester.addRule( "root/event", eventRule );
+        digester.parse( new StringReader( "<root>ignored<text>one<skipped>nested</skipped>two</text><event>three</event>"
+            + "<text>four</text></root>" ) );
+
+        assertEquals( "[onetwo]()[four]", received.toString() );
+
+    }
+
+    /**
+     * Test that the callbacks actually overridden by rules are detected, so that only those are fired.
+     */
+    @Test
+    public void testOverriddenCallbacks()
+        throws SAXException, IOException
+    {
+
+        Rule setProperties = new SetPropertiesRule();
+        assertTrue( setProperties.isCallbackOverridden( Rule.BEGIN ) );
+        assertFalse( setProperties.isCallbackOverridden( Rule.BODY ) );
+        assertFalse( setProperties.isCallbackOverridden( Rule.END ) );
+        assertFalse( setProperties.isCallbackOverridden( Rule.FINISH ) );
+
+        Rule objectCreate = new ObjectCreateRule( Address.class );
+        assertTrue( objectCreate.isCallbackOverridden( Rule.BEGIN ) );
+        assertFalse( objectCreate.isCallbackOverridden( Rule.BODY ) );
+        assertTrue( objectCreate.isCallbackOverridden( Rule.END ) );
+
+        final StringBuilder fired = new StringBuilder();
+        // callbacks overridden in a superclass are detected as well
+        Rule finishRule = new TestRule( "finishRule" )
+        {
+            @Override
+            public void finish()
+            {
+                fired.append( "finish" );
+            }
+        };
+        assertTrue( finishRule.isCallbackOverridden( Rule.BEGIN ) );
+        assertTrue( finishRule.isCallbackOverridden( Rule.FINISH ) );
+
+        digester.addRule( "root", finishRule );
+        digester.parse( new StringReader( "<root/>" ) );
+
+        assertEquals( "finish", fired.toString() );
+
+    }
+
     // ------------------------------------------------ Utility Support Methods
 
     /**
@@ -277,4 +277,124 @@ public class RulesBaseTestCase
         // clean up
         digester.getRules().clear();
     }
+
+    /**
+     * Matching an {@link ElementPath} must select the same rules than matching the corresponding pattern.
+     */
+    @Test
+    public void testElementPathMatching()
+    {
+        // clear any existing rules
+        digester.getRules().clear();
+
+        digester.addRule( "a/b/c/d", new TestRule( "a/b/c/d" ) );
+        digester.addRule( "*/d", new TestRule( "*/d" ) );
+        digester.addRule( "*/c/d", new TestRule( "*/c/d" ) );
+        digester.addRule( "*/a", new TestRule( "*/a" ) );
+        digester.addRule( "a/b", new TestRule( "a/b", "euclidean" ) );
+        digester.addRule( "*/b", new TestRule( "*/b" ) );
+
+        AbstractRulesImpl rules = (AbstractRulesImpl) digester.getRules();
+        String[][] paths = { { "a" }, { "aa" }, { "a", "b" }, { "a", "b", "c", "d" }, { "a", "b", "d" },
+            { "x", "c", "d" }, { "x", "cc", "d" }, { "x", "a" } };
+        String[] namespaces = { null, "euclidean", "hyperbolic" };
+
+        for ( String[] segments : paths )
+        {
+            ElementPath path = new ElementPath();
+            for ( String segment : segments )
+            {
+                path.push( segment );
+            }
+            for ( String namespaceURI : namespaces )
+            {
+                assertEquals( "Matching " + path + " in namespace " + namespaceURI,
+                              rules.match( namespaceURI, path.toString(), null, null ),
+                              rules.match( namespaceURI, path, null, null ) );
+            }
+        }
+
+        // clean up
+        digester.getRules().clear();
+    }
+
+    /**
+     * Only the longest matching wildcard pattern must be selected, no matter the registration order.
+     */
+    @Test
+    public void testLongestWildcardMatch()
+    {
+        // clear any existing rules
+        digester.getRules().clear();
+
+        digester.addRule( "*/a/b", new TestRule( "*/a/b" ) );
+        digester.addRule( "*/b", new TestRule( "*/b" ) );
+        digester.addRule( "*/x/a/b", new TestRule( "*/x/a/b" ) );
+        digester.addRule( "*/y/b", new TestRule( "*/y/b" ) );
+
+        String[][] expectations = { { "b", "*/b" }, { "a/b", "*/a/b" }, { "y/a/b", "*/a/b" }, { "x/a/b", "*/x/a/b" },
+            { "z/x/a/b", "*/x/a/b" }, { "xa/b", "*/b" }, { "a/y/b", "*/y/b" }, { "b/a", null } };
+
+        for ( String[] expectation : expectations )
+        {
+            List<Rule> list = digester.getRules().match( null, expectation[0], null, null );
+            if ( expectation[1] == null )
+            {
+                assertEquals( "Matching " + expectation[0], 0, list.size() );
+            }
+            else
+            {
+                assertEquals( "Matching " + expectation[0], 1, list.size() );
+                assertEquals( "Matching " + expectation[0], expectation[1],
+                              ( (TestRule) list.get( 0 ) ).getIdentifier() );
+            }
+        }
+
+        // clean up
+        digester.getRules().clear();
+    }
+
+    /**
+     * Rules bound to different namespaces and to no namespace must be selected in registration order, also after new
+     * rules are registered for the same pattern.
+     */
+    @Test
+    public void testNamespacePartitions()
+    {
+        // clear any existing rules
+        digester.getRules().clear();
+
+        digester.addRule( "envelope/body", new TestRule( "soap-1", "urn:soap" ) );
+        digester.addRule( "envelope/body", new TestRule( "any-1" ) );
+        digester.addRule( "envelope/body", new TestRule( "wsa-1", "urn:wsa" ) );
+        digester.addRule( "envelope/body", new TestRule( "soap-2", "urn:soap" ) );
+
+        assertIdentifiers( "urn:soap", "envelope/body", "soap-1", "any-1", "soap-2" );
+        assertIdentifiers( "urn:wsa", "envelope/body", "any-1", "wsa-1" );
+        assertIdentifiers( "urn:other", "envelope/body", "any-1" );
+        assertIdentifiers( "urn:soap", "envelope/body", "soap-1", "any-1", "soap-2" );
+
+        digester.addRule( "envelope/body", new TestRule( "any-2" ) );
+        digester.addRule( "envelope/body", new TestRule( "other-1", "urn:other" ) );
+
+        assertIdentifiers( "urn:soap", "envelope/body", "soap-1", "any-1", "soap-2", "any-2" );
+        assertIdentifiers( "urn:wsa", "envelope/body", "any-1", "wsa-1", "any-2" );
+        assertIdentifiers( "urn:other", "envelope/body", "any-1", "any-2", "other-1" );
+        assertIdentifiers( "urn:unknown", "envelope/body", "any-1", "any-2" );
+
+        // clean up
+        digester.getRules().clear();
+    }
+
+    private void assertIdentifiers( String namespaceURI, String pattern, String... identifiers )
+    {
+        List<Rule> list = digester.getRules().match( namespaceURI, pattern, null, null );
+        assertEquals( "Matching " + pattern + " in " + namespaceURI, identifiers.length, list.size() );
+        for ( int i = 0; i < identifiers.length; i++ )
+        {
+            assertEquals( "Matching " + pattern + " in " + namespaceURI, identifiers[i],
+                          ( (TestRule) list.get( i ) ).getIdentifier() );
+        }
+    }
+
 }
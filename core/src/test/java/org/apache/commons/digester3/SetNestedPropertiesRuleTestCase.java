@@ -20,15 +20,20 @@ package org.apache.commons.digester3;
 
 import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.digester3.binder.AbstractRulesModule;
 import org.junit.Test;
+import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
 /**
@@ -406,6 +411,63 @@ public class SetNestedPropertiesRuleTestCase
         assertNotNull( bean );
     }
 
+    /**
+     * Test that the properties are set on sibling objects, and that the rules matching the child elements are still
+     * fired, without the digester rules being replaced.
+     */
+    @Test
+    public void testRepeatedElements()
+        throws SAXException, IOException
+    {
+        final List<Rules> childRules = new ArrayList<Rules>();
+
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/item" ).createObject().ofType( TestBean.class )
+                    .then()
+                    .setNext( "add" )
+                    .then()
+                    .setNestedProperties();
+                forPattern( "root/item/stringProperty" ).addRule( new Rule()
+                {
+
+                    @Override
+                    public void begin( String namespace, String name, Attributes attributes )
+                    {
+                        childRules.add( getDigester().getRules() );
+                    }
+
+                } );
+            }
+
+        }).newDigester();
+
+        List<TestBean> beans = digester.parse( new StringReader( "<root>"
+            + "<item><intProperty>1</intProperty><stringProperty>one</stringProperty></item>"
+            + "<item><stringProperty>two</stringProperty><booleanProperty>false</booleanProperty></item>"
+            + "<item><intProperty>3</intProperty><stringProperty>three</stringProperty></item>"
+            + "</root>" ) );
+
+        assertEquals( 3, beans.size() );
+        assertEquals( 1, beans.get( 0 ).getIntProperty() );
+        assertEquals( "one", beans.get( 0 ).getStringProperty() );
+        assertEquals( "two", beans.get( 1 ).getStringProperty() );
+        assertFalse( beans.get( 1 ).getBooleanProperty() );
+        assertEquals( 3, beans.get( 2 ).getIntProperty() );
+        assertEquals( "three", beans.get( 2 ).getStringProperty() );
+
+        assertEquals( 3, childRules.size() );
+        for ( Rules rules : childRules )
+        {
+            assertSame( digester.getRules(), rules );
+        }
+    }
+
     /**
      * Get input stream from {@link #TEST_XML}.
      */
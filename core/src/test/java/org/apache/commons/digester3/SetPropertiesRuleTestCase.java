@@ -20,12 +20,15 @@ package org.apache.commons.digester3;
 
 import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.digester3.binder.AbstractRulesModule;
 import org.junit.Test;
@@ -214,6 +217,47 @@ public class SetPropertiesRuleTestCase
         assertEquals( "delta property set", "DELTA VALUE", bean.getDeltaValue() );
     }
 
+    /**
+     * Test setter plans reused for repeated elements with the same attributes, and compiled for different ones.
+     */
+    @Test
+    public void testRepeatedElements()
+        throws Exception
+    {
+        Digester digester = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( ArrayList.class );
+                forPattern( "root/bean" ).createObject().ofType( TestBean.class )
+                    .then()
+                    .setProperties()
+                        .addAlias( "int" ).forProperty( "intProperty" )
+                        .addAlias( "skip" ).forProperty( null )
+                    .then()
+                    .setNext( "add" );
+            }
+
+        }).newDigester();
+
+        List<TestBean> beans = digester.parse( xmlTestReader( "<root>"
+            + "<bean int='1' doubleProperty='1.5' skip='x'/>"
+            + "<bean int='2' doubleProperty='2.5' skip='y'/>"
+            + "<bean booleanProperty='false' stringArray='a' unknown='z'/>"
+            + "</root>" ) );
+
+        assertEquals( "Wrong beans", 3, beans.size() );
+        assertEquals( "int property (1)", 1, beans.get( 0 ).getIntProperty() );
+        assertEquals( "double property (1)", 1.5, beans.get( 0 ).getDoubleProperty(), 0 );
+        assertEquals( "int property (2)", 2, beans.get( 1 ).getIntProperty() );
+        assertEquals( "double property (2)", 2.5, beans.get( 1 ).getDoubleProperty(), 0 );
+        assertFalse( "boolean property (3)", beans.get( 2 ).getBooleanProperty() );
+        assertEquals( "string array (3)", 1, beans.get( 2 ).getStringArray().length );
+        assertEquals( "string array (3)", "a", beans.get( 2 ).getStringArray()[0] );
+    }
+
     /**
      * Get input stream from specified String containing XML data.
      */
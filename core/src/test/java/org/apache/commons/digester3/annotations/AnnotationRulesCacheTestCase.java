@@ -0,0 +1,121 @@
+package org.apache.commons.digester3.annotations;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.apache.commons.digester3.annotations.AnnotationRulesCache.getAnnotationRules;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.digester3.annotations.AnnotationRulesCache.AnnotationRule;
+import org.apache.commons.digester3.annotations.catalog.AudioVisual;
+import org.apache.commons.digester3.annotations.rss.Item;
+import org.apache.commons.digester3.annotations.rules.ObjectCreate;
+import org.junit.Test;
+
+/**
+ * Test case for the annotations metadata shared between the {@link FromAnnotationsRuleModule}s.
+ *
+ * @since 3.3
+ */
+public final class AnnotationRulesCacheTestCase
+{
+
+    @Test
+    public void annotationsScannedOnce()
+    {
+        List<AnnotationRule> annotationRules = getAnnotationRules( Item.class );
+
+        // @ObjectCreate on the type, @BeanPropertySetter on the three fields
+        assertEquals( 4, annotationRules.size() );
+        assertEquals( ObjectCreate.class, annotationRules.get( 0 ).getAnnotation().annotationType() );
+        assertSame( Item.class, annotationRules.get( 0 ).getElement() );
+        assertSame( annotationRules, getAnnotationRules( Item.class ) );
+    }
+
+    @Test
+    public void annotationsListExpanded()
+    {
+        List<AnnotationRule> annotationRules = getAnnotationRules( AudioVisual.class );
+
+        assertEquals( ObjectCreate.class, annotationRules.get( 0 ).getAnnotation().annotationType() );
+        assertEquals( "catalog/dvd", ( (ObjectCreate) annotationRules.get( 0 ).getAnnotation() ).pattern() );
+    }
+
+    @Test
+    public void concurrentScansFindTheSameRules()
+        throws Exception
+    {
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final List<List<AnnotationRule>> results = new ArrayList<List<AnnotationRule>>();
+        final Throwable[] failure = new Throwable[1];
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        List<AnnotationRule> annotationRules = getAnnotationRules( Concurrent.class );
+                        synchronized ( results )
+                        {
+                            results.add( annotationRules );
+                        }
+                    }
+                    catch ( Throwable t )
+                    {
+                        failure[0] = t;
+                    }
+                }
+            };
+            thread.start();
+            threads.add( thread );
+        }
+
+        start.countDown();
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        assertNull( failure[0] );
+        assertEquals( 8, results.size() );
+        for ( List<AnnotationRule> annotationRules : results )
+        {
+            assertEquals( 1, annotationRules.size() );
+            assertEquals( "concurrent", ( (ObjectCreate) annotationRules.get( 0 ).getAnnotation() ).pattern() );
+        }
+    }
+
+    @ObjectCreate( pattern = "concurrent" )
+    public static final class Concurrent
+    {
+    }
+
+}
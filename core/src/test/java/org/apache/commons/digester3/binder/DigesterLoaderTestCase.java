@@ -19,9 +19,15 @@ package org.apache.commons.digester3.binder;
  * under the License.
  */
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
 
+import java.io.StringReader;
+
+import org.apache.commons.digester3.CompiledRules;
 import org.apache.commons.digester3.Digester;
 import org.junit.Test;
 import org.xml.sax.ErrorHandler;
@@ -145,4 +151,66 @@ public final class DigesterLoaderTestCase
         assertSame( expected, actual );
     }
 
+    @Test
+    public void compiledRules()
+        throws Exception
+    {
+        DigesterLoader loader = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( StringBuilder.class );
+                forPattern( "*/item" ).callMethod( "append" ).withParamTypes( String.class )
+                    .usingElementBodyAsArgument();
+            }
+
+        } ).setCompileRules( true );
+
+        Digester first = loader.newDigester();
+        Digester second = loader.newDigester();
+
+        assertTrue( first.getRules() instanceof CompiledRules );
+        assertSame( ( (CompiledRules) first.getRules() ).getCompiledPatterns(),
+                    ( (CompiledRules) second.getRules() ).getCompiledPatterns() );
+        assertEquals( 2, first.getRules().rules().size() );
+        assertNotSame( first.getRules().rules().get( 0 ), second.getRules().rules().get( 0 ) );
+
+        StringBuilder parsed = first.parse( new StringReader( "<root><item>a</item><item>b</item></root>" ) );
+        assertEquals( "ab", parsed.toString() );
+        parsed = second.parse( new StringReader( "<root><item>c</item></root>" ) );
+        assertEquals( "c", parsed.toString() );
+    }
+
+    @Test
+    public void rulesTemplateRebuiltOnReconfiguration()
+        throws Exception
+    {
+        DigesterLoader loader = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( StringBuilder.class );
+            }
+
+        } ).setCompileRules( true );
+
+        Digester first = loader.newDigester();
+        assertSame( ( (CompiledRules) first.getRules() ).getCompiledPatterns(),
+                    ( (CompiledRules) loader.newDigester().getRules() ).getCompiledPatterns() );
+
+        loader.setClassLoader( getClass().getClassLoader() );
+
+        Digester second = loader.newDigester();
+        assertNotSame( ( (CompiledRules) first.getRules() ).getCompiledPatterns(),
+                       ( (CompiledRules) second.getRules() ).getCompiledPatterns() );
+        assertEquals( 1, second.getRules().rules().size() );
+
+        StringBuilder parsed = second.parse( new StringReader( "<root/>" ) );
+        assertEquals( "", parsed.toString() );
+    }
+
 }
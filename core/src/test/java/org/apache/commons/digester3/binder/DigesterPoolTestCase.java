@@ -0,0 +1,136 @@
+package org.apache.commons.digester3.binder;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+
+import org.apache.commons.digester3.Digester;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Test case for {@link DigesterPool}.
+ */
+public final class DigesterPoolTestCase
+{
+
+    private DigesterLoader loader;
+
+    @Before
+    public void setUp()
+    {
+        loader = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root" ).createObject().ofType( StringBuilder.class );
+                forPattern( "*/item" ).callMethod( "append" ).withParamTypes( String.class )
+                    .usingElementBodyAsArgument();
+            }
+
+        } );
+    }
+
+    @Test
+    public void reusesReturnedDigesters()
+        throws Exception
+    {
+        DigesterPool pool = loader.newDigesterPool( 1 );
+
+        StringBuilder parsed = pool.parse( source( "<root><item>a</item><item>b</item></root>" ) );
+        assertEquals( "ab", parsed.toString() );
+        parsed = pool.parse( source( "<root><item>c</item></root>" ) );
+        assertEquals( "c", parsed.toString() );
+
+        assertEquals( 1, pool.getCreatedCount() );
+        assertEquals( 2, pool.getBorrowedCount() );
+        assertEquals( 2, pool.getReturnedCount() );
+        assertEquals( 0, pool.getDiscardedCount() );
+        assertEquals( 1, pool.getIdleCount() );
+    }
+
+    @Test
+    public void discardsFailedAndExceedingDigesters()
+        throws Exception
+    {
+        DigesterPool pool = loader.newDigesterPool( 1 );
+
+        try
+        {
+            pool.parse( source( "<root><item>a</item>" ) );
+            fail( "Malformed document parsed" );
+        }
+        catch ( SAXException e )
+        {
+            // expected
+        }
+        assertEquals( 1, pool.getDiscardedCount() );
+        assertEquals( 0, pool.getIdleCount() );
+
+        Digester first = pool.borrowDigester();
+        Digester second = pool.borrowDigester();
+        pool.returnDigester( first );
+        pool.returnDigester( second );
+        assertEquals( 3, pool.getCreatedCount() );
+        assertEquals( 2, pool.getDiscardedCount() );
+        assertSame( first, pool.borrowDigester() );
+    }
+
+    @Test
+    public void resetAfterFailedParse()
+        throws Exception
+    {
+        Digester digester = loader.newDigester();
+
+        try
+        {
+            digester.parse( new StringReader( "<root><item>a</item><item>" ) );
+            fail( "Malformed document parsed" );
+        }
+        catch ( SAXException e )
+        {
+            // expected
+        }
+
+        digester.reset();
+        assertEquals( 0, digester.getCount() );
+        assertNull( digester.getRoot() );
+
+        StringBuilder parsed = digester.parse( new StringReader( "<root><item>b</item></root>" ) );
+        assertEquals( "b", parsed.toString() );
+    }
+
+    private static InputSource source( String xml )
+    {
+        return new InputSource( new StringReader( xml ) );
+    }
+
+}
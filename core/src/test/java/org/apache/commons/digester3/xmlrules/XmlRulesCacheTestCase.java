@@ -0,0 +1,211 @@
+/* $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.digester3.xmlrules;
+
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.digester3.Digester;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case for {@link XmlRulesCache}.
+ */
+public class XmlRulesCacheTestCase
+{
+
+    private static final String RULES_XML = "<?xml version='1.0'?>"
+        + "<!DOCTYPE digester-rules PUBLIC \"-//Apache Commons //DTD digester-rules XML V1.0//EN\" "
+        + "\"http://commons.apache.org/digester/dtds/digester-rules-3.0.dtd\">"
+        + "<digester-rules>"
+        + " <pattern value='root/foo1'>"
+        + "   <include url='classpath:org/apache/commons/digester3/xmlrules/testrulesinclude.xml' />"
+        + " </pattern>"
+        + " <pattern value='root/foo2'>"
+        + "   <include url='classpath:org/apache/commons/digester3/xmlrules/testrulesinclude.xml' />"
+        + " </pattern>"
+        + "</digester-rules>";
+
+    private static final String XML = "<?xml version='1.0' ?><root><foo1><bar><foo value='foo1'/></bar></foo1>"
+        + "<foo2><bar><foo value='foo2'/></bar></foo2></root>";
+
+    private File directory;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        directory = File.createTempFile( "xmlrules", "" );
+        directory.delete();
+    }
+
+    @After
+    public void tearDown()
+    {
+        delete( directory );
+    }
+
+    @Test
+    public void storeAndReplay()
+        throws Exception
+    {
+        XmlRulesCache cache = new XmlRulesCache( new File( directory, "xmlrules" ) );
+
+        assertEquals( "[foo1, foo2]", parse( cache, RULES_XML ) );
+        File[] stored = cache.getDirectory().listFiles();
+        // the rules and the included rules
+        assertEquals( 2, stored.length );
+        Arrays.sort( stored );
+        long[] lastModified = { stored[0].lastModified(), stored[1].lastModified() };
+
+        assertEquals( "[foo1, foo2]", parse( cache, RULES_XML ) );
+        File[] replayed = cache.getDirectory().listFiles();
+        Arrays.sort( replayed );
+        assertEquals( Arrays.asList( stored ), Arrays.asList( replayed ) );
+        assertEquals( lastModified[0], replayed[0].lastModified() );
+        assertEquals( lastModified[1], replayed[1].lastModified() );
+    }
+
+    @Test
+    public void regenerateChangedOrCorrupted()
+        throws Exception
+    {
+        XmlRulesCache cache = new XmlRulesCache( directory );
+
+        assertEquals( "[foo1, foo2]", parse( cache, RULES_XML ) );
+        assertEquals( 2, directory.listFiles().length );
+
+        // the content changed, stored by content hash since there's no system id
+        String changed = RULES_XML.replace( "root/foo2", "root/foo3" );
+        assertEquals( "[foo1]", parse( cache, changed ) );
+        assertEquals( 3, directory.listFiles().length );
+
+        for ( File file : directory.listFiles() )
+        {
+            corrupt( file );
+        }
+        assertEquals( "[foo1, foo2]", parse( cache, RULES_XML ) );
+        // the changed rules have not been loaded again
+        int regenerated = 0;
+        for ( File file : directory.listFiles() )
+        {
+            if ( file.length() > 3 )
+            {
+                regenerated++;
+            }
+        }
+        assertEquals( 2, regenerated );
+        assertEquals( "[foo1, foo2]", parse( cache, RULES_XML ) );
+    }
+
+    @Test
+    public void externalEntitiesNotStored()
+        throws Exception
+    {
+        XmlRulesCache cache = new XmlRulesCache( new File( directory, "xmlrules" ) );
+        directory.mkdirs();
+        File entity = new File( directory, "entity.xml" );
+        String rulesXml = RULES_XML.replace( "\">", "\" [ <!ENTITY foo2 SYSTEM '" + entity.toURI() + "'> ]>" )
+            .replaceFirst( " <pattern value='root/foo2'>.*</pattern>", "&foo2;" );
+
+        write( entity, "<pattern value='root/foo2'>"
+            + "<include url='classpath:org/apache/commons/digester3/xmlrules/testrulesinclude.xml' /></pattern>" );
+        assertEquals( "[foo1, foo2]", parse( cache, rulesXml ) );
+        // just the included rules
+        assertEquals( 1, cache.getDirectory().listFiles().length );
+
+        write( entity, "<pattern value='root/foo3'/>" );
+        assertEquals( "[foo1]", parse( cache, rulesXml ) );
+        assertEquals( 1, cache.getDirectory().listFiles().length );
+    }
+
+    private static String parse( final XmlRulesCache cache, final String rulesXml )
+        throws Exception
+    {
+        Digester digester = newLoader( new FromXmlRulesModule()
+        {
+
+            @Override
+            protected void loadRules()
+            {
+                useXmlRulesCache( cache );
+                loadXMLRulesFromText( rulesXml );
+            }
+
+        } ).newDigester();
+
+        List<String> list = new ArrayList<String>();
+        digester.push( list );
+        digester.parse( new StringReader( XML ) );
+        return list.toString();
+    }
+
+    private static void delete( File file )
+    {
+        File[] children = file.listFiles();
+        if ( children != null )
+        {
+            for ( File child : children )
+            {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+
+    private static void write( File file, String content )
+        throws IOException
+    {
+        OutputStream output = new FileOutputStream( file );
+        try
+        {
+            output.write( content.getBytes( "UTF-8" ) );
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    private static void corrupt( File file )
+        throws IOException
+    {
+        OutputStream output = new FileOutputStream( file );
+        try
+        {
+            output.write( new byte[] { 1, 2, 3 } );
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+}
@@ -140,7 +140,7 @@ public class MarkupDigester
         if ( currTextSegment.length() > 0 )
         {
             String segment = currTextSegment.toString();
-            List<Rule> parentMatches = getMatches().peek();
+            List<Rule> parentMatches = getRuleMatches().peek();
             int len = parentMatches.size();
             for ( int i = 0; i < len; ++i )
             {